@@ -0,0 +1,67 @@
+package org.example.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Entry point of benchmarks.jar. Takes the usual JMH command line, always adds the GC profiler, and ends
+// with one line per phase: time per operation, allocation rate and bytes allocated per operation.
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListProfilers()
+                || commandLine.shouldListResultFormats() || commandLine.shouldListWithParams()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build();
+        printSummary(new Runner(options).run());
+    }
+
+    private static void printSummary(Collection<RunResult> results) {
+        System.out.println();
+        System.out.println("Per phase:");
+        System.out.printf("%-30s %-45s %16s %14s %16s%n", "phase", "parameters", "time", "alloc MB/s", "alloc bytes/op");
+        for (RunResult result : results) {
+            var params = result.getParams();
+            Map<String, String> values = new TreeMap<>();
+            for (String key : params.getParamsKeys()) {
+                values.put(key, params.getParam(key));
+            }
+            String benchmark = params.getBenchmark();
+            Result<?> primary = result.getPrimaryResult();
+            System.out.printf("%-30s %-45s %16s %14s %16s%n",
+                    benchmark.substring(benchmark.lastIndexOf('.') + 1),
+                    values.toString(),
+                    String.format("%.3f %s", primary.getScore(), primary.getScoreUnit()),
+                    secondary(result, "gc.alloc.rate"),
+                    secondary(result, "gc.alloc.rate.norm"));
+        }
+    }
+
+    // Score of a profiler result; older JMH versions prefix the names with a dot.
+    private static String secondary(RunResult result, String name) {
+        for (String key : result.getSecondaryResults().keySet()) {
+            if (key.equals(name) || key.equals("·" + name)) {
+                Result<?> score = result.getSecondaryResults().get(key);
+                return String.format("%.1f", score.getScore());
+            }
+        }
+        return "-";
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+// Writes a synthetic Maven project for the scanner to chew on: a pom.xml without dependencies and
+// src/main/java/gen/p<N>/Class<M>.java, 50 classes per package. Every class is generic, holds fields
+// of other generated classes and calls their methods, so symbol resolution crosses files and packages.
+//
+//   classes       number of classes
+//   callDensity   calls to other classes per method, and the number of classes each class depends on
+//   genericDepth  nesting of the generic field type, e.g. 2 is Map<String, List<T>>
+//
+// The same settings and seed always produce the same files.
+public class CorpusGenerator {
+
+    private static final int CLASSES_PER_PACKAGE = 50;
+    private static final int METHODS_PER_CLASS = 4;
+
+    public record Settings(int classes, int callDensity, int genericDepth, long seed) {
+        public Settings {
+            if (classes < 1 || callDensity < 0 || genericDepth < 0) {
+                throw new IllegalArgumentException("Invalid corpus settings " + this);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: CorpusGenerator <dir> <classes> <callDensity> <genericDepth> [seed]");
+            System.exit(1);
+        }
+        Settings settings = new Settings(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                args.length > 4 ? Long.parseLong(args[4]) : 42);
+        generate(Path.of(args[0]), settings);
+        System.out.println("Generated " + settings.classes() + " classes in " + args[0]);
+    }
+
+    // Writes the project below root and returns its source root.
+    public static Path generate(Path root, Settings settings) throws IOException {
+        Files.createDirectories(root);
+        Files.writeString(root.resolve("pom.xml"), """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                    <modelVersion>4.0.0</modelVersion>
+                    <groupId>gen</groupId>
+                    <artifactId>generated-corpus</artifactId>
+                    <version>1.0</version>
+                </project>
+                """);
+        Path sourceRoot = root.resolve("src/main/java");
+        Random random = new Random(settings.seed());
+        for (int index = 0; index < settings.classes(); index++) {
+            Path packageDir = sourceRoot.resolve("gen").resolve("p" + index / CLASSES_PER_PACKAGE);
+            Files.createDirectories(packageDir);
+            Files.writeString(packageDir.resolve("Class" + index + ".java"), classSource(index, settings, random));
+        }
+        return sourceRoot;
+    }
+
+    private static String classSource(int index, Settings settings, Random random) {
+        int dependencies = Math.min(settings.callDensity(), settings.classes() - 1);
+        StringBuilder source = new StringBuilder();
+        source.append("package gen.p").append(index / CLASSES_PER_PACKAGE).append(";\n\n");
+        source.append("import java.util.ArrayList;\nimport java.util.HashMap;\nimport java.util.List;\nimport java.util.Map;\n\n");
+        source.append("public class Class").append(index).append("<T extends Comparable<T>> {\n\n");
+
+        int[] dependencyClasses = new int[dependencies];
+        for (int dependency = 0; dependency < dependencies; dependency++) {
+            int target = random.nextInt(settings.classes() - 1);
+            dependencyClasses[dependency] = target >= index ? target + 1 : target;
+            source.append("    private ").append(qualifiedName(dependencyClasses[dependency]))
+                    .append("<String> dependency").append(dependency).append(";\n");
+        }
+        source.append("    private final List<T> items = new ArrayList<>();\n");
+        source.append("    private final ").append(nestedType(settings.genericDepth())).append(" data = new HashMap<>();\n\n");
+
+        for (int method = 0; method < METHODS_PER_CLASS; method++) {
+            source.append("    public int method").append(method).append("(int value) {\n");
+            source.append("        int result = value + items.size();\n");
+            for (int call = 0; call < settings.callDensity() && dependencies > 0; call++) {
+                int dependency = random.nextInt(dependencies);
+                source.append("        if (dependency").append(dependency).append(" != null) {\n");
+                source.append("            result += dependency").append(dependency)
+                        .append(".method").append(random.nextInt(METHODS_PER_CLASS)).append("(result + ").append(call).append(");\n");
+                source.append("        }\n");
+            }
+            if (method > 0) {
+                source.append("        result += method").append(method - 1).append("(result / 2);\n");
+            }
+            source.append("        return result;\n");
+            source.append("    }\n\n");
+        }
+
+        source.append("    public T first() {\n");
+        source.append("        return items.isEmpty() ? null : items.get(0);\n");
+        source.append("    }\n\n");
+        source.append("    public void add(T item) {\n");
+        source.append("        items.add(item);\n");
+        source.append("        items.sort((left, right) -> left.compareTo(right));\n");
+        source.append("    }\n\n");
+        source.append("    public ").append(nestedType(settings.genericDepth())).append(" data() {\n");
+        source.append("        return data;\n");
+        source.append("    }\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private static String qualifiedName(int index) {
+        return "gen.p" + index / CLASSES_PER_PACKAGE + ".Class" + index;
+    }
+
+    // Map<String, List<Map<String, ... T>>> with the given number of type constructors; at least a Map.
+    private static String nestedType(int depth) {
+        String type = "T";
+        for (int level = Math.max(1, depth) - 1; level >= 1; level--) {
+            type = (level % 2 == 1 ? "List<" : "Map<String, ") + type + ">";
+        }
+        return "Map<String, " + type + ">";
+    }
+}
@@ -0,0 +1,211 @@
+package org.example.benchmarks;
+
+import org.example.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// One benchmark per scan phase on a generated corpus. Each phase starts from a parser that has been
+// through the previous phases in an untimed setup, so the numbers of different phases can be compared
+// and added up. Run through BenchmarkRunner to get allocation rates next to the times.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ScanPhaseBenchmarks {
+
+    // The generated project, shared by all phases of a trial.
+    @State(Scope.Benchmark)
+    public static class Corpus {
+        @Param({"200"})
+        public int classes;
+
+        @Param({"4"})
+        public int callDensity;
+
+        @Param({"3"})
+        public int genericDepth;
+
+        // Worker threads of the parallel phases; 1 measures the sequential code paths
+        @Param({"1"})
+        public int threads;
+
+        Path root;
+
+        @Setup(Level.Trial)
+        public void generate() throws IOException {
+            root = Files.createTempDirectory("scanner-corpus");
+            CorpusGenerator.generate(root, new CorpusGenerator.Settings(classes, callDensity, genericDepth, 42));
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+
+        JavaSolutionParser newParser() {
+            try {
+                JavaSolutionParser parser = new JavaSolutionParser(root.toString());
+                parser.setSourceRoots(List.of(new File(root.toFile(), "src/main/java")));
+                return parser;
+            } catch (Exception e) {
+                throw new IllegalStateException("Cannot create parser for " + root, e);
+            }
+        }
+    }
+
+    // A new parser for every invocation of the parse phase.
+    @State(Scope.Thread)
+    public static class Fresh {
+        JavaSolutionParser parser;
+
+        @Setup(Level.Invocation)
+        public void setUp(Corpus corpus) {
+            parser = corpus.newParser();
+        }
+    }
+
+    // A parser that has loaded the corpus.
+    @State(Scope.Thread)
+    public static class Loaded {
+        JavaSolutionParser parser;
+
+        @Setup(Level.Invocation)
+        public void setUp(Corpus corpus) {
+            parser = corpus.newParser();
+            parser.loadSyntaxNodes(corpus.threads);
+        }
+    }
+
+    // A parser that has loaded the corpus and resolved its symbols.
+    @State(Scope.Thread)
+    public static class Resolved {
+        JavaSolutionParser parser;
+
+        @Setup(Level.Invocation)
+        public void setUp(Corpus corpus) {
+            parser = corpus.newParser();
+            parser.loadSyntaxNodes(corpus.threads);
+            parser.resolveSymbols(corpus.threads);
+        }
+    }
+
+    // The complete graph of the corpus, built once per trial.
+    @State(Scope.Benchmark)
+    public static class Scanned {
+        List<INodeInfo> nodes;
+        PropertyStore properties;
+        List<GraphRelationship> relationships;
+        Map<GraphRelationship, Map<String, Object>> relationshipData;
+
+        @Setup(Level.Trial)
+        public void setUp(Corpus corpus) {
+            JavaSolutionParser parser = corpus.newParser();
+            parser.loadSyntaxNodes(corpus.threads);
+            parser.resolveSymbols(corpus.threads);
+            parser.enrichAndDiscoverMoreNodes(corpus.threads);
+            nodes = new ArrayList<>(parser.getNodesSet());
+            properties = parser.getNodeInfos();
+            relationships = new ArrayList<>(parser.getRelationships());
+            relationshipData = parser.relationshipData();
+        }
+    }
+
+    // Sink that only hands what it is given to the blackhole, after reading node text like a real sink.
+    static final class NoOpSink implements IGraphSink {
+        private final Blackhole blackhole;
+
+        NoOpSink(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void writeNodes(List<NodeRecord> nodes) {
+            for (NodeRecord node : nodes) {
+                blackhole.consume(TextRef.materialize(node.data()));
+            }
+        }
+
+        @Override
+        public void writeRelationships(List<RelationshipRecord> relationships) {
+            blackhole.consume(relationships);
+        }
+
+        @Override
+        public void deleteNodes(String nodeType, long[] ids) {
+            blackhole.consume(ids);
+        }
+
+        @Override
+        public void deleteRelationships(List<RelationshipRecord> relationships) {
+            blackhole.consume(relationships);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Benchmark
+    public int loadSyntaxNodes(Fresh fresh, Corpus corpus) {
+        fresh.parser.loadSyntaxNodes(corpus.threads);
+        return fresh.parser.getNodesSet().size();
+    }
+
+    @Benchmark
+    public int resolveSymbols(Loaded loaded, Corpus corpus) {
+        loaded.parser.resolveSymbols(corpus.threads);
+        return loaded.parser.getCacheStats().size();
+    }
+
+    @Benchmark
+    public int enrichAndDiscoverMoreNodes(Resolved resolved, Corpus corpus) {
+        resolved.parser.enrichAndDiscoverMoreNodes(corpus.threads);
+        return resolved.parser.getNodesSet().size();
+    }
+
+    // Registration of every node of the graph, then of every node again as a duplicate.
+    @Benchmark
+    public int registerNodes(Scanned scanned) {
+        NodeInfoTracker tracker = new NodeInfoTracker();
+        for (INodeInfo node : scanned.nodes) {
+            tracker.registerNode(node);
+        }
+        for (INodeInfo node : scanned.nodes) {
+            tracker.registerNode(node);
+        }
+        return tracker.size();
+    }
+
+    // Building export records for the whole graph and passing them to a sink that does nothing.
+    @Benchmark
+    public void exportToNoOpSink(Scanned scanned, Blackhole blackhole) {
+        try (IGraphSink sink = new NoOpSink(blackhole)) {
+            List<NodeRecord> nodeRecords = new ArrayList<>(scanned.nodes.size());
+            for (INodeInfo node : scanned.nodes) {
+                nodeRecords.add(NodeRecord.of(node, scanned.properties.getProperties(node)));
+            }
+            sink.writeNodes(nodeRecords);
+            List<RelationshipRecord> relationshipRecords = new ArrayList<>(scanned.relationships.size());
+            for (GraphRelationship relationship : scanned.relationships) {
+                relationshipRecords.add(RelationshipRecord.of(relationship, scanned.relationshipData.get(relationship)));
+            }
+            sink.writeRelationships(relationshipRecords);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.example;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Hit and miss counters of a cache. Safe to update from several threads.
+public class CacheStats {
+    private final String name;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CacheStats(String name) {
+        this.name = name;
+    }
+
+    public void hit() {
+        hits.increment();
+    }
+
+    public void miss() {
+        misses.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getRequests() {
+        return getHits() + getMisses();
+    }
+
+    // Share of requests answered from the cache, 0 if there were none.
+    public double getHitRate() {
+        long requests = getRequests();
+        return requests == 0 ? 0 : (double) getHits() / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d requests, %d hits, %d misses, hit rate %.1f%%",
+                name, getRequests(), getHits(), getMisses(), getHitRate() * 100);
+    }
+}
@@ -0,0 +1,243 @@
+package org.example;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The calls relationships of a scan, by declaration node id, with memoized transitive closures:
+// affectedBy(m) are the methods that call m directly or indirectly, i.e. everything a change of m can
+// affect, reachableFrom(m) the methods m ends up calling. precompute() fills affectedBy for every
+// method, so after a load these queries are map lookups.
+//
+// The index is kept on disk between runs (--call-graph) and updated incrementally: every caller belongs
+// to the file it is declared in (ScanManifest.declaringFile(), which IncrementalScanner also uses to
+// delete the calls of rescanned callers from the sink), update() replaces the calls of callers in
+// rescanned or deleted files and evicts only the closures those changes can reach.
+//
+// File format: magic, version, then per caller its id, file, callee count and callee ids, then the
+// memoized closures of both directions as id, count and ids.
+public class CallGraphIndex {
+
+    private static final int MAGIC = 0x4A434749; // "JCGI"
+    private static final int VERSION = 1;
+
+    private final Map<Long, Set<Long>> callees = new HashMap<>();
+    private final Map<Long, Set<Long>> callers = new HashMap<>();
+    private final Map<Long, String> fileOf = new HashMap<>();
+    private final Map<Long, long[]> affected = new ConcurrentHashMap<>();
+    private final Map<Long, long[]> reachable = new ConcurrentHashMap<>();
+    private final CacheStats stats = new CacheStats("call graph closures");
+
+    // The index stored in the file, or an empty one if there is none or it cannot be read.
+    public static CallGraphIndex load(Path path) {
+        CallGraphIndex index = new CallGraphIndex();
+        if (!Files.exists(path)) {
+            return index;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("Ignoring call graph " + path + " of another format version");
+                return index;
+            }
+            int callerCount = in.readInt();
+            for (int i = 0; i < callerCount; i++) {
+                long caller = in.readLong();
+                index.fileOf.put(caller, in.readUTF());
+                int count = in.readInt();
+                for (int j = 0; j < count; j++) {
+                    index.addCall(caller, in.readLong());
+                }
+            }
+            readClosures(in, index.affected);
+            readClosures(in, index.reachable);
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable call graph " + path + ": " + e.getMessage());
+            return new CallGraphIndex();
+        }
+        return index;
+    }
+
+    // Writes through a temporary file, so a failed write leaves the previous index.
+    public void save(Path path) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(callees.size());
+            for (Map.Entry<Long, Set<Long>> entry : callees.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeUTF(fileOf.getOrDefault(entry.getKey(), ""));
+                out.writeInt(entry.getValue().size());
+                for (long callee : entry.getValue()) {
+                    out.writeLong(callee);
+                }
+            }
+            writeClosures(out, affected);
+            writeClosures(out, reachable);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Replaces the calls made from the stale files (e.g. the changed and deleted files of an incremental
+    // scan) with the calls relationships the parser holds, and evicts the closures that may have changed.
+    // Pass null to take the parser's calls as the whole call graph. Needs the relationships in memory,
+    // so it does not work with a streaming scan.
+    public void update(JavaSolutionParser parser, Collection<String> staleFiles) {
+        Map<Long, String> newCallers = new HashMap<>();
+        List<long[]> newCalls = new ArrayList<>();
+        for (GraphRelationship relationship : parser.getRelationships()) {
+            if (relationship.label().equals("calls")) {
+                long caller = relationship.from().getId();
+                newCallers.putIfAbsent(caller, ScanManifest.declaringFile(relationship.from()));
+                newCalls.add(new long[]{caller, relationship.to().getId()});
+            }
+        }
+        Set<Long> changed = new HashSet<>(newCallers.keySet());
+        if (staleFiles == null) {
+            changed.addAll(callees.keySet());
+        } else {
+            Set<String> stale = new HashSet<>(staleFiles);
+            fileOf.forEach((caller, file) -> {
+                if (stale.contains(file)) {
+                    changed.add(caller);
+                }
+            });
+        }
+
+        // A changed caller can change the callers of everything downstream of it and the callees of
+        // everything upstream, before and after the change
+        Set<Long> downstream = closure(changed, callees);
+        Set<Long> upstream = closure(changed, callers);
+        for (long caller : changed) {
+            for (long callee : callees.getOrDefault(caller, Set.of())) {
+                Set<Long> remaining = callers.get(callee);
+                remaining.remove(caller);
+                if (remaining.isEmpty()) {
+                    callers.remove(callee);
+                }
+            }
+            callees.remove(caller);
+            fileOf.remove(caller);
+        }
+        fileOf.putAll(newCallers);
+        for (long[] call : newCalls) {
+            addCall(call[0], call[1]);
+        }
+        downstream.addAll(closure(changed, callees));
+        upstream.addAll(closure(changed, callers));
+        affected.keySet().removeAll(downstream);
+        reachable.keySet().removeAll(upstream);
+    }
+
+    // Methods that call the method directly or indirectly, sorted; includes the method itself only if it
+    // is recursive.
+    public long[] affectedBy(long method) {
+        return memoized(affected, method, callers);
+    }
+
+    // Methods the method calls directly or indirectly, sorted.
+    public long[] reachableFrom(long method) {
+        return memoized(reachable, method, callees);
+    }
+
+    // Direct callers and callees.
+    public Set<Long> callersOf(long method) {
+        return Collections.unmodifiableSet(callers.getOrDefault(method, Set.of()));
+    }
+
+    public Set<Long> calleesOf(long method) {
+        return Collections.unmodifiableSet(callees.getOrDefault(method, Set.of()));
+    }
+
+    // Computes affectedBy for every method that does not have it yet, on the common pool.
+    public void precompute() {
+        Set<Long> methods = new HashSet<>(callers.keySet());
+        methods.addAll(callees.keySet());
+        methods.parallelStream().forEach(method -> affected.computeIfAbsent(method, m -> traverse(m, callers)));
+    }
+
+    public int methodCount() {
+        Set<Long> methods = new HashSet<>(callers.keySet());
+        methods.addAll(callees.keySet());
+        return methods.size();
+    }
+
+    public int callCount() {
+        return callees.values().stream().mapToInt(Set::size).sum();
+    }
+
+    public CacheStats stats() {
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return methodCount() + " methods, " + callCount() + " calls, " + affected.size() + " + "
+                + reachable.size() + " closures cached";
+    }
+
+    private void addCall(long caller, long callee) {
+        callees.computeIfAbsent(caller, k -> new HashSet<>()).add(callee);
+        callers.computeIfAbsent(callee, k -> new HashSet<>()).add(caller);
+    }
+
+    private long[] memoized(Map<Long, long[]> cache, long method, Map<Long, Set<Long>> edges) {
+        long[] closure = cache.get(method);
+        if (closure != null) {
+            stats.hit();
+            return closure;
+        }
+        stats.miss();
+        return cache.computeIfAbsent(method, m -> traverse(m, edges));
+    }
+
+    private static long[] traverse(long start, Map<Long, Set<Long>> edges) {
+        return closure(Set.of(start), edges).stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    // Everything reachable from the starts in one or more steps, plus the starts themselves only if
+    // they are reachable that way.
+    private static Set<Long> closure(Set<Long> starts, Map<Long, Set<Long>> edges) {
+        Set<Long> visited = new HashSet<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        for (long start : starts) {
+            queue.addAll(edges.getOrDefault(start, Set.of()));
+        }
+        while (!queue.isEmpty()) {
+            long node = queue.poll();
+            if (visited.add(node)) {
+                queue.addAll(edges.getOrDefault(node, Set.of()));
+            }
+        }
+        visited.addAll(starts);
+        return visited;
+    }
+
+    private static void writeClosures(DataOutputStream out, Map<Long, long[]> closures) throws IOException {
+        out.writeInt(closures.size());
+        for (Map.Entry<Long, long[]> entry : closures.entrySet()) {
+            out.writeLong(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            for (long id : entry.getValue()) {
+                out.writeLong(id);
+            }
+        }
+    }
+
+    private static void readClosures(DataInputStream in, Map<Long, long[]> closures) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long id = in.readLong();
+            long[] closure = new long[in.readInt()];
+            for (int j = 0; j < closure.length; j++) {
+                closure[j] = in.readLong();
+            }
+            closures.put(id, closure);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+// Writes the graph as CSV files for "neo4j-admin database import full", which loads a fresh database
+// much faster than Cypher and needs no connection during the scan. There is one set of files per node
+// type and per relationship label. close() writes import.sh with the matching import command.
+//
+// Each set is split into segments and each segment into parts. A segment has its own header file; a new
+// segment starts when rows bring a property the current header does not have, or a value that does not
+// fit a column's type. A new part starts when the current one reaches the rotation size.
+//
+// The import tool cannot merge rows, so unlike the Cypher sink every node must be written exactly once:
+// use it with a full, non-streaming scan. Deletes are not supported. Not thread-safe.
+public class CsvBulkImportSink implements IGraphSink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path directory;
+    private final boolean gzip;
+    private final long rotationBytes;
+    private final Map<String, FileSet> nodeFiles = new LinkedHashMap<>();
+    private final Map<String, FileSet> relationshipFiles = new LinkedHashMap<>();
+
+    public CsvBulkImportSink(Path directory, boolean gzip, long rotationBytes) {
+        if (rotationBytes <= 0) {
+            throw new IllegalArgumentException("Rotation size must be positive");
+        }
+        this.directory = directory;
+        this.gzip = gzip;
+        this.rotationBytes = rotationBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create " + directory, e);
+        }
+    }
+
+    @Override
+    public void writeNodes(List<NodeRecord> nodes) {
+        for (NodeRecord node : nodes) {
+            FileSet files = nodeFiles.computeIfAbsent(node.nodeType(), type -> new FileSet("nodes-" + type, List.of("id:ID")));
+            files.write(List.of(Long.toString(node.id())), node.data());
+        }
+    }
+
+    @Override
+    public void writeRelationships(List<RelationshipRecord> relationships) {
+        for (RelationshipRecord relationship : relationships) {
+            FileSet files = relationshipFiles.computeIfAbsent(relationship.label(),
+                    label -> new FileSet("relationships-" + label, List.of(":START_ID", ":END_ID")));
+            files.write(List.of(Long.toString(relationship.fromId()), Long.toString(relationship.toId())), relationship.data());
+        }
+    }
+
+    @Override
+    public void deleteNodes(String nodeType, long[] ids) {
+        throw new UnsupportedOperationException("The CSV import writes a fresh database; nodes cannot be deleted");
+    }
+
+    @Override
+    public void deleteRelationships(List<RelationshipRecord> relationships) {
+        throw new UnsupportedOperationException("The CSV import writes a fresh database; relationships cannot be deleted");
+    }
+
+    // Closes all files and writes the import command.
+    @Override
+    public void close() {
+        List<String> command = new ArrayList<>();
+        command.add("neo4j-admin database import full");
+        command.add("--id-type=integer");
+        command.add("--multiline-fields=true");
+        command.add("--skip-duplicate-nodes=true");
+        command.add("--skip-bad-relationships=true");
+        nodeFiles.forEach((type, files) -> {
+            files.close();
+            files.segments.forEach(segment -> command.add("--nodes=" + type + "=" + segment));
+        });
+        relationshipFiles.forEach((label, files) -> {
+            files.close();
+            files.segments.forEach(segment -> command.add("--relationships=" + label + "=" + segment));
+        });
+        command.add("\"${1:-neo4j}\"");
+        String script = "#!/bin/sh\n# Imports the CSV files in this directory into a new database (default: neo4j).\n"
+                + "cd \"$(dirname \"$0\")\" && " + String.join(" \\\n  ", command) + "\n";
+        try {
+            Path scriptPath = directory.resolve("import.sh");
+            Files.writeString(scriptPath, script);
+            scriptPath.toFile().setExecutable(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write import script to " + directory, e);
+        }
+        System.out.println("Wrote CSV import files for " + nodeFiles.size() + " node types and "
+                + relationshipFiles.size() + " relationship labels to " + directory);
+    }
+
+    // Header column of a property: its name and the import type of its values.
+    private record Column(String key, String type) {
+        String header() {
+            return type.equals("string") ? key : key + ":" + type;
+        }
+
+        static String typeOf(Object value) {
+            if (value instanceof Boolean) {
+                return "boolean";
+            } else if (value instanceof Integer) {
+                return "int";
+            } else if (value instanceof Long) {
+                return "long";
+            } else if (value instanceof Double || value instanceof Float) {
+                return "double";
+            }
+            return "string";
+        }
+
+        boolean accepts(Object value) {
+            return type.equals("string") || type.equals(typeOf(value));
+        }
+    }
+
+    // Files of one node type or relationship label.
+    private final class FileSet {
+        private final String name;
+        private final List<String> idColumns;
+        private final List<Column> columns = new ArrayList<>();
+        private final Map<String, Integer> columnIndex = new HashMap<>();
+        // Per segment: the header file followed by its parts, comma-separated as the import tool expects
+        private final List<String> segments = new ArrayList<>();
+        private final List<String> currentParts = new ArrayList<>();
+        private WritableByteChannel part = null;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long partBytes = 0;
+
+        FileSet(String name, List<String> idColumns) {
+            this.name = name;
+            this.idColumns = idColumns;
+        }
+
+        void write(List<String> ids, Map<String, Object> data) {
+            if (!fits(data)) {
+                extendColumns(data);
+                closeSegment();
+            }
+            if (part == null || partBytes >= rotationBytes) {
+                openPart();
+            }
+            String[] fields = new String[columns.size()];
+            data.forEach((key, value) -> fields[columnIndex.get(key)] = value == null ? null : String.valueOf(value));
+            StringBuilder row = new StringBuilder();
+            for (String id : ids) {
+                row.append(id).append(',');
+            }
+            for (String field : fields) {
+                appendField(row, field);
+                row.append(',');
+            }
+            row.setLength(row.length() - 1);
+            row.append('\n');
+            partBytes += put(row);
+        }
+
+        private boolean fits(Map<String, Object> data) {
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                Integer index = columnIndex.get(entry.getKey());
+                if (index == null || (entry.getValue() != null && !columns.get(index).accepts(entry.getValue()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Adds new keys as columns and widens columns to string where a value does not fit.
+        private void extendColumns(Map<String, Object> data) {
+            data.forEach((key, value) -> {
+                Integer index = columnIndex.get(key);
+                if (index == null) {
+                    columnIndex.put(key, columns.size());
+                    columns.add(new Column(key, value == null ? "string" : Column.typeOf(value)));
+                } else if (value != null && !columns.get(index).accepts(value)) {
+                    columns.set(index, new Column(key, "string"));
+                }
+            });
+        }
+
+        private void openPart() {
+            closePart();
+            if (currentParts.isEmpty()) {
+                writeHeader();
+            }
+            String fileName = String.format("%s-s%03d-p%04d.csv%s", name, segments.size() + 1, currentParts.size(), gzip ? ".gz" : "");
+            try {
+                FileChannel channel = FileChannel.open(directory.resolve(fileName),
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                part = gzip ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) : channel;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create " + fileName, e);
+            }
+            currentParts.add(fileName);
+            partBytes = 0;
+        }
+
+        private void writeHeader() {
+            String fileName = String.format("%s-s%03d-header.csv", name, segments.size() + 1);
+            List<String> header = new ArrayList<>(idColumns);
+            columns.forEach(column -> header.add(column.header()));
+            try {
+                Files.writeString(directory.resolve(fileName), String.join(",", header) + "\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write " + fileName, e);
+            }
+            currentParts.add(fileName);
+        }
+
+        // Writes the row through the shared buffer; returns the number of bytes.
+        private int put(CharSequence row) {
+            byte[] bytes = row.toString().getBytes(StandardCharsets.UTF_8);
+            try {
+                for (int offset = 0; offset < bytes.length; ) {
+                    int length = Math.min(buffer.remaining(), bytes.length - offset);
+                    buffer.put(bytes, offset, length);
+                    offset += length;
+                    if (!buffer.hasRemaining()) {
+                        drain();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write to " + name, e);
+            }
+            return bytes.length;
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                part.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void closePart() {
+            if (part == null) {
+                return;
+            }
+            try {
+                drain();
+                part.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot close " + name, e);
+            }
+            part = null;
+        }
+
+        private void closeSegment() {
+            closePart();
+            if (!currentParts.isEmpty()) {
+                segments.add(String.join(",", currentParts));
+                currentParts.clear();
+            }
+        }
+
+        void close() {
+            closeSegment();
+        }
+    }
+
+    // Quotes the field if needed; null becomes an empty field, which the import tool reads as no value.
+    private static void appendField(StringBuilder row, String field) {
+        if (field == null) {
+            return;
+        }
+        boolean quote = field.isEmpty() || field.indexOf(',') >= 0 || field.indexOf('"') >= 0
+                || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0;
+        if (!quote) {
+            row.append(field);
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+}
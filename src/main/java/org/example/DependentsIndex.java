@@ -0,0 +1,126 @@
+package org.example;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+// Which files may resolve differently after other files changed: for every file the simple names of
+// the types it declares and of the names it uses as types, scopes, annotations or imports. A file
+// depends on another if it uses a name the other declares, before or after the change. Names are
+// compared without packages, so this errs on the side of rescanning too much; a file that only reaches
+// a type through inferred types (e.g. a chained call) is not a dependent.
+//
+// Files are parsed without symbol resolution, so indexing a whole tree costs one plain parse per file.
+// Keys are manifest keys (see ScanManifest.key). Not thread-safe.
+public class DependentsIndex {
+
+    private record Names(Set<String> declared, Set<String> used) {}
+
+    private final Map<String, Names> namesByFile = new HashMap<>();
+    private final Map<String, Set<String>> usersByName = new HashMap<>();
+
+    // Indexes the files, replacing what was known about them.
+    public void addAll(List<File> files) {
+        files.parallelStream()
+                .map(file -> Map.entry(ScanManifest.key(file.toPath()), names(file.toPath())))
+                .toList()
+                .forEach(entry -> put(entry.getKey(), entry.getValue()));
+    }
+
+    // Files that use a type declared in one of the modified files, as it was indexed or as it is now on
+    // disk, excluding the modified files themselves. Re-indexes the modified files; deleted ones are
+    // removed.
+    public Set<String> update(List<String> modifiedFiles) {
+        Set<String> declared = new HashSet<>();
+        for (String file : modifiedFiles) {
+            Names previous = namesByFile.get(file);
+            if (previous != null) {
+                declared.addAll(previous.declared());
+            }
+            remove(file);
+            Path path = Path.of(file);
+            if (path.toFile().isFile()) {
+                Names current = names(path);
+                declared.addAll(current.declared());
+                put(file, current);
+            }
+        }
+        Set<String> dependents = new TreeSet<>();
+        for (String name : declared) {
+            dependents.addAll(usersByName.getOrDefault(name, Set.of()));
+        }
+        modifiedFiles.forEach(dependents::remove);
+        return dependents;
+    }
+
+    public int size() {
+        return namesByFile.size();
+    }
+
+    private void put(String file, Names names) {
+        namesByFile.put(file, names);
+        for (String name : names.used()) {
+            usersByName.computeIfAbsent(name, k -> new HashSet<>()).add(file);
+        }
+    }
+
+    private void remove(String file) {
+        Names names = namesByFile.remove(file);
+        if (names == null) {
+            return;
+        }
+        for (String name : names.used()) {
+            Set<String> users = usersByName.get(name);
+            users.remove(file);
+            if (users.isEmpty()) {
+                usersByName.remove(name);
+            }
+        }
+    }
+
+    // Declared and used names of a file; none if it cannot be read or parsed.
+    private static Names names(Path file) {
+        ParseResult<CompilationUnit> result;
+        try {
+            result = new JavaParser(new ParserConfiguration()
+                    .setLanguageLevel(ParserConfiguration.LanguageLevel.BLEEDING_EDGE)).parse(file);
+        } catch (IOException e) {
+            System.err.println("Cannot index dependents of " + file + ": " + e.getMessage());
+            return new Names(Set.of(), Set.of());
+        }
+        if (result.getResult().isEmpty()) {
+            return new Names(Set.of(), Set.of());
+        }
+        CompilationUnit unit = result.getResult().get();
+        Set<String> declared = new HashSet<>();
+        unit.findAll(TypeDeclaration.class).forEach(type -> declared.add(type.getNameAsString()));
+        Set<String> used = new HashSet<>();
+        unit.findAll(ClassOrInterfaceType.class).forEach(type -> used.add(type.getNameAsString()));
+        unit.findAll(NameExpr.class).forEach(name -> used.add(name.getNameAsString()));
+        unit.findAll(FieldAccessExpr.class).forEach(access -> used.add(access.getNameAsString()));
+        unit.findAll(AnnotationExpr.class).forEach(annotation -> used.add(annotation.getName().getIdentifier()));
+        for (ImportDeclaration declaration : unit.getImports()) {
+            // A type, or with "import static a.B.*" the type whose members are imported
+            if (!declaration.isAsterisk() || declaration.isStatic()) {
+                used.add(declaration.getName().getIdentifier());
+            }
+            // "import static a.B.member" names a member; its type is the qualifier
+            if (declaration.isStatic() && !declaration.isAsterisk() && declaration.getName().getQualifier().isPresent()) {
+                used.add(declaration.getName().getQualifier().get().getIdentifier());
+            }
+        }
+        return new Names(declared, used);
+    }
+}
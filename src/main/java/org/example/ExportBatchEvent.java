@@ -0,0 +1,26 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event for one export transaction: its batches, rows and the rows that could not be written.
+@Name("org.example.ExportBatch")
+@Label("Export Batch")
+@Category("Java Scanner")
+@Description("Rows written to the graph database in one transaction")
+public class ExportBatchEvent extends jdk.jfr.Event {
+
+    @Label("Description")
+    public String description;
+
+    @Label("Batches")
+    public int batches;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Failed Rows")
+    public int failedRows;
+}
@@ -0,0 +1,60 @@
+package org.example;
+
+import com.github.javaparser.resolution.UnsolvedSymbolException;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Resolution failures counted by what was being resolved, the exception type and the unsolved symbol,
+// so a scan prints one summary instead of a stderr line per failure. Safe to update from several threads.
+public class FailureReport {
+
+    private static final int MAX_SYMBOL_LENGTH = 120;
+
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    public void record(String stage, RuntimeException failure) {
+        String key = stage + " | " + failure.getClass().getSimpleName() + ": " + symbol(failure);
+        counts.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    public long total() {
+        return counts.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    // Prints the total and the most frequent groups, largest first.
+    public void print(PrintStream out, int limit) {
+        long total = total();
+        if (total == 0) {
+            return;
+        }
+        out.println("Resolution failures: " + total + " in " + counts.size() + " groups");
+        List<Map.Entry<String, Long>> groups = new ArrayList<>();
+        counts.forEach((key, count) -> groups.add(Map.entry(key, count.sum())));
+        groups.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()));
+        for (Map.Entry<String, Long> group : groups.subList(0, Math.min(limit, groups.size()))) {
+            out.printf("%8d  %s%n", group.getValue(), group.getKey());
+        }
+        if (groups.size() > limit) {
+            out.println("     ...  " + (groups.size() - limit) + " more groups");
+        }
+    }
+
+    // The name that could not be solved, or the first line of the message for other failures.
+    private static String symbol(RuntimeException failure) {
+        String symbol = failure instanceof UnsolvedSymbolException unsolved ? unsolved.getName() : failure.getMessage();
+        if (symbol == null) {
+            return "";
+        }
+        int newline = symbol.indexOf('\n');
+        if (newline >= 0) {
+            symbol = symbol.substring(0, newline);
+        }
+        return symbol.length() > MAX_SYMBOL_LENGTH ? symbol.substring(0, MAX_SYMBOL_LENGTH) + "..." : symbol;
+    }
+}
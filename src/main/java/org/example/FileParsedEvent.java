@@ -0,0 +1,28 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event for parsing one source file, including wrapping its syntax nodes.
+@Name("org.example.FileParsed")
+@Label("File Parsed")
+@Category("Java Scanner")
+@Description("A Java source file parsed by the scanner")
+public class FileParsedEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Syntax Nodes")
+    public int nodes;
+
+    @Label("Successful")
+    public boolean successful;
+}
@@ -0,0 +1,7 @@
+package org.example;
+
+import java.util.List;
+
+// A unit of streamed output. Sinks write the nodes before the relationships, so every relationship
+// refers to nodes that were written in this or an earlier batch.
+public record GraphBatch(List<NodeRecord> nodes, List<RelationshipRecord> relationships) {}
@@ -0,0 +1,454 @@
+package org.example;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+// Read-only adjacency index of a scanned graph for queries in the scanning process, e.g. "who calls this
+// method?" in a CI check, without exporting to Neo4j first. Nodes are numbered 0..nodeCount()-1; for
+// every relationship label the edges are stored in compressed sparse row form twice, by source and by
+// target, so neighbors in either direction are one contiguous slice of an int array.
+//
+// Properties are not kept, except each node's name (see Builder.NAME_PROPERTIES) for lookups.
+// Build one with GraphIndex.of(parser) after a scan, or feed a Builder as the sink of a streaming scan
+// or a snapshot replay. Safe to query from several threads.
+public class GraphIndex {
+
+    public enum Direction { OUTGOING, INCOMING, BOTH }
+
+    // Edges of one label: the neighbors of node n are targets[offsets[n]] to targets[offsets[n + 1] - 1],
+    // sorted and without duplicates.
+    private record Adjacency(int[] offsets, int[] targets) {}
+
+    private final long[] ids;
+    private final String[] nodeTypes;
+    private final String[] names;
+    private final LongIntHashMap nodeIndex;
+    private final Map<String, Adjacency> outgoing;
+    private final Map<String, Adjacency> incoming;
+    private final int relationshipCount;
+
+    private GraphIndex(long[] ids, String[] nodeTypes, String[] names, Map<String, Adjacency> outgoing,
+                       Map<String, Adjacency> incoming) {
+        this.ids = ids;
+        this.nodeTypes = nodeTypes;
+        this.names = names;
+        this.outgoing = outgoing;
+        this.incoming = incoming;
+        this.nodeIndex = new LongIntHashMap(ids.length);
+        for (int node = 0; node < ids.length; node++) {
+            nodeIndex.put(ids[node], node);
+        }
+        int count = 0;
+        for (Adjacency adjacency : outgoing.values()) {
+            count += adjacency.targets().length;
+        }
+        this.relationshipCount = count;
+    }
+
+    // Index of everything the parser tracks. In streaming mode the parser only holds what has not been
+    // flushed yet; use a Builder as the stream target instead.
+    public static GraphIndex of(JavaSolutionParser parser) {
+        Builder builder = new Builder();
+        PropertyStore properties = parser.getNodeInfos();
+        List<NodeRecord> nodes = new ArrayList<>();
+        for (INodeInfo node : parser.getNodesSet()) {
+            nodes.add(NodeRecord.of(node, properties.getProperties(node)));
+        }
+        builder.writeNodes(nodes);
+        List<RelationshipRecord> relationships = new ArrayList<>();
+        for (GraphRelationship relationship : parser.getRelationships()) {
+            relationships.add(RelationshipRecord.of(relationship, null));
+        }
+        builder.writeRelationships(relationships);
+        return builder.build();
+    }
+
+    // Index of a snapshot file.
+    public static GraphIndex of(GraphSnapshot snapshot) {
+        Builder builder = new Builder();
+        snapshot.replay(builder, 10_000);
+        return builder.build();
+    }
+
+    public int nodeCount() {
+        return ids.length;
+    }
+
+    public int relationshipCount() {
+        return relationshipCount;
+    }
+
+    public Set<String> labels() {
+        return outgoing.keySet();
+    }
+
+    public long nodeId(int node) {
+        return ids[node];
+    }
+
+    public String nodeType(int node) {
+        return nodeTypes[node];
+    }
+
+    // Qualified signature, type name or text of the node, or null.
+    public String name(int node) {
+        return names[node];
+    }
+
+    // Index of the node with the given id, or -1.
+    public int node(long id) {
+        return nodeIndex.get(id, -1);
+    }
+
+    // Index of the node with the given type and id, or -1.
+    public int node(String nodeType, long id) {
+        int node = node(id);
+        return node >= 0 && nodeTypes[node].equals(nodeType) ? node : -1;
+    }
+
+    // Nodes whose name is exactly the given one, e.g. "org.example.Main.main(java.lang.String[])".
+    public int[] findByName(String name) {
+        return filter(node -> name.equals(names[node]));
+    }
+
+    public int[] findByType(String nodeType) {
+        return filter(node -> nodeTypes[node].equals(nodeType));
+    }
+
+    // Direct neighbors over relationships with the label, or over all labels if it is null; sorted and
+    // without duplicates.
+    public int[] neighbors(int node, String label, Direction direction) {
+        if (label != null && direction != Direction.BOTH) {
+            Adjacency adjacency = adjacency(label, direction);
+            return adjacency == null ? new int[0]
+                    : Arrays.copyOfRange(adjacency.targets(), adjacency.offsets()[node], adjacency.offsets()[node + 1]);
+        }
+        BitSet found = new BitSet();
+        forEachNeighbor(node, label, direction, found::set);
+        return found.stream().toArray();
+    }
+
+    // Number of relationships with the label (or any label, if null) in the direction.
+    public int degree(int node, String label, Direction direction) {
+        int[] degree = {0};
+        forEachNeighbor(node, label, direction, neighbor -> degree[0]++);
+        return degree[0];
+    }
+
+    // Whether target can be reached from source by following relationships with the label (or any label).
+    // A node reaches itself.
+    public boolean isReachable(int source, int target, String label, Direction direction) {
+        if (source == target) {
+            return true;
+        }
+        BitSet visited = new BitSet(ids.length);
+        int[] queue = new int[16];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+        visited.set(source);
+        Adjacency[] lanes = lanes(label, direction);
+        while (head < tail) {
+            int node = queue[head++];
+            for (Adjacency adjacency : lanes) {
+                for (int i = adjacency.offsets()[node]; i < adjacency.offsets()[node + 1]; i++) {
+                    int neighbor = adjacency.targets()[i];
+                    if (neighbor == target) {
+                        return true;
+                    }
+                    if (!visited.get(neighbor)) {
+                        visited.set(neighbor);
+                        if (tail == queue.length) {
+                            queue = Arrays.copyOf(queue, queue.length * 2);
+                        }
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Nodes reachable from start in at most maxDepth steps (any number if maxDepth < 0), in breadth-first
+    // order and without start itself, visiting at most limit nodes (all if limit < 0).
+    public int[] traverse(int start, String label, Direction direction, int maxDepth, int limit) {
+        Adjacency[] lanes = lanes(label, direction);
+        BitSet visited = new BitSet(ids.length);
+        visited.set(start);
+        int[] found = new int[16];
+        int count = 0;
+        int levelStart = 0;
+        int depth = 0;
+        // found[] holds the result; the nodes found on one level are the frontier of the next
+        int[] frontier = {start};
+        while (frontier.length > 0 && (maxDepth < 0 || depth < maxDepth)) {
+            for (int node : frontier) {
+                for (Adjacency adjacency : lanes) {
+                    for (int i = adjacency.offsets()[node]; i < adjacency.offsets()[node + 1]; i++) {
+                        int neighbor = adjacency.targets()[i];
+                        if (visited.get(neighbor)) {
+                            continue;
+                        }
+                        visited.set(neighbor);
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, found.length * 2);
+                        }
+                        found[count++] = neighbor;
+                        if (count == limit) {
+                            return Arrays.copyOf(found, count);
+                        }
+                    }
+                }
+            }
+            frontier = Arrays.copyOfRange(found, levelStart, count);
+            levelStart = count;
+            depth++;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    @Override
+    public String toString() {
+        return ids.length + " nodes, " + relationshipCount + " relationships, labels " + outgoing.keySet();
+    }
+
+    private void forEachNeighbor(int node, String label, Direction direction, IntConsumer action) {
+        for (Adjacency adjacency : lanes(label, direction)) {
+            for (int i = adjacency.offsets()[node]; i < adjacency.offsets()[node + 1]; i++) {
+                action.accept(adjacency.targets()[i]);
+            }
+        }
+    }
+
+    // Adjacency arrays to follow for a label (all labels if null) and direction.
+    private Adjacency[] lanes(String label, Direction direction) {
+        List<Adjacency> lanes = new ArrayList<>();
+        for (String name : label == null ? outgoing.keySet() : Set.of(label)) {
+            if (direction != Direction.INCOMING && outgoing.containsKey(name)) {
+                lanes.add(outgoing.get(name));
+            }
+            if (direction != Direction.OUTGOING && incoming.containsKey(name)) {
+                lanes.add(incoming.get(name));
+            }
+        }
+        return lanes.toArray(new Adjacency[0]);
+    }
+
+    private Adjacency adjacency(String label, Direction direction) {
+        return direction == Direction.OUTGOING ? outgoing.get(label) : incoming.get(label);
+    }
+
+    private int[] filter(IntPredicate predicate) {
+        int[] matches = new int[4];
+        int count = 0;
+        for (int node = 0; node < ids.length; node++) {
+            if (predicate.test(node)) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, count * 2);
+                }
+                matches[count++] = node;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    // Collects a graph as an upserting sink, like GraphSnapshotWriter: nodes are identified by id, later
+    // writes of a node may add its name, and relationships whose endpoints were never written are dropped
+    // when the index is built. Not thread-safe; close() does nothing, so the builder can be a try-with-
+    // resources sink and be built afterwards.
+    public static class Builder implements IGraphSink {
+
+        // Properties a node's name is taken from, in order of preference; "N/A" does not count.
+        public static final List<String> NAME_PROPERTIES = List.of("qualifiedSignature", "typeName", "nodeText");
+
+        private final LongIntHashMap nodeIndex = new LongIntHashMap(1024);
+        private long[] ids = new long[1024];
+        private final List<String> nodeTypes = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final BitSet deleted = new BitSet();
+        // Edges by label, as pairs of source and target ids
+        private final Map<String, long[]> edges = new TreeMap<>();
+        private final Map<String, Integer> edgeCounts = new HashMap<>();
+
+        @Override
+        public void writeNodes(List<NodeRecord> nodes) {
+            for (NodeRecord record : nodes) {
+                int node = nodeIndex.get(record.id(), -1);
+                if (node < 0 || deleted.get(node)) {
+                    node = nodeTypes.size();
+                    if (node == ids.length) {
+                        ids = Arrays.copyOf(ids, node * 2);
+                    }
+                    ids[node] = record.id();
+                    nodeTypes.add(record.nodeType());
+                    names.add(null);
+                    nodeIndex.put(record.id(), node);
+                }
+                if (names.get(node) == null) {
+                    names.set(node, nameOf(record.data()));
+                }
+            }
+        }
+
+        @Override
+        public void writeRelationships(List<RelationshipRecord> relationships) {
+            for (RelationshipRecord relationship : relationships) {
+                long[] pairs = edges.computeIfAbsent(relationship.label(), label -> new long[64]);
+                int count = edgeCounts.getOrDefault(relationship.label(), 0);
+                if (2 * count + 2 > pairs.length) {
+                    pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                    edges.put(relationship.label(), pairs);
+                }
+                pairs[2 * count] = relationship.fromId();
+                pairs[2 * count + 1] = relationship.toId();
+                edgeCounts.put(relationship.label(), count + 1);
+            }
+        }
+
+        // Deleted nodes and their relationships are left out of the index; a node written again afterwards
+        // is a new node without the old relationships.
+        @Override
+        public void deleteNodes(String nodeType, long[] ids) {
+            LongIntHashMap removed = new LongIntHashMap(ids.length);
+            for (long id : ids) {
+                int node = nodeIndex.get(id, -1);
+                if (node >= 0 && !deleted.get(node) && nodeTypes.get(node).equals(nodeType)) {
+                    deleted.set(node);
+                    removed.put(id, node);
+                }
+            }
+            if (removed.size() == 0) {
+                return;
+            }
+            for (Map.Entry<String, long[]> entry : edges.entrySet()) {
+                long[] pairs = entry.getValue();
+                int count = edgeCounts.get(entry.getKey());
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    if (!removed.containsKey(pairs[2 * i]) && !removed.containsKey(pairs[2 * i + 1])) {
+                        pairs[2 * kept] = pairs[2 * i];
+                        pairs[2 * kept + 1] = pairs[2 * i + 1];
+                        kept++;
+                    }
+                }
+                edgeCounts.put(entry.getKey(), kept);
+            }
+        }
+
+        @Override
+        public void deleteRelationships(List<RelationshipRecord> relationships) {
+            Map<String, Map<Long, Set<Long>>> removed = new HashMap<>();
+            for (RelationshipRecord relationship : relationships) {
+                removed.computeIfAbsent(relationship.label(), label -> new HashMap<>())
+                        .computeIfAbsent(relationship.fromId(), from -> new HashSet<>()).add(relationship.toId());
+            }
+            removed.forEach((label, targets) -> {
+                long[] pairs = edges.get(label);
+                if (pairs == null) {
+                    return;
+                }
+                int count = edgeCounts.get(label);
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    if (!targets.getOrDefault(pairs[2 * i], Set.of()).contains(pairs[2 * i + 1])) {
+                        pairs[2 * kept] = pairs[2 * i];
+                        pairs[2 * kept + 1] = pairs[2 * i + 1];
+                        kept++;
+                    }
+                }
+                edgeCounts.put(label, kept);
+            });
+        }
+
+        @Override
+        public void close() {
+        }
+
+        public GraphIndex build() {
+            // Renumber the live nodes densely, in the order they were first written
+            int[] renumbered = new int[nodeTypes.size()];
+            int live = 0;
+            for (int node = 0; node < nodeTypes.size(); node++) {
+                renumbered[node] = deleted.get(node) || nodeIndex.get(ids[node], -1) != node ? -1 : live++;
+            }
+            long[] liveIds = new long[live];
+            String[] liveTypes = new String[live];
+            String[] liveNames = new String[live];
+            for (int node = 0; node < nodeTypes.size(); node++) {
+                if (renumbered[node] >= 0) {
+                    liveIds[renumbered[node]] = ids[node];
+                    liveTypes[renumbered[node]] = nodeTypes.get(node);
+                    liveNames[renumbered[node]] = names.get(node);
+                }
+            }
+            Map<String, Adjacency> outgoing = new LinkedHashMap<>();
+            Map<String, Adjacency> incoming = new LinkedHashMap<>();
+            for (Map.Entry<String, long[]> entry : edges.entrySet()) {
+                long[] pairs = entry.getValue();
+                int count = edgeCounts.get(entry.getKey());
+                int[] sources = new int[count];
+                int[] targets = new int[count];
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    int from = nodeOf(pairs[2 * i], renumbered);
+                    int to = nodeOf(pairs[2 * i + 1], renumbered);
+                    if (from >= 0 && to >= 0) {
+                        sources[kept] = from;
+                        targets[kept] = to;
+                        kept++;
+                    }
+                }
+                outgoing.put(entry.getKey(), compress(live, sources, targets, kept));
+                incoming.put(entry.getKey(), compress(live, targets, sources, kept));
+            }
+            return new GraphIndex(liveIds, liveTypes, liveNames, outgoing, incoming);
+        }
+
+        private int nodeOf(long id, int[] renumbered) {
+            int node = nodeIndex.get(id, -1);
+            return node < 0 ? -1 : renumbered[node];
+        }
+
+        private static String nameOf(Map<String, Object> data) {
+            for (String key : NAME_PROPERTIES) {
+                Object value = data.get(key);
+                if (value != null && !"N/A".equals(value)) {
+                    return value.toString();
+                }
+            }
+            return null;
+        }
+
+        // Counting sort of the edges by source, then each row sorted and deduplicated in place.
+        private static Adjacency compress(int nodeCount, int[] sources, int[] targets, int edgeCount) {
+            int[] offsets = new int[nodeCount + 1];
+            for (int i = 0; i < edgeCount; i++) {
+                offsets[sources[i] + 1]++;
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                offsets[node + 1] += offsets[node];
+            }
+            int[] sorted = new int[edgeCount];
+            int[] next = Arrays.copyOf(offsets, nodeCount);
+            for (int i = 0; i < edgeCount; i++) {
+                sorted[next[sources[i]]++] = targets[i];
+            }
+            int write = 0;
+            int rowStart = 0;
+            for (int node = 0; node < nodeCount; node++) {
+                int rowEnd = offsets[node + 1];
+                Arrays.sort(sorted, rowStart, rowEnd);
+                offsets[node] = write;
+                for (int i = rowStart; i < rowEnd; i++) {
+                    if (i == rowStart || sorted[i] != sorted[i - 1]) {
+                        sorted[write++] = sorted[i];
+                    }
+                }
+                rowStart = rowEnd;
+            }
+            offsets[nodeCount] = write;
+            return new Adjacency(offsets, write == edgeCount ? sorted : Arrays.copyOf(sorted, write));
+        }
+    }
+}
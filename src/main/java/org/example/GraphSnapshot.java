@@ -0,0 +1,276 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Read-only view of a graph snapshot written by GraphSnapshotWriter. The file is memory-mapped and
+// records are decoded when they are read, so a snapshot costs little heap however large it is.
+//
+// File format, big-endian:
+//   header      magic, version, string/node/relationship/property counts, section offsets
+//   strings     (count + 1) end offsets, then the UTF-8 bytes; sorted, so string ids compare like the strings
+//   nodes       per node: id (long), type (string id), first property, property count; sorted by type and id
+//               then (node count + 1) indexes of each node's first outgoing relationship
+//   properties  columns: key string ids (int), values (long), value kinds (byte)
+//   relations   per relationship: from node, label, to node, first property, property count;
+//               sorted by from node, label and to node
+// A value is a string id, a boolean (0/1), an int or long, or the bits of a double, depending on its kind.
+public class GraphSnapshot {
+
+    static final int MAGIC = 0x4A534753; // "JSGS"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 56;
+    static final int NODE_SIZE = 20;
+    static final int PROPERTY_SIZE = 13;
+    static final int RELATIONSHIP_SIZE = 20;
+
+    static final byte KIND_NULL = 0;
+    static final byte KIND_STRING = 1;
+    static final byte KIND_BOOLEAN = 2;
+    static final byte KIND_INT = 3;
+    static final byte KIND_LONG = 4;
+    static final byte KIND_DOUBLE = 5;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int stringCount;
+    private final int nodeCount;
+    private final int relationshipCount;
+    private final int propertyCount;
+    private final int stringsOffset;
+    private final int nodesOffset;
+    private final int propertiesOffset;
+    private final int relationshipsOffset;
+    // Decoded strings, filled as they are read
+    private final String[] strings;
+
+    private GraphSnapshot(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException(path + " is not a graph snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException(path + " has snapshot version " + buffer.getInt(4) + ", expected " + VERSION);
+        }
+        stringCount = buffer.getInt(8);
+        nodeCount = buffer.getInt(12);
+        relationshipCount = buffer.getInt(16);
+        propertyCount = buffer.getInt(20);
+        stringsOffset = (int) buffer.getLong(24);
+        nodesOffset = (int) buffer.getLong(32);
+        propertiesOffset = (int) buffer.getLong(40);
+        relationshipsOffset = (int) buffer.getLong(48);
+        strings = new String[stringCount];
+    }
+
+    public static GraphSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new GraphSnapshot(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int relationshipCount() {
+        return relationshipCount;
+    }
+
+    public String string(int id) {
+        String string = strings[id];
+        if (string == null) {
+            int dataOffset = stringsOffset + 4 * (stringCount + 1);
+            int begin = buffer.getInt(stringsOffset + 4 * id);
+            byte[] bytes = new byte[buffer.getInt(stringsOffset + 4 * (id + 1)) - begin];
+            buffer.get(dataOffset + begin, bytes);
+            string = new String(bytes, StandardCharsets.UTF_8);
+            strings[id] = string;
+        }
+        return string;
+    }
+
+    public long nodeId(int node) {
+        return buffer.getLong(nodesOffset + NODE_SIZE * node);
+    }
+
+    public String nodeType(int node) {
+        return string(buffer.getInt(nodesOffset + NODE_SIZE * node + 8));
+    }
+
+    public Map<String, Object> nodeProperties(int node) {
+        int position = nodesOffset + NODE_SIZE * node;
+        return properties(buffer.getInt(position + 12), buffer.getInt(position + 16));
+    }
+
+    public NodeRecord node(int node) {
+        return new NodeRecord(nodeId(node), nodeType(node), nodeProperties(node));
+    }
+
+    // Index of the node with the given type and id, or -1.
+    public int findNode(String nodeType, long id) {
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int order = compareNode(middle, nodeType, id);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    // Order of the node relative to a node type and id, as in the node table.
+    int compareNode(int node, String nodeType, long id) {
+        int order = nodeType(node).compareTo(nodeType);
+        return order != 0 ? order : Long.compare(nodeId(node), id);
+    }
+
+    // Outgoing relationships of a node are the indexes from firstRelationship(node) to firstRelationship(node + 1).
+    public int firstRelationship(int node) {
+        return buffer.getInt(nodesOffset + NODE_SIZE * nodeCount + 4 * node);
+    }
+
+    public int relationshipFrom(int relationship) {
+        return buffer.getInt(relationshipsOffset + RELATIONSHIP_SIZE * relationship);
+    }
+
+    public String relationshipLabel(int relationship) {
+        return string(buffer.getInt(relationshipsOffset + RELATIONSHIP_SIZE * relationship + 4));
+    }
+
+    public int relationshipTo(int relationship) {
+        return buffer.getInt(relationshipsOffset + RELATIONSHIP_SIZE * relationship + 8);
+    }
+
+    public Map<String, Object> relationshipProperties(int relationship) {
+        int position = relationshipsOffset + RELATIONSHIP_SIZE * relationship;
+        return properties(buffer.getInt(position + 12), buffer.getInt(position + 16));
+    }
+
+    public RelationshipRecord relationship(int relationship) {
+        int from = relationshipFrom(relationship);
+        int to = relationshipTo(relationship);
+        return new RelationshipRecord(nodeId(from), nodeType(from), nodeId(to), nodeType(to),
+                relationshipLabel(relationship), relationshipProperties(relationship));
+    }
+
+    // Writes the whole graph to the sink in batches, nodes first.
+    public void replay(IGraphSink sink, int batchSize) {
+        List<NodeRecord> nodes = new ArrayList<>(Math.min(batchSize, nodeCount));
+        for (int node = 0; node < nodeCount; node++) {
+            nodes.add(node(node));
+            if (nodes.size() == batchSize) {
+                sink.writeNodes(nodes);
+                nodes = new ArrayList<>(batchSize);
+            }
+        }
+        if (!nodes.isEmpty()) {
+            sink.writeNodes(nodes);
+        }
+        List<RelationshipRecord> relationships = new ArrayList<>(Math.min(batchSize, relationshipCount));
+        for (int relationship = 0; relationship < relationshipCount; relationship++) {
+            relationships.add(relationship(relationship));
+            if (relationships.size() == batchSize) {
+                sink.writeRelationships(relationships);
+                relationships = new ArrayList<>(batchSize);
+            }
+        }
+        if (!relationships.isEmpty()) {
+            sink.writeRelationships(relationships);
+        }
+    }
+
+    private Map<String, Object> properties(int first, int count) {
+        Map<String, Object> properties = new LinkedHashMap<>(Math.max(4, count * 2));
+        int keys = propertiesOffset;
+        int values = propertiesOffset + 4 * propertyCount;
+        int kinds = propertiesOffset + 12 * propertyCount;
+        for (int property = first; property < first + count; property++) {
+            long bits = buffer.getLong(values + 8 * property);
+            Object value = switch (buffer.get(kinds + property)) {
+                case KIND_NULL -> null;
+                case KIND_STRING -> string((int) bits);
+                case KIND_BOOLEAN -> bits != 0;
+                case KIND_INT -> (int) bits;
+                case KIND_LONG -> bits;
+                case KIND_DOUBLE -> Double.longBitsToDouble(bits);
+                default -> throw new IllegalStateException("Unknown value kind in " + path);
+            };
+            properties.put(string(buffer.getInt(keys + 4 * property)), value);
+        }
+        return properties;
+    }
+
+    // Raw records, for merging snapshots without decoding their properties.
+    int stringCount() {
+        return stringCount;
+    }
+
+    int nodeTypeId(int node) {
+        return buffer.getInt(nodesOffset + NODE_SIZE * node + 8);
+    }
+
+    int nodeFirstProperty(int node) {
+        return buffer.getInt(nodesOffset + NODE_SIZE * node + 12);
+    }
+
+    int nodePropertyCount(int node) {
+        return buffer.getInt(nodesOffset + NODE_SIZE * node + 16);
+    }
+
+    int relationshipLabelId(int relationship) {
+        return buffer.getInt(relationshipsOffset + RELATIONSHIP_SIZE * relationship + 4);
+    }
+
+    int relationshipFirstProperty(int relationship) {
+        return buffer.getInt(relationshipsOffset + RELATIONSHIP_SIZE * relationship + 12);
+    }
+
+    int relationshipPropertyCount(int relationship) {
+        return buffer.getInt(relationshipsOffset + RELATIONSHIP_SIZE * relationship + 16);
+    }
+
+    int propertyKey(int property) {
+        return buffer.getInt(propertiesOffset + 4 * property);
+    }
+
+    long propertyBits(int property) {
+        return buffer.getLong(propertiesOffset + 4 * propertyCount + 8 * property);
+    }
+
+    byte propertyKind(int property) {
+        return buffer.get(propertiesOffset + 12 * propertyCount + property);
+    }
+
+    // Kind a property value is stored as; values of other types are stored as their string.
+    static byte kindOf(Object value) {
+        if (value == null) {
+            return KIND_NULL;
+        } else if (value instanceof Boolean) {
+            return KIND_BOOLEAN;
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return KIND_INT;
+        } else if (value instanceof Long) {
+            return KIND_LONG;
+        } else if (value instanceof Double || value instanceof Float) {
+            return KIND_DOUBLE;
+        }
+        return KIND_STRING;
+    }
+}
@@ -0,0 +1,617 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Collects the exported graph and writes it as a GraphSnapshot file on close(). Writes are upserts as
+// in Neo4j: a node is identified by type and id, a relationship by its endpoints and label, and later
+// writes add to or replace earlier properties. Relationships whose endpoints have not been written are
+// dropped, as the Cypher sink's MATCH drops them. Node text references are read when the data is written.
+//
+// The heap only holds what was written since the last spill: once it holds spillThreshold nodes and
+// relationships, they are written as a sorted run (a snapshot file of their own) and dropped, so a
+// streaming or windowed scan stays bounded with --snapshot. On close() the runs are merged into the
+// snapshot in one pass over their sorted tables, copies of the same node or relationship combined in
+// the order they were written. Only the ids of spilled nodes stay, for the endpoint check.
+//
+// Not thread-safe.
+public class GraphSnapshotWriter implements IGraphSink {
+
+    private record NodeKey(String nodeType, long id) {}
+
+    private record RelationshipKey(NodeKey from, String label, NodeKey to) {}
+
+    // Property value as stored: kind and bits
+    private record Value(byte kind, long bits) {}
+
+    static final int DEFAULT_SPILL_THRESHOLD = 250_000;
+
+    private final Path path;
+    private final int spillThreshold;
+    private final Map<NodeKey, Map<String, Object>> nodes = new HashMap<>();
+    private final Map<RelationshipKey, Map<String, Object>> relationships = new HashMap<>();
+    private long droppedRelationships = 0;
+    private final List<Path> runs = new ArrayList<>();
+    // Nodes in runs by type: 1 if present, 0 if deleted since
+    private final Map<String, LongIntHashMap> spilledNodes = new HashMap<>();
+    // Deleted nodes, by the number of runs written before the deletion: copies in those runs are dropped
+    private final Map<NodeKey, Integer> deletedBefore = new HashMap<>();
+    // Likewise for deleted relationships
+    private final Map<RelationshipKey, Integer> deletedRelationshipsBefore = new HashMap<>();
+
+    public GraphSnapshotWriter(Path path) {
+        this(path, DEFAULT_SPILL_THRESHOLD);
+    }
+
+    public GraphSnapshotWriter(Path path, int spillThreshold) {
+        this.path = path;
+        this.spillThreshold = spillThreshold;
+    }
+
+    @Override
+    public void writeNodes(List<NodeRecord> records) {
+        for (NodeRecord node : records) {
+            nodes.computeIfAbsent(new NodeKey(node.nodeType(), node.id()), k -> new HashMap<>()).putAll(node.data());
+        }
+        spillIfFull();
+    }
+
+    @Override
+    public void writeRelationships(List<RelationshipRecord> records) {
+        for (RelationshipRecord relationship : records) {
+            NodeKey from = new NodeKey(relationship.fromType(), relationship.fromId());
+            NodeKey to = new NodeKey(relationship.toType(), relationship.toId());
+            if (!isWritten(from) || !isWritten(to)) {
+                droppedRelationships++;
+                continue;
+            }
+            relationships.computeIfAbsent(new RelationshipKey(from, relationship.label(), to), k -> new HashMap<>())
+                    .putAll(relationship.data());
+        }
+        spillIfFull();
+    }
+
+    @Override
+    public void deleteNodes(String nodeType, long[] ids) {
+        Set<NodeKey> deleted = new HashSet<>();
+        for (long id : ids) {
+            NodeKey key = new NodeKey(nodeType, id);
+            if (nodes.remove(key) != null) {
+                deleted.add(key);
+            }
+            LongIntHashMap spilled = spilledNodes.get(nodeType);
+            if (spilled != null && spilled.get(id, 0) == 1) {
+                spilled.put(id, 0);
+                deletedBefore.put(key, runs.size());
+                deleted.add(key);
+            }
+        }
+        if (!deleted.isEmpty()) {
+            relationships.keySet().removeIf(key -> deleted.contains(key.from()) || deleted.contains(key.to()));
+        }
+    }
+
+    @Override
+    public void deleteRelationships(List<RelationshipRecord> records) {
+        for (RelationshipRecord relationship : records) {
+            RelationshipKey key = new RelationshipKey(new NodeKey(relationship.fromType(), relationship.fromId()),
+                    relationship.label(), new NodeKey(relationship.toType(), relationship.toId()));
+            relationships.remove(key);
+            if (!runs.isEmpty()) {
+                deletedRelationshipsBefore.put(key, runs.size());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        long[] counts;
+        try {
+            if (runs.isEmpty()) {
+                write(path);
+                counts = new long[]{nodes.size(), relationships.size()};
+            } else {
+                if (!nodes.isEmpty()) {
+                    spill();
+                }
+                counts = mergeRuns();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + path, e);
+        } finally {
+            for (Path run : runs) {
+                try {
+                    Files.deleteIfExists(run);
+                } catch (IOException e) {
+                    System.err.println("Cannot delete snapshot run " + run + ": " + e.getMessage());
+                }
+            }
+        }
+        System.out.println("Wrote snapshot of " + counts[0] + " nodes and " + counts[1] + " relationships to "
+                + path + (runs.isEmpty() ? "" : " from " + runs.size() + " runs") + (droppedRelationships > 0
+                ? " (dropped " + droppedRelationships + " relationships without both endpoints)" : ""));
+    }
+
+    private boolean isWritten(NodeKey key) {
+        if (nodes.containsKey(key)) {
+            return true;
+        }
+        LongIntHashMap spilled = spilledNodes.get(key.nodeType());
+        return spilled != null && spilled.get(key.id(), 0) == 1;
+    }
+
+    private void spillIfFull() {
+        if (nodes.size() + relationships.size() >= spillThreshold) {
+            spill();
+        }
+    }
+
+    // Writes what is on the heap as the next run and drops it. Endpoints that went to earlier runs get an
+    // empty copy in this one, so that its relationships can refer to them; the merge combines the copies.
+    private void spill() {
+        relationships.keySet().forEach(key -> {
+            nodes.putIfAbsent(key.from(), new HashMap<>());
+            nodes.putIfAbsent(key.to(), new HashMap<>());
+        });
+        Path run = path.resolveSibling(path.getFileName() + ".run" + runs.size());
+        try {
+            write(run);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot run " + run, e);
+        }
+        runs.add(run);
+        nodes.keySet().forEach(key -> spilledNodes.computeIfAbsent(key.nodeType(), t -> new LongIntHashMap()).put(key.id(), 1));
+        nodes.clear();
+        relationships.clear();
+    }
+
+    // Lays the graph out in the order GraphSnapshot expects and writes it through a temporary file.
+    private void write(Path path) throws IOException {
+        // Strings are sorted, so comparing string ids compares the strings, also across snapshots
+        TreeSet<String> stringSet = new TreeSet<>();
+        nodes.forEach((key, data) -> {
+            stringSet.add(key.nodeType());
+            addStrings(stringSet, data);
+        });
+        relationships.forEach((key, data) -> {
+            stringSet.add(key.label());
+            addStrings(stringSet, data);
+        });
+        String[] strings = stringSet.toArray(new String[0]);
+        Map<String, Integer> stringIds = new HashMap<>(strings.length * 2);
+        byte[][] encoded = new byte[strings.length][];
+        long stringBytes = 0;
+        for (int i = 0; i < strings.length; i++) {
+            stringIds.put(strings[i], i);
+            encoded[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+            stringBytes += encoded[i].length;
+        }
+
+        List<NodeKey> nodeOrder = new ArrayList<>(nodes.keySet());
+        nodeOrder.sort(Comparator.comparing(NodeKey::nodeType).thenComparingLong(NodeKey::id));
+        Map<NodeKey, Integer> nodeIndex = new HashMap<>(nodeOrder.size() * 2);
+        for (int i = 0; i < nodeOrder.size(); i++) {
+            nodeIndex.put(nodeOrder.get(i), i);
+        }
+        List<RelationshipKey> relationshipOrder = new ArrayList<>(relationships.keySet());
+        relationshipOrder.sort(Comparator.<RelationshipKey>comparingInt(key -> nodeIndex.get(key.from()))
+                .thenComparing(RelationshipKey::label)
+                .thenComparingInt(key -> nodeIndex.get(key.to())));
+
+        int propertyCount = 0;
+        for (Map<String, Object> data : nodes.values()) {
+            propertyCount += data.size();
+        }
+        for (Map<String, Object> data : relationships.values()) {
+            propertyCount += data.size();
+        }
+
+        long stringsOffset = GraphSnapshot.HEADER_SIZE;
+        long nodesOffset = stringsOffset + 4L * (strings.length + 1) + stringBytes;
+        long propertiesOffset = nodesOffset + (long) GraphSnapshot.NODE_SIZE * nodeOrder.size() + 4L * (nodeOrder.size() + 1);
+        long relationshipsOffset = propertiesOffset + (long) GraphSnapshot.PROPERTY_SIZE * propertyCount;
+        long size = relationshipsOffset + (long) GraphSnapshot.RELATIONSHIP_SIZE * relationshipOrder.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Snapshot of " + size + " bytes exceeds the 2 GB format limit");
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(GraphSnapshot.MAGIC).putInt(GraphSnapshot.VERSION)
+                    .putInt(strings.length).putInt(nodeOrder.size()).putInt(relationshipOrder.size()).putInt(propertyCount)
+                    .putLong(stringsOffset).putLong(nodesOffset).putLong(propertiesOffset).putLong(relationshipsOffset);
+
+            // String table: end offsets into the UTF-8 data that follows
+            out.position((int) stringsOffset);
+            int end = 0;
+            out.putInt(0);
+            for (byte[] bytes : encoded) {
+                end += bytes.length;
+                out.putInt(end);
+            }
+            for (byte[] bytes : encoded) {
+                out.put(bytes);
+            }
+
+            // Property columns: all keys, then all values, then all value kinds
+            long[] columns = {propertiesOffset, propertiesOffset + 4L * propertyCount, propertiesOffset + 12L * propertyCount};
+            int property = 0;
+            out.position((int) nodesOffset);
+            for (NodeKey key : nodeOrder) {
+                Map<String, Object> data = nodes.get(key);
+                out.putLong(key.id()).putInt(stringIds.get(key.nodeType())).putInt(property).putInt(data.size());
+                property = writeProperties(out, columns, property, data, stringIds);
+            }
+            // First outgoing relationship of every node, plus the end of the last node's range
+            int relationship = 0;
+            for (int node = 0; node <= nodeOrder.size(); node++) {
+                while (relationship < relationshipOrder.size() && nodeIndex.get(relationshipOrder.get(relationship).from()) < node) {
+                    relationship++;
+                }
+                out.putInt(relationship);
+            }
+
+            out.position((int) relationshipsOffset);
+            for (RelationshipKey key : relationshipOrder) {
+                Map<String, Object> data = relationships.get(key);
+                out.putInt(nodeIndex.get(key.from())).putInt(stringIds.get(key.label())).putInt(nodeIndex.get(key.to()))
+                        .putInt(property).putInt(data.size());
+                property = writeProperties(out, columns, property, data, stringIds);
+            }
+            out.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void addStrings(Set<String> strings, Map<String, Object> data) {
+        data.forEach((key, value) -> {
+            strings.add(key);
+            if (GraphSnapshot.kindOf(value) == GraphSnapshot.KIND_STRING) {
+                strings.add(value.toString());
+            }
+        });
+    }
+
+    // Writes the properties sorted by key at the given property index; returns the next free index.
+    private static int writeProperties(MappedByteBuffer out, long[] columns, int first,
+                                       Map<String, Object> data, Map<String, Integer> stringIds) {
+        List<String> keys = new ArrayList<>(data.keySet());
+        Collections.sort(keys);
+        int property = first;
+        for (String key : keys) {
+            Object value = data.get(key);
+            byte kind = GraphSnapshot.kindOf(value);
+            long bits = switch (kind) {
+                case GraphSnapshot.KIND_NULL -> 0;
+                case GraphSnapshot.KIND_BOOLEAN -> (Boolean) value ? 1 : 0;
+                case GraphSnapshot.KIND_INT, GraphSnapshot.KIND_LONG -> ((Number) value).longValue();
+                case GraphSnapshot.KIND_DOUBLE -> Double.doubleToRawLongBits(((Number) value).doubleValue());
+                default -> stringIds.get(value.toString());
+            };
+            out.putInt((int) (columns[0] + 4L * property), stringIds.get(key));
+            out.putLong((int) (columns[1] + 8L * property), bits);
+            out.put((int) (columns[2] + property), kind);
+            property++;
+        }
+        return property;
+    }
+
+    private long[] mergeRuns() throws IOException {
+        List<GraphSnapshot> snapshots = new ArrayList<>(runs.size());
+        for (Path run : runs) {
+            snapshots.add(GraphSnapshot.open(run));
+        }
+        try (RunMerge merge = new RunMerge(snapshots)) {
+            merge.mergeStrings();
+            merge.mergeNodes();
+            merge.mergeRelationships();
+            merge.writeTo(path);
+            return new long[]{merge.nodeCount, merge.relationshipCount};
+        }
+    }
+
+    // Merges the sorted tables of the runs side by side, as SnapshotMerge does, into the layout write()
+    // produces. The sections go to temporary files as they are merged and are concatenated behind the
+    // header at the end; the heap holds the renumbering of strings and nodes per run.
+    private final class RunMerge implements Closeable {
+        private final List<GraphSnapshot> snapshots;
+        // Per run: merged id of each string, merged index of each node (-1 if dropped)
+        private final int[][] stringIds;
+        private final int[][] nodeIndexes;
+        private final Path[] sections = new Path[7];
+        private final DataOutputStream offsets, strings, nodes, relationships, keys, values, kinds;
+        private final TreeMap<Integer, Value> properties = new TreeMap<>();
+        private int[] relationshipsPerNode;
+        private int stringCount = 0;
+        private long stringBytes = 0;
+        private int nodeCount = 0;
+        private int relationshipCount = 0;
+        private int propertyCount = 0;
+
+        RunMerge(List<GraphSnapshot> snapshots) throws IOException {
+            this.snapshots = snapshots;
+            stringIds = new int[snapshots.size()][];
+            nodeIndexes = new int[snapshots.size()][];
+            for (int run = 0; run < snapshots.size(); run++) {
+                stringIds[run] = new int[snapshots.get(run).stringCount()];
+                nodeIndexes[run] = new int[snapshots.get(run).nodeCount()];
+            }
+            offsets = section(0, "offsets");
+            strings = section(1, "strings");
+            nodes = section(2, "nodes");
+            relationships = section(3, "relationships");
+            keys = section(4, "keys");
+            values = section(5, "values");
+            kinds = section(6, "kinds");
+        }
+
+        private DataOutputStream section(int index, String name) throws IOException {
+            sections[index] = path.resolveSibling(path.getFileName() + ".merge." + name);
+            return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(sections[index])));
+        }
+
+        void mergeStrings() throws IOException {
+            int[] positions = new int[snapshots.size()];
+            String[] heads = new String[snapshots.size()];
+            for (int run = 0; run < snapshots.size(); run++) {
+                heads[run] = snapshots.get(run).stringCount() > 0 ? snapshots.get(run).string(0) : null;
+            }
+            offsets.writeInt(0);
+            while (true) {
+                String smallest = null;
+                for (String head : heads) {
+                    if (head != null && (smallest == null || head.compareTo(smallest) < 0)) {
+                        smallest = head;
+                    }
+                }
+                if (smallest == null) {
+                    break;
+                }
+                for (int run = 0; run < snapshots.size(); run++) {
+                    if (smallest.equals(heads[run])) {
+                        GraphSnapshot snapshot = snapshots.get(run);
+                        stringIds[run][positions[run]++] = stringCount;
+                        heads[run] = positions[run] < snapshot.stringCount() ? snapshot.string(positions[run]) : null;
+                    }
+                }
+                byte[] bytes = smallest.getBytes(StandardCharsets.UTF_8);
+                strings.write(bytes);
+                stringBytes += bytes.length;
+                offsets.writeInt((int) stringBytes);
+                stringCount++;
+            }
+        }
+
+        void mergeNodes() throws IOException {
+            int[] positions = new int[snapshots.size()];
+            while (true) {
+                int first = -1;
+                for (int run = 0; run < snapshots.size(); run++) {
+                    if (positions[run] < snapshots.get(run).nodeCount()
+                            && (first < 0 || compareNodes(run, positions[run], first, positions[first]) < 0)) {
+                        first = run;
+                    }
+                }
+                if (first < 0) {
+                    break;
+                }
+                GraphSnapshot snapshot = snapshots.get(first);
+                int nodeType = stringIds[first][snapshot.nodeTypeId(positions[first])];
+                long id = snapshot.nodeId(positions[first]);
+                boolean present = false;
+                properties.clear();
+                for (int run = first; run < snapshots.size(); run++) {
+                    GraphSnapshot other = snapshots.get(run);
+                    int node = positions[run];
+                    if (node < other.nodeCount() && stringIds[run][other.nodeTypeId(node)] == nodeType && other.nodeId(node) == id) {
+                        positions[run]++;
+                        if (isDropped(run, node)) {
+                            nodeIndexes[run][node] = -1;
+                        } else {
+                            nodeIndexes[run][node] = nodeCount;
+                            addProperties(run, other.nodeFirstProperty(node), other.nodePropertyCount(node));
+                            present = true;
+                        }
+                    }
+                }
+                if (present) {
+                    nodes.writeLong(id);
+                    nodes.writeInt(nodeType);
+                    nodes.writeInt(propertyCount);
+                    nodes.writeInt(properties.size());
+                    writeProperties();
+                    nodeCount++;
+                }
+            }
+        }
+
+        void mergeRelationships() throws IOException {
+            relationshipsPerNode = new int[nodeCount];
+            int[] positions = new int[snapshots.size()];
+            while (true) {
+                int first = -1;
+                for (int run = 0; run < snapshots.size(); run++) {
+                    GraphSnapshot snapshot = snapshots.get(run);
+                    // Relationships of dropped node copies are dropped with them
+                    while (positions[run] < snapshot.relationshipCount()
+                            && (nodeIndexes[run][snapshot.relationshipFrom(positions[run])] < 0
+                            || nodeIndexes[run][snapshot.relationshipTo(positions[run])] < 0)) {
+                        positions[run]++;
+                    }
+                    if (positions[run] < snapshot.relationshipCount()
+                            && (first < 0 || compareRelationships(run, positions[run], first, positions[first]) < 0)) {
+                        first = run;
+                    }
+                }
+                if (first < 0) {
+                    break;
+                }
+                GraphSnapshot snapshot = snapshots.get(first);
+                int relationship = positions[first];
+                int from = nodeIndexes[first][snapshot.relationshipFrom(relationship)];
+                int label = stringIds[first][snapshot.relationshipLabelId(relationship)];
+                int to = nodeIndexes[first][snapshot.relationshipTo(relationship)];
+                properties.clear();
+                boolean present = false;
+                for (int run = first; run < snapshots.size(); run++) {
+                    GraphSnapshot other = snapshots.get(run);
+                    int candidate = positions[run];
+                    if (candidate < other.relationshipCount() && (run == first || compareRelationships(run, candidate, first, relationship) == 0)) {
+                        positions[run]++;
+                        if (!isRelationshipDropped(run, candidate)) {
+                            addProperties(run, other.relationshipFirstProperty(candidate), other.relationshipPropertyCount(candidate));
+                            present = true;
+                        }
+                    }
+                }
+                if (!present) {
+                    continue;
+                }
+                relationships.writeInt(from);
+                relationships.writeInt(label);
+                relationships.writeInt(to);
+                relationships.writeInt(propertyCount);
+                relationships.writeInt(properties.size());
+                writeProperties();
+                relationshipsPerNode[from]++;
+                relationshipCount++;
+            }
+        }
+
+        void writeTo(Path path) throws IOException {
+            for (DataOutputStream section : List.of(offsets, strings, nodes, relationships, keys, values, kinds)) {
+                section.close();
+            }
+            long stringsOffset = GraphSnapshot.HEADER_SIZE;
+            long nodesOffset = stringsOffset + 4L * (stringCount + 1) + stringBytes;
+            long propertiesOffset = nodesOffset + (long) GraphSnapshot.NODE_SIZE * nodeCount + 4L * (nodeCount + 1);
+            long relationshipsOffset = propertiesOffset + (long) GraphSnapshot.PROPERTY_SIZE * propertyCount;
+            long size = relationshipsOffset + (long) GraphSnapshot.RELATIONSHIP_SIZE * relationshipCount;
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Snapshot of " + size + " bytes exceeds the 2 GB format limit");
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(GraphSnapshot.MAGIC);
+                out.writeInt(GraphSnapshot.VERSION);
+                out.writeInt(stringCount);
+                out.writeInt(nodeCount);
+                out.writeInt(relationshipCount);
+                out.writeInt(propertyCount);
+                out.writeLong(stringsOffset);
+                out.writeLong(nodesOffset);
+                out.writeLong(propertiesOffset);
+                out.writeLong(relationshipsOffset);
+                Files.copy(sections[0], out);
+                Files.copy(sections[1], out);
+                Files.copy(sections[2], out);
+                // First outgoing relationship of every node, plus the end of the last node's range
+                int relationship = 0;
+                for (int count : relationshipsPerNode) {
+                    out.writeInt(relationship);
+                    relationship += count;
+                }
+                out.writeInt(relationship);
+                Files.copy(sections[4], out);
+                Files.copy(sections[5], out);
+                Files.copy(sections[6], out);
+                Files.copy(sections[3], out);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // A copy is dropped if its node was deleted after the copy's run was written.
+        private boolean isDropped(int run, int node) {
+            if (deletedBefore.isEmpty()) {
+                return false;
+            }
+            GraphSnapshot snapshot = snapshots.get(run);
+            return deletedBefore.getOrDefault(new NodeKey(snapshot.nodeType(node), snapshot.nodeId(node)), 0) > run;
+        }
+
+        // Likewise for a relationship deleted after the copy's run was written.
+        private boolean isRelationshipDropped(int run, int relationship) {
+            if (deletedRelationshipsBefore.isEmpty()) {
+                return false;
+            }
+            GraphSnapshot snapshot = snapshots.get(run);
+            int from = snapshot.relationshipFrom(relationship);
+            int to = snapshot.relationshipTo(relationship);
+            RelationshipKey key = new RelationshipKey(new NodeKey(snapshot.nodeType(from), snapshot.nodeId(from)),
+                    snapshot.relationshipLabel(relationship), new NodeKey(snapshot.nodeType(to), snapshot.nodeId(to)));
+            return deletedRelationshipsBefore.getOrDefault(key, 0) > run;
+        }
+
+        // Adds a copy's properties in merged string ids; later runs replace values of earlier ones.
+        private void addProperties(int run, int first, int count) {
+            GraphSnapshot snapshot = snapshots.get(run);
+            for (int property = first; property < first + count; property++) {
+                byte kind = snapshot.propertyKind(property);
+                long bits = snapshot.propertyBits(property);
+                properties.put(stringIds[run][snapshot.propertyKey(property)],
+                        new Value(kind, kind == GraphSnapshot.KIND_STRING ? stringIds[run][(int) bits] : bits));
+            }
+        }
+
+        // Merged string ids sort as the strings do, so the properties come out sorted by key.
+        private void writeProperties() throws IOException {
+            for (Map.Entry<Integer, Value> property : properties.entrySet()) {
+                keys.writeInt(property.getKey());
+                values.writeLong(property.getValue().bits());
+                kinds.writeByte(property.getValue().kind());
+                propertyCount++;
+            }
+        }
+
+        private int compareNodes(int run, int node, int otherRun, int otherNode) {
+            GraphSnapshot snapshot = snapshots.get(run);
+            GraphSnapshot other = snapshots.get(otherRun);
+            int order = Integer.compare(stringIds[run][snapshot.nodeTypeId(node)], stringIds[otherRun][other.nodeTypeId(otherNode)]);
+            return order != 0 ? order : Long.compare(snapshot.nodeId(node), other.nodeId(otherNode));
+        }
+
+        // Node indexes grow with the node order, so merged indexes compare as the nodes do.
+        private int compareRelationships(int run, int relationship, int otherRun, int otherRelationship) {
+            GraphSnapshot snapshot = snapshots.get(run);
+            GraphSnapshot other = snapshots.get(otherRun);
+            int order = Integer.compare(nodeIndexes[run][snapshot.relationshipFrom(relationship)],
+                    nodeIndexes[otherRun][other.relationshipFrom(otherRelationship)]);
+            if (order == 0) {
+                order = Integer.compare(stringIds[run][snapshot.relationshipLabelId(relationship)],
+                        stringIds[otherRun][other.relationshipLabelId(otherRelationship)]);
+            }
+            if (order == 0) {
+                order = Integer.compare(nodeIndexes[run][snapshot.relationshipTo(relationship)],
+                        nodeIndexes[otherRun][other.relationshipTo(otherRelationship)]);
+            }
+            return order;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (DataOutputStream section : List.of(offsets, strings, nodes, relationships, keys, values, kinds)) {
+                section.close();
+            }
+            for (Path section : sections) {
+                Files.deleteIfExists(section);
+            }
+        }
+    }
+}
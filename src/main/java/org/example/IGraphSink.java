@@ -0,0 +1,20 @@
+package org.example;
+
+import java.util.List;
+
+// Destination for exported graph data. Writes are upserts: a node may be written several times,
+// and later writes add to or replace the properties of earlier ones.
+public interface IGraphSink extends AutoCloseable
+{
+    public void writeNodes(List<NodeRecord> nodes);
+    public void writeRelationships(List<RelationshipRecord> relationships);
+
+    // Removes the nodes and every relationship attached to them.
+    public void deleteNodes(String nodeType, long[] ids);
+
+    // Removes relationships, matched by endpoints and label; their data is ignored. The endpoints stay.
+    public void deleteRelationships(List<RelationshipRecord> relationships);
+
+    @Override
+    public void close();
+}
@@ -4,6 +4,7 @@ import com.github.javaparser.ast.Node;
 
 public interface INodeInfo
 {
-    public String getId();
+    // Deterministic 64-bit fingerprint of the node's content; the same source yields the same ids on every run.
+    public long getId();
     public String getNodeType();
 }
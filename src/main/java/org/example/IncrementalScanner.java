@@ -0,0 +1,193 @@
+package org.example;
+
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+// Rescans only the files that changed since the run recorded in the manifest. Nodes produced by
+// changed or deleted files are removed from the sink before the changed files are parsed again.
+//
+// Files own their syntax nodes, whose ids are derived from file and range. Declaration and type nodes
+// are shared between files and are upserted by every scan that reaches them. A source declaration
+// belongs to the file that declares it, and so do the relationships from it to its types and the calls
+// it makes: those are removed before the rescan, which writes the current ones again, and a declaration
+// that no file declares any more is removed after it. Library declarations and type nodes are never removed.
+public class IncrementalScanner {
+
+    private final JavaSolutionParser parser;
+    private final IGraphSink sink;
+    private final Path manifestPath;
+    private final int parallelism;
+    private final List<String> staleFiles = new ArrayList<>();
+    private Function<List<String>, Collection<String>> dependents = null;
+    private Runnable awaitWrites = () -> {};
+
+    private record FileState(File file, String key, long size, long lastModified, String hash) {}
+
+    public IncrementalScanner(JavaSolutionParser parser, IGraphSink sink, Path manifestPath, int parallelism) {
+        this.parser = parser;
+        this.sink = sink;
+        this.manifestPath = manifestPath;
+        this.parallelism = parallelism;
+    }
+
+    // Files to rescan along with the changed and deleted ones, e.g. those that use types declared in them
+    // (see DependentsIndex). Gets and returns manifest keys.
+    public void setDependents(Function<List<String>, Collection<String>> dependents) {
+        this.dependents = dependents;
+    }
+
+    // For a streaming scan: blocks until the sink has written everything streamed so far, so that the
+    // scanner can use the sink itself afterwards (see StreamingExportPipeline.flush()).
+    public void setAwaitWrites(Runnable awaitWrites) {
+        this.awaitWrites = awaitWrites;
+    }
+
+    public void run() throws IOException {
+        ScanManifest manifest = ScanManifest.load(manifestPath);
+
+        List<FileState> changed = new ArrayList<>();
+        Map<String, FileState> present = new HashMap<>();
+        for (FileState state : currentStates(parser.collectJavaFiles(), manifest)) {
+            present.put(state.key(), state);
+            ScanManifest.Entry previous = manifest.get(state.key());
+            if (previous != null && previous.hash().equals(state.hash())) {
+                // Unchanged content; refresh the stat data so the file is not hashed again next time
+                manifest.put(state.key(), new ScanManifest.Entry(state.size(), state.lastModified(), state.hash(),
+                        previous.nodes(), previous.declarations(), previous.relationships()));
+            } else {
+                changed.add(state);
+            }
+        }
+        List<String> deleted = manifest.paths().stream().filter(path -> !present.containsKey(path)).toList();
+        List<String> modified = new ArrayList<>(deleted);
+        changed.forEach(state -> modified.add(state.key()));
+        int dependentCount = 0;
+        if (dependents != null && !modified.isEmpty()) {
+            Set<String> rescanned = new HashSet<>(modified);
+            for (String key : dependents.apply(modified)) {
+                if (present.containsKey(key) && rescanned.add(key)) {
+                    changed.add(present.get(key));
+                    dependentCount++;
+                }
+            }
+        }
+        System.out.println("Incremental scan: " + (changed.size() - dependentCount) + " changed or new files, "
+                + deleted.size() + " deleted files" + (dependents != null ? ", " + dependentCount + " dependent files" : ""));
+        // Solvers kept from an earlier run must not resolve against the old sources
+        parser.invalidateSources(modified.stream().map(Path::of).toList());
+
+        Map<String, List<Long>> staleIdsByType = new LinkedHashMap<>();
+        List<RelationshipRecord> staleRelationships = new ArrayList<>();
+        Set<ScanManifest.NodeRef> staleDeclarations = new HashSet<>();
+        staleFiles.clear();
+        staleFiles.addAll(deleted);
+        changed.forEach(state -> staleFiles.add(state.key()));
+        for (String key : staleFiles) {
+            ScanManifest.Entry previous = manifest.remove(key);
+            if (previous != null) {
+                previous.nodes().forEach(node -> staleIdsByType.computeIfAbsent(node.nodeType(), k -> new ArrayList<>()).add(node.id()));
+                previous.relationships().forEach(relationship -> staleRelationships.add(relationship.toRecord()));
+                staleDeclarations.addAll(previous.declarations());
+            }
+        }
+        if (!staleRelationships.isEmpty()) {
+            sink.deleteRelationships(staleRelationships);
+        }
+        staleIdsByType.forEach((nodeType, ids) -> sink.deleteNodes(nodeType, ids.stream().mapToLong(Long::longValue).toArray()));
+
+        parser.loadSyntaxNodes(changed.stream().map(FileState::file).toList(), parallelism);
+        parser.resolveSymbols(parallelism);
+        parser.enrichAndDiscoverMoreNodes(parallelism);
+
+        Map<String, List<ScanManifest.NodeRef>> nodesByFile = new HashMap<>();
+        Map<String, List<ScanManifest.NodeRef>> declarationsByFile = new HashMap<>();
+        Map<String, List<ScanManifest.RelationshipRef>> relationshipsByFile = new HashMap<>();
+        Set<String> rescanned = new HashSet<>();
+        changed.forEach(state -> rescanned.add(state.key()));
+        for (INodeInfo node : parser.getNodesSet()) {
+            if (node instanceof SyntaxNodeInfo syntaxNodeInfo) {
+                syntaxNodeInfo.node.findCompilationUnit()
+                        .flatMap(CompilationUnit::getStorage)
+                        .ifPresent(storage -> nodesByFile.computeIfAbsent(ScanManifest.key(storage.getPath()), k -> new ArrayList<>())
+                                .add(ref(node)));
+            } else if (node instanceof ResolvedDeclarationNodeInfo) {
+                staleDeclarations.remove(ref(node));
+                String file = ScanManifest.declaringFile(node);
+                if (rescanned.contains(file)) {
+                    declarationsByFile.computeIfAbsent(file, k -> new ArrayList<>()).add(ref(node));
+                }
+            }
+        }
+        for (GraphRelationship relationship : parser.getRelationships()) {
+            if (relationship.to() instanceof ResolvedTypeNodeInfo || relationship.label().equals("calls")) {
+                String file = ScanManifest.declaringFile(relationship.from());
+                if (rescanned.contains(file)) {
+                    relationshipsByFile.computeIfAbsent(file, k -> new ArrayList<>())
+                            .add(new ScanManifest.RelationshipRef(ref(relationship.from()), relationship.label(), ref(relationship.to())));
+                }
+            }
+        }
+        for (FileState state : changed) {
+            manifest.put(state.key(), new ScanManifest.Entry(state.size(), state.lastModified(), state.hash(),
+                    nodesByFile.getOrDefault(state.key(), List.of()),
+                    declarationsByFile.getOrDefault(state.key(), List.of()),
+                    relationshipsByFile.getOrDefault(state.key(), List.of())));
+        }
+        // Only what neither the rescan reached nor any file still declares is gone
+        for (String key : manifest.paths()) {
+            manifest.get(key).declarations().forEach(staleDeclarations::remove);
+        }
+
+        if (parser.isStreaming()) {
+            parser.flushPending();
+            awaitWrites.run();
+        }
+        Map<String, List<Long>> removedIdsByType = new LinkedHashMap<>();
+        staleDeclarations.forEach(declaration -> removedIdsByType.computeIfAbsent(declaration.nodeType(), k -> new ArrayList<>()).add(declaration.id()));
+        removedIdsByType.forEach((nodeType, ids) -> sink.deleteNodes(nodeType, ids.stream().mapToLong(Long::longValue).toArray()));
+        if (!parser.isStreaming()) {
+            var nodeData = parser.getNodeInfos();
+            var relationshipData = parser.relationshipData();
+            sink.writeNodes(parser.getNodesSet().stream().map(node -> NodeRecord.of(node, nodeData.getProperties(node))).toList());
+            sink.writeRelationships(parser.getRelationships().stream()
+                    .map(relationship -> RelationshipRecord.of(relationship, relationshipData.get(relationship))).toList());
+        }
+        manifest.save(manifestPath);
+    }
+
+    private static ScanManifest.NodeRef ref(INodeInfo node) {
+        return new ScanManifest.NodeRef(node.getNodeType(), node.getId());
+    }
+
+    // Manifest keys of the changed and deleted files of the last run.
+    public List<String> getStaleFiles() {
+        return Collections.unmodifiableList(staleFiles);
+    }
+
+    // Stats every file and hashes those whose size or modification time differ from the manifest.
+    // Files that match keep the manifest hash, so an unchanged tree is not read at all.
+    private List<FileState> currentStates(List<File> files, ScanManifest manifest) {
+        return files.parallelStream().map(file -> {
+            try {
+                Path path = file.toPath();
+                String key = ScanManifest.key(path);
+                long size = Files.size(path);
+                long lastModified = Files.getLastModifiedTime(path).toMillis();
+                ScanManifest.Entry previous = manifest.get(key);
+                String hash = previous != null && previous.size() == size && previous.lastModified() == lastModified
+                        ? previous.hash()
+                        : ScanManifest.hash(path);
+                return new FileState(file, key, size, lastModified, hash);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + file, e);
+            }
+        }).toList();
+    }
+}
@@ -0,0 +1,149 @@
+package org.example;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32C;
+
+// Class indexes of dependency jars, kept on disk between runs (one file per jar, by default under
+// ~/.java-scanner/jar-index). An index is reused while the jar has the same size and modification time;
+// if only the modification time changed, a checksum of the content decides. Otherwise the jar's entries
+// are listed again and the index is rewritten.
+//
+// An index maps canonical class names (a.b.Outer.Inner) to javassist class pool names (a.b.Outer$Inner),
+// as JarTypeSolver builds them.
+public class JarIndexCache {
+
+    private static final int MAGIC = 0x4A494458; // "JIDX"
+    private static final int VERSION = 1;
+
+    private static final JarIndexCache DEFAULT = new JarIndexCache(
+            Path.of(System.getProperty("user.home"), ".java-scanner", "jar-index"));
+
+    private record JarIndex(String path, long size, long lastModified, long checksum, Map<String, String> classes) {}
+
+    private final Path directory;
+    private final CacheStats stats = new CacheStats("jar indexes");
+
+    public JarIndexCache(Path directory) {
+        this.directory = directory;
+    }
+
+    // Cache shared by all solvers of the process.
+    public static JarIndexCache getDefault() {
+        return DEFAULT;
+    }
+
+    public CacheStats stats() {
+        return stats;
+    }
+
+    // Class index of the jar, from disk if it is still valid.
+    public Map<String, String> classesOf(Path jar) throws IOException {
+        Path path = jar.toAbsolutePath().normalize();
+        long size = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        Path indexFile = directory.resolve(Long.toHexString(Fingerprint.of(path.toString())) + "-" + path.getFileName() + ".idx");
+        JarIndex cached = read(indexFile, path.toString());
+        if (cached != null && cached.size() == size && cached.lastModified() == lastModified) {
+            stats.hit();
+            return cached.classes();
+        }
+        long checksum = checksum(path);
+        if (cached != null && cached.size() == size && cached.checksum() == checksum) {
+            stats.hit();
+            write(indexFile, new JarIndex(cached.path(), size, lastModified, checksum, cached.classes()));
+            return cached.classes();
+        }
+        stats.miss();
+        Map<String, String> classes = index(path);
+        write(indexFile, new JarIndex(path.toString(), size, lastModified, checksum, classes));
+        return classes;
+    }
+
+    private static Map<String, String> index(Path jar) throws IOException {
+        Map<String, String> classes = new HashMap<>();
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+                    String poolName = entry.getName().substring(0, entry.getName().length() - ".class".length()).replace('/', '.');
+                    classes.put(poolName.replace('$', '.'), poolName);
+                }
+            }
+        }
+        return classes;
+    }
+
+    private static long checksum(Path jar) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(jar)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    // The stored index, or null if there is none, it cannot be read or it belongs to another jar.
+    private static JarIndex read(Path indexFile, String path) {
+        if (!Files.exists(indexFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            String storedPath = in.readUTF();
+            if (!storedPath.equals(path)) {
+                return null;
+            }
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            long checksum = in.readLong();
+            int count = in.readInt();
+            Map<String, String> classes = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String poolName = in.readUTF();
+                classes.put(poolName.replace('$', '.'), poolName);
+            }
+            return new JarIndex(storedPath, size, lastModified, checksum, classes);
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable jar index " + indexFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Writes through a temporary file, so concurrent scans never read a partial index. A failed write
+    // only costs the next run a rebuild.
+    private void write(Path indexFile, JarIndex index) {
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, indexFile.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(index.path());
+                out.writeLong(index.size());
+                out.writeLong(index.lastModified());
+                out.writeLong(index.checksum());
+                out.writeInt(index.classes().size());
+                for (String poolName : index.classes().values()) {
+                    out.writeUTF(poolName);
+                }
+            }
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Cannot save jar index " + indexFile + ": " + e.getMessage());
+        }
+    }
+}
@@ -4,26 +4,49 @@ import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
 import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.MethodReferenceExpr;
 import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
 import com.github.javaparser.ast.nodeTypes.NodeWithName;
+import com.github.javaparser.ast.stmt.ExplicitConstructorInvocationStmt;
+import com.github.javaparser.printer.DefaultPrettyPrinter;
 import com.github.javaparser.resolution.MethodAmbiguityException;
 import com.github.javaparser.resolution.Resolvable;
+import com.github.javaparser.resolution.SymbolResolver;
 import com.github.javaparser.resolution.UnsolvedSymbolException;
+import com.github.javaparser.resolution.cache.Cache;
 import com.github.javaparser.resolution.declarations.ResolvedDeclaration;
 import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
+import com.github.javaparser.resolution.declarations.ResolvedMethodLikeDeclaration;
 import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
 import com.github.javaparser.resolution.declarations.ResolvedValueDeclaration;
-import com.github.javaparser.resolution.types.ResolvedType;
+import com.github.javaparser.resolution.model.SymbolReference;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.cache.GuavaCache;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import com.google.common.cache.CacheBuilder;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 public class JavaSolutionParser {
 
@@ -31,10 +54,10 @@ public class JavaSolutionParser {
     private final RelationshupTracker relationshipTracker = new RelationshupTracker();
 
     //    private final HashSet<INodeInfo> syntaxNodesSet = new HashSet<>();
-    private final Dictionary<INodeInfo, Map<String, Object>> syntaxNodesInfo = new Hashtable<>();
-    private final Map<GraphRelationship, Map<String, Object>> relationshipMapHashtable = new Hashtable<>();
+    private final PropertyStore syntaxNodesInfo = new PropertyStore();
+    private final Map<GraphRelationship, Map<String, Object>> relationshipMapHashtable = new HashMap<>();
 
-    public Dictionary<INodeInfo, Map<String, Object>> getNodeInfos() {
+    public PropertyStore getNodeInfos() {
         return syntaxNodesInfo;
     }
 
@@ -42,193 +65,721 @@ public class JavaSolutionParser {
         return relationshipMapHashtable;
     }
 
-    public HashSet<INodeInfo> getNodesSet() {
-
+    // Read-only view of all tracked nodes, in registration order.
+    public List<INodeInfo> getNodesSet() {
         return nodeInfoTracker.getAllNodes();
     }
 
-    public HashSet<GraphRelationship> getRelationships() {
+    // Read-only view of all tracked relationships, in registration order.
+    public List<GraphRelationship> getRelationships() {
         return relationshipTracker.getAllRelationships();
     }
 
+    // Reactor module of a compilation unit, set when it is parsed.
+    private static final DataKey<MavenReactor.Module> MODULE_KEY = new DataKey<>() {};
 
-    public void registerNodeData(INodeInfo nodeInfo, String key, Object value) {
-        this.nodeInfoTracker.registerNode(nodeInfo);
-        Map<String, Object> nodeData = syntaxNodesInfo.get(nodeInfo);
-        if (nodeData == null) {
-            nodeData = new HashMap<>();
-            syntaxNodesInfo.put(nodeInfo, nodeData);
+    // Enrichment rounds are split into chunks of this many nodes for the work-stealing pool.
+    private static final int ENRICH_CHUNK_SIZE = 256;
+
+    // Shared printer for node text; print() creates its own visitor per call, unlike Node.toString(),
+    // which lazily stores a printer in the CompilationUnit.
+    private static final DefaultPrettyPrinter NODE_PRINTER = new DefaultPrettyPrinter();
+
+    // Set on enrichment workers: writes to the graph are recorded here and replayed on the calling
+    // thread, so the tracker, property store and relationship data are only ever modified by one thread.
+    private final ThreadLocal<List<Runnable>> deferredWrites = new ThreadLocal<>();
+
+
+    // Streaming mode: when set, finished data is handed to streamTarget in batches instead of being kept
+    // until the end of the scan. Pending collections hold what changed since the last flush.
+    private Consumer<GraphBatch> streamTarget = null;
+    private int streamBatchSize = 1000;
+    private final Set<INodeInfo> pendingNodes = new LinkedHashSet<>();
+    private final Set<GraphRelationship> pendingRelationships = new LinkedHashSet<>();
+
+    // Streams nodes and relationships to the target while the scan runs. Data is removed from this parser
+    // once it has been handed over, so getNodeInfos() and relationshipData() only hold what is still pending.
+    // A node that gets more properties after it was flushed is sent again with just the new properties.
+    public void streamTo(Consumer<GraphBatch> target, int batchSize) {
+        this.streamTarget = target;
+        this.streamBatchSize = batchSize;
+    }
+
+    // Limits the stored node text to maxLength characters; SourceFiles.NO_TEXT drops it and
+    // SourceFiles.FULL_TEXT keeps all of it. Must be set before files are loaded.
+    public void setNodeTextLimit(int maxLength) {
+        SourceFiles files = new SourceFiles(maxLength);
+        files.setCopyText(sourceFiles.copiesText());
+        this.sourceFiles = files;
+    }
+
+    // Stores node text as strings read during the scan instead of references into the files, which
+    // must then not change before the export. See WatchDaemon.
+    public void setCopyNodeText(boolean copy) {
+        sourceFiles.setCopyText(copy);
+    }
+
+    // Which syntax nodes are kept. Must be set before files are loaded.
+    public void setProfile(ScanProfile profile) {
+        this.profile = profile;
+    }
+
+    // Which files below the base path are scanned.
+    public void setSourceDiscovery(SourceDiscovery sourceDiscovery) {
+        this.sourceDiscovery = sourceDiscovery;
+    }
+
+    public SourceDiscovery getSourceDiscovery() {
+        return sourceDiscovery;
+    }
+
+    public boolean isStreaming() {
+        return streamTarget != null;
+    }
+
+    private boolean trackNode(INodeInfo nodeInfo) {
+        List<Runnable> deferred = deferredWrites.get();
+        if (deferred != null) {
+            deferred.add(() -> trackNode(nodeInfo));
+            return true;
+        }
+        if (!nodeInfoTracker.registerNode(nodeInfo)) {
+            return false;
         }
+        if (streamTarget != null) {
+            pendingNodes.add(nodeInfo);
+        }
+        return true;
+    }
 
-        nodeData.put(key, value);
+    private void flushIfBatchFull() {
+        if (streamTarget != null && pendingNodes.size() + pendingRelationships.size() >= streamBatchSize) {
+            flushPending();
+        }
+    }
+
+    // Hands everything pending to the stream target. Nodes are flushed together with the relationships
+    // that were registered after them, and every relationship endpoint was registered (and therefore
+    // flushed) no later than the relationship itself.
+    public void flushPending() {
+        if (streamTarget == null || (pendingNodes.isEmpty() && pendingRelationships.isEmpty())) {
+            return;
+        }
+        List<NodeRecord> nodes = new ArrayList<>(pendingNodes.size());
+        for (INodeInfo nodeInfo : pendingNodes) {
+            nodes.add(NodeRecord.of(nodeInfo, syntaxNodesInfo.getProperties(nodeInfo)));
+        }
+        // Every node with stored properties is pending, so the whole store has been handed over
+        syntaxNodesInfo.clear();
+        List<RelationshipRecord> relationships = new ArrayList<>(pendingRelationships.size());
+        for (GraphRelationship relationship : pendingRelationships) {
+            relationships.add(RelationshipRecord.of(relationship, relationshipMapHashtable.remove(relationship)));
+        }
+        pendingNodes.clear();
+        pendingRelationships.clear();
+        streamTarget.accept(new GraphBatch(nodes, relationships));
+    }
+
+    // The node registered under the same id, which may be a different object than the one passed in.
+    private INodeInfo canonical(INodeInfo nodeInfo) {
+        INodeInfo registered = nodeInfoTracker.getNode(nodeInfo.getId());
+        return registered != null ? registered : nodeInfo;
+    }
+
+    public void registerNodeData(INodeInfo nodeInfo, String key, Object value) {
+        List<Runnable> deferred = deferredWrites.get();
+        if (deferred != null) {
+            deferred.add(() -> registerNodeData(nodeInfo, key, value));
+            return;
+        }
+        INodeInfo registered = trackNode(nodeInfo) ? nodeInfo : canonical(nodeInfo);
+        if (streamTarget != null) {
+            pendingNodes.add(registered);
+        }
+        syntaxNodesInfo.put(registered, key, value);
     }
 
     public void registerRelationshipData(GraphRelationship relationship, String key, Object value) {
-        this.relationshipTracker.registerRelationship(relationship);
-        Map<String, Object> relationData = relationshipMapHashtable.computeIfAbsent(relationship, k -> new HashMap<>());
+        List<Runnable> deferred = deferredWrites.get();
+        if (deferred != null) {
+            deferred.add(() -> registerRelationshipData(relationship, key, value));
+            return;
+        }
+        INodeInfo from = canonical(relationship.from());
+        INodeInfo to = canonical(relationship.to());
+        GraphRelationship registered = from == relationship.from() && to == relationship.to()
+                ? relationship
+                : new GraphRelationship(from, to, relationship.label());
+        this.relationshipTracker.registerRelationship(registered);
+        if (streamTarget != null) {
+            pendingRelationships.add(registered);
+        }
+        Map<String, Object> relationData = relationshipMapHashtable.computeIfAbsent(registered, k -> new HashMap<>());
 
         relationData.put(key, value);
     }
 
-    private final JavaParser javaParser;
+    private JavaParser javaParser;
+    private JavaSymbolSolver symbolSolver;
+    private final MavenReactor reactor;
+    private final SharedTypeSolver libraries;
+    // Explicit source roots; when set they replace the modules of the reactor for every file
+    private List<File> sourceRoots;
+    private final Map<MavenReactor.Module, JavaSymbolSolver> moduleSolvers = new ConcurrentHashMap<>();
+    // Files a source type solver keeps parsed, or -1 for all of them
+    private long sourceCacheLimit = -1;
+    // Caches of the source type solvers, so the entries of changed files can be evicted. Weak keys: the
+    // solvers of resolution workers are dropped after their round.
+    private final Map<JavaParserTypeSolver, SourceCaches> sourceCaches = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private record SourceCaches(Cache<Path, Optional<CompilationUnit>> files, Cache<Path, List<CompilationUnit>> directories,
+                                Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> types) {}
+    private final ScanMetrics metrics = new ScanMetrics();
+    private final SymbolInterner symbols = new SymbolInterner();
+    private final ResolutionCache resolutionCache = new ResolutionCache(metrics, symbols);
+    private final FailureReport failureReport = new FailureReport();
+    private SourceFiles sourceFiles = new SourceFiles(SourceFiles.FULL_TEXT);
+    private ScanProfile profile = ScanProfile.FULL;
+    private SourceDiscovery sourceDiscovery = new SourceDiscovery();
 
     private String baseSourcePath;
 
     public JavaSolutionParser(String baseSourcePath) throws XmlPullParserException, IOException {
-        // Setup the symbol solver using a CombinedTypeSolver; add ReflectionTypeSolver for core JDK classes.
-        CombinedTypeSolver typeSolver = new CombinedTypeSolver();
         this.baseSourcePath = baseSourcePath;
+        this.reactor = MavenReactor.load(Path.of(baseSourcePath));
+        this.libraries = new SharedTypeSolver(reactor);
+        if (reactor.getModules().size() > 1) {
+            System.out.println("Maven reactor: " + reactor.getModules().size() + " modules sharing "
+                    + libraries.getJarCount() + " dependency jars");
+        }
+        this.symbolSolver = createSymbolSolver(null);
+        this.javaParser = createParser();
+    }
+
+    // Setup the symbol solver using a CombinedTypeSolver; add ReflectionTypeSolver for core JDK classes.
+    // Source type solvers parse and cache files on their own, so every solver gets new ones, while the
+    // library solver is shared. A module's solver sees its own sources, those of the reactor modules it
+    // depends on and its classpath; without a module the solver sees every source root and every jar.
+    //
+    // The sources the solvers parse resolve with the same solver: declarations such as the implicit
+    // accessors of a record resolve their declaring type through the AST, which fails without one when
+    // the record's file is not among the scanned files (e.g. in another --shard).
+    private JavaSymbolSolver createSymbolSolver(MavenReactor.Module module) {
+        CombinedTypeSolver typeSolver = new CombinedTypeSolver();
         typeSolver.add(new ReflectionTypeSolver());
-        typeSolver.add(new JavaParserTypeSolver(new File("src/main/java"))); // your source root
-        SolverUtils.registerJarsFromPom(typeSolver, baseSourcePath + "/pom.xml");
-//        typeSolver.add(new MavenTypeSolver(baseSourcePath, true));
-        JavaSymbolSolver symbolSolver = new JavaSymbolSolver(typeSolver);
+        ParserConfiguration sourceConfiguration = new ParserConfiguration()
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.BLEEDING_EDGE);
+        for (File sourceRoot : module != null ? module.getSolverRoots() : defaultSourceRoots()) {
+            if (sourceRoot.isDirectory()) {
+                typeSolver.add(createSourceSolver(sourceRoot, sourceConfiguration));
+            }
+        }
+        typeSolver.add(module != null ? libraries.view(module.getClasspath()) : libraries.view());
+        JavaSymbolSolver solver = new JavaSymbolSolver(typeSolver);
+        sourceConfiguration.setSymbolResolver(solver);
+        return solver;
+    }
+
+    // Source type solver with the caches JavaParserTypeSolver builds itself (soft values, at most
+    // sourceCacheLimit entries), but kept so invalidateSources() can evict from them. The root is
+    // absolute and normalized, so the cache keys are too.
+    private JavaParserTypeSolver createSourceSolver(File sourceRoot, ParserConfiguration configuration) {
+        SourceCaches caches = new SourceCaches(sourceCache(), sourceCache(), sourceCache());
+        JavaParserTypeSolver solver = new JavaParserTypeSolver(sourceRoot.toPath().toAbsolutePath().normalize(),
+                new JavaParser(configuration), caches.files(), caches.directories(), caches.types());
+        sourceCaches.put(solver, caches);
+        return solver;
+    }
+
+    private <K, V> Cache<K, V> sourceCache() {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().softValues();
+        if (sourceCacheLimit >= 0) {
+            builder.maximumSize(sourceCacheLimit);
+        }
+        return new GuavaCache<>(builder.build());
+    }
+
+    // Makes the source type solvers parse the files again the next time a type declared in them is
+    // looked up; the sources of other files stay parsed. Every type lookup is redone, since a changed
+    // file can declare types that were not found before.
+    public void invalidateSources(Collection<Path> files) {
+        List<SourceCaches> caches;
+        synchronized (sourceCaches) {
+            caches = new ArrayList<>(sourceCaches.values());
+        }
+        for (SourceCaches cache : caches) {
+            for (Path file : files) {
+                Path path = file.toAbsolutePath().normalize();
+                cache.files().remove(path);
+                cache.directories().remove(path.getParent());
+            }
+            cache.types().removeAll();
+        }
+        // The facades cache resolved types and declarations, which can point into the old sources
+        JavaParserFacade.clearInstances();
+    }
+
+    // Forgets the graph of the previous scan, so the next scan only produces its own nodes and
+    // relationships, while the symbol solvers and the sources they parsed stay warm. See WatchDaemon.
+    public void resetGraph() {
+        flushPending();
+        nodeInfoTracker.clear();
+        relationshipTracker.clear();
+        syntaxNodesInfo.clear();
+        relationshipMapHashtable.clear();
+        resolutionCache.clear();
+        symbols.clear();
+        sourceFiles.clear();
+    }
+
+    private List<File> defaultSourceRoots() {
+        if (sourceRoots != null) {
+            return sourceRoots;
+        }
+        List<File> roots = reactor.getAllSourceRoots();
+        return roots.isEmpty() ? List.of(new File(baseSourcePath, "src/main/java")) : roots;
+    }
+
+    // The reactor module a file belongs to, or null if the file is resolved with the default solver.
+    private MavenReactor.Module moduleOf(File file) {
+        return sourceRoots != null ? null : reactor.moduleOf(file.toPath());
+    }
+
+    // The solver units of the module keep between resolution rounds.
+    private JavaSymbolSolver solverFor(MavenReactor.Module module) {
+        return module == null ? symbolSolver : moduleSolvers.computeIfAbsent(module, this::createSymbolSolver);
+    }
+
+    // Source roots used to resolve project types, instead of those of the Maven modules. Call before
+    // loading files.
+    public void setSourceRoots(List<File> sourceRoots) {
+        this.sourceRoots = List.copyOf(sourceRoots);
+        this.symbolSolver = createSymbolSolver(null);
+        this.javaParser = createParser();
+    }
+
+    // Modules and classpaths of the scanned Maven build.
+    public MavenReactor getReactor() {
+        return reactor;
+    }
+
+    // Hit rates of the resolution caches, the symbol interner and the persistent jar index cache.
+    public List<CacheStats> getCacheStats() {
+        List<CacheStats> stats = new ArrayList<>(resolutionCache.stats());
+        stats.addAll(symbols.stats());
+        stats.add(JarIndexCache.getDefault().stats());
+        return stats;
+    }
+
+    // Phase timers, counters and latency histograms of the scan so far.
+    public ScanMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Resolution failures of the scan so far, by symbol.
+    public FailureReport getFailureReport() {
+        return failureReport;
+    }
+
+    // Every parser gets its own configuration but shares the symbol solver. Parsing only attaches the
+    // solver to the CompilationUnit; the type solvers are not queried until resolve() is called.
+    private JavaParser createParser() {
         ParserConfiguration config = new ParserConfiguration().setSymbolResolver(symbolSolver);
         config.setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_21);
-        this.javaParser = new JavaParser(config);
+        return new JavaParser(config);
     }
 
     // Recursively loads all syntax nodes from Java files located under the given solution path.
     public void loadSyntaxNodes() {
-        File root = new File(baseSourcePath);
-        if (root.isDirectory()) {
-            List<File> javaFiles = new ArrayList<>();
-            collectJavaFiles(root, javaFiles);
+        loadSyntaxNodes(1);
+    }
+
+    // Same as loadSyntaxNodes(), but parses files on the given number of worker threads.
+    public void loadSyntaxNodes(int parallelism) {
+        loadSyntaxNodes(collectJavaFiles(), parallelism);
+    }
+
+    // Parses the given files and registers their syntax nodes. Workers only parse and wrap nodes; the
+    // per-file results are merged into the tracker on the calling thread in file order, so the tracker
+    // is never shared and the resulting graph is the same as for a sequential run.
+    @SuppressWarnings("try")
+    public void loadSyntaxNodes(List<File> javaFiles, int parallelism) {
+        try (ScanMetrics.Phase phase = metrics.phase("parse")) {
+            parseAndRegister(javaFiles, parallelism);
+        }
+    }
+
+    private void parseAndRegister(List<File> javaFiles, int parallelism) {
+        if (parallelism <= 1 || javaFiles.size() <= 1) {
             for (File file : javaFiles) {
-                try {
-                    ParseResult<CompilationUnit> result = javaParser.parse(file);
-                    if (result.isSuccessful() && result.getResult().isPresent()) {
-                        CompilationUnit cu = result.getResult().get();
-                        cu.stream().forEach(this::registerSyntaxNode);
+                parseFile(javaParser, file).forEach(this::registerSyntaxNode);
+                flushIfBatchFull();
+            }
+            return;
+        }
 
-                    } else {
-                        System.err.println("Failed to parse file " + file.getPath() + ": " + result.getProblems());
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error parsing file " + file.getPath() + ": " + e.getMessage());
-                }
+        ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(this::createParser);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<List<SyntaxNodeInfo>>> results = new ArrayList<>(javaFiles.size());
+            for (File file : javaFiles) {
+                results.add(executor.submit(() -> parseFile(parsers.get(), file)));
             }
-        } else if (root.isFile() && root.getName().endsWith(".java")) {
-            try {
-                ParseResult<CompilationUnit> result = javaParser.parse(root);
-                if (result.isSuccessful() && result.getResult().isPresent()) {
-                    CompilationUnit cu = result.getResult().get();
-                    cu.stream().forEach(this::registerSyntaxNode);
+            for (Future<List<SyntaxNodeInfo>> result : results) {
+                result.get().forEach(this::registerSyntaxNode);
+                flushIfBatchFull();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing " + baseSourcePath, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parser worker failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
+    // Parses a single file and wraps all of its nodes; returns an empty list if the file cannot be parsed.
+    private List<SyntaxNodeInfo> parseFile(JavaParser parser, File file) {
+        FileParsedEvent event = new FileParsedEvent();
+        event.begin();
+        long start = System.nanoTime();
+        List<SyntaxNodeInfo> nodes = null;
+        try {
+            ParseResult<CompilationUnit> result = parser.parse(file);
+            if (result.isSuccessful() && result.getResult().isPresent()) {
+                CompilationUnit cu = result.getResult().get();
+                cu.setData(SyntaxNodeInfo.FILE_KEY, fileKey(file));
+                cu.setData(SourceFiles.FILE_ID, sourceFiles.register(file.toPath()));
+                MavenReactor.Module module = moduleOf(file);
+                if (module != null) {
+                    cu.setData(MODULE_KEY, module);
+                    cu.setData(Node.SYMBOL_RESOLVER_KEY, solverFor(module));
                 }
-            } catch (Exception e) {
-                System.err.println("Error parsing file " + root.getPath() + ": " + e.getMessage());
+                nodes = cu.stream().filter(profile::keeps).map(SyntaxNodeInfo::new).toList();
+            } else {
+                System.err.println("Failed to parse file " + file.getPath() + ": " + result.getProblems());
             }
+        } catch (Exception e) {
+            System.err.println("Error parsing file " + file.getPath() + ": " + e.getMessage());
         }
+        metrics.histogram("parse file").record(System.nanoTime() - start);
+        metrics.increment(nodes != null ? "files parsed" : "files failed");
+        event.path = file.getPath();
+        event.bytes = file.length();
+        event.nodes = nodes != null ? nodes.size() : 0;
+        event.successful = nodes != null;
+        event.commit();
+        return nodes != null ? nodes : List.of();
+    }
 
+    // Path of the file relative to the scanned source path, with '/' separators on every platform,
+    // so syntax node ids do not depend on where the repository is checked out.
+    private String fileKey(File file) {
+        Path base = Path.of(baseSourcePath).toAbsolutePath().normalize();
+        Path path = file.toPath().toAbsolutePath().normalize();
+        Path relative = path.equals(base) ? path.getFileName() : base.relativize(path);
+        return relative.toString().replace(File.separatorChar, '/');
+    }
+
+    public void resolveSymbols() {
+        resolveSymbols(1);
+    }
+
+    // Resolution stage: resolves every resolvable syntax node that has not been enriched yet exactly once,
+    // together with the return or value type of its declaration, and keeps the results for enrichment.
+    // Work is split by compilation unit. Every worker thread has its own symbol solver, so JavaParser's
+    // per-solver caches stay confined to it, and the unit's symbol resolver is switched to the worker's
+    // solver while it is resolved.
+    @SuppressWarnings("try")
+    public void resolveSymbols(int parallelism) {
+        try (ScanMetrics.Phase phase = metrics.phase("resolve")) {
+            resolveFrontier(parallelism);
+        }
+    }
+
+    private void resolveFrontier(int parallelism) {
+        Map<CompilationUnit, List<SyntaxNodeInfo>> nodesByUnit = new IdentityHashMap<>();
+        List<CompilationUnit> units = new ArrayList<>();
+        for (int i = nodeInfoTracker.getFrontier(); i < nodeInfoTracker.size(); i++) {
+            if (nodeInfoTracker.getNode(i) instanceof SyntaxNodeInfo syntaxNodeInfo && syntaxNodeInfo.node instanceof Resolvable) {
+                syntaxNodeInfo.node.findCompilationUnit().ifPresent(unit -> nodesByUnit.computeIfAbsent(unit, u -> {
+                    units.add(u);
+                    return new ArrayList<>();
+                }).add(syntaxNodeInfo));
+            }
+        }
+        if (parallelism <= 1 || units.size() <= 1) {
+            for (CompilationUnit unit : units) {
+                nodesByUnit.get(unit).forEach(this::preload);
+            }
+            return;
+        }
+
+        // Units of all modules are resolved on the same workers; a worker creates its solver for a module
+        // when it first gets one of the module's units
+        ThreadLocal<Map<MavenReactor.Module, JavaSymbolSolver>> solvers = ThreadLocal.withInitial(HashMap::new);
+        ThreadLocal<JavaSymbolSolver> defaultSolver = ThreadLocal.withInitial(() -> createSymbolSolver(null));
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> results = new ArrayList<>(units.size());
+            for (CompilationUnit unit : units) {
+                List<SyntaxNodeInfo> nodes = nodesByUnit.get(unit);
+                MavenReactor.Module module = unit.getData(MODULE_KEY);
+                results.add(executor.submit(() -> resolveUnit(unit, nodes, module == null ? defaultSolver.get()
+                        : solvers.get().computeIfAbsent(module, this::createSymbolSolver))));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while resolving " + baseSourcePath, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Resolver worker failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void resolveUnit(CompilationUnit unit, List<SyntaxNodeInfo> nodes, JavaSymbolSolver solver) {
+        SymbolResolver original = unit.getData(Node.SYMBOL_RESOLVER_KEY);
+        unit.setData(Node.SYMBOL_RESOLVER_KEY, solver);
+        try {
+            nodes.forEach(this::preload);
+        } finally {
+            unit.setData(Node.SYMBOL_RESOLVER_KEY, original);
+        }
+    }
+
+    // Resolves the node and, for a call site, the declaration it is called from, so enrichment finds
+    // both interned.
+    private void preload(SyntaxNodeInfo nodeInfo) {
+        resolutionCache.preload(nodeInfo);
+        Node caller = callKind(nodeInfo.node) != null ? callerOf(nodeInfo.node) : null;
+        if (caller != null) {
+            resolutionCache.preload(new SyntaxNodeInfo(caller));
+        }
     }
 
     public void enrichAndDiscoverMoreNodes() {
-        // Iterate through all syntax nodes and extract symbols and detailed symbols.
-        var newNodes = nodeInfoTracker.getNewNodes();
-        while (!newNodes.isEmpty()) {
-            System.out.println("Found new nodes: " + newNodes.size());
-            nodeInfoTracker.clearNewNodes();
-            for (INodeInfo nodeInfo : newNodes) {
-                if (nodeInfo instanceof SyntaxNodeInfo syntaxNodeInfo) {
-                    describeSyntaxInfo(syntaxNodeInfo);
-                    addParentToNode(syntaxNodeInfo);
-                    extractSymbols(syntaxNodeInfo);
-                    extractDetailedSymbols(syntaxNodeInfo);
-
-                } else if (nodeInfo instanceof ResolvedDeclarationNodeInfo resolvedNodeInfo) {
-                    describeSymbolNode(resolvedNodeInfo);
-                } else if (nodeInfo instanceof ResolvedTypeNodeInfo typeNodeInfo) {
-                    describeTypeSymbol(typeNodeInfo);
+        enrichAndDiscoverMoreNodes(1);
+    }
+
+    // Works through the node worklist round by round until a round discovers no new nodes. With
+    // parallelism > 1 each round is split into chunks on a work-stealing pool; the writes of every
+    // chunk are replayed in node order afterwards, so the graph is the same as for a sequential run.
+    @SuppressWarnings("try")
+    public void enrichAndDiscoverMoreNodes(int parallelism) {
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try (ScanMetrics.Phase phase = metrics.phase("enrich")) {
+            while (nodeInfoTracker.hasNewNodes()) {
+                int start = nodeInfoTracker.getFrontier();
+                int end = nodeInfoTracker.nextRound();
+                System.out.println("Found new nodes: " + (end - start));
+                metrics.add("nodes enriched", end - start);
+                try (ScanMetrics.Phase round = metrics.phase("enrich round")) {
+                    if (pool == null) {
+                        for (int i = start; i < end; i++) {
+                            enrichNode(nodeInfoTracker.getNode(i));
+                            flushIfBatchFull();
+                        }
+                    } else {
+                        enrichConcurrently(pool, start, end);
+                    }
                 }
             }
-            newNodes = nodeInfoTracker.getNewNodes();
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        flushPending();
+    }
+
+    // Memory-bounded scan: parses, resolves and fully enriches windowSize files at a time, streams what
+    // they produced and then releases them before the next window. Only ids and node types of finished
+    // nodes stay in memory, so the heap needed depends on the window, not on the size of the repository.
+    // Symbols found again in a later window are not described again. Needs streamTo().
+    public void scanInWindows(List<File> javaFiles, int windowSize, int parseThreads, int resolveThreads, int enrichThreads) {
+        if (streamTarget == null) {
+            throw new IllegalStateException("Windowed scans stream their output; call streamTo() first");
+        }
+        // Type solvers parse the files that the window refers to; keep at most a window of them each
+        sourceCacheLimit = windowSize;
+        releaseWindow();
+        for (int start = 0; start < javaFiles.size(); start += windowSize) {
+            List<File> window = javaFiles.subList(start, Math.min(javaFiles.size(), start + windowSize));
+            System.out.println("Scanning files " + (start + 1) + "-" + (start + window.size()) + " of " + javaFiles.size());
+            loadSyntaxNodes(window, parseThreads);
+            resolveSymbols(resolveThreads);
+            enrichAndDiscoverMoreNodes(enrichThreads);
+            releaseWindow();
+        }
+    }
+
+    // Drops every reference to the ASTs and resolved symbols of the finished window: tracked syntax nodes
+    // and relationships are dropped, other nodes become NodeRefs, cached resolutions are cleared and the symbol solvers, whose type
+    // solvers cache the files they parsed, are replaced. Also run before the first window, to switch to
+    // solvers with bounded caches.
+    @SuppressWarnings("try")
+    private void releaseWindow() {
+        try (ScanMetrics.Phase phase = metrics.phase("release")) {
+            flushPending();
+            metrics.add("nodes released", nodeInfoTracker.release());
+            relationshipTracker.release();
+            resolutionCache.releaseNodes();
+            symbols.clear();
+            moduleSolvers.clear();
+            JavaParserFacade.clearInstances();
+            this.symbolSolver = createSymbolSolver(null);
+            this.javaParser = createParser();
+        }
+    }
+
+    // Iterate through all syntax nodes and extract symbols and detailed symbols.
+    private void enrichNode(INodeInfo nodeInfo) {
+        if (nodeInfo instanceof SyntaxNodeInfo syntaxNodeInfo) {
+            describeSyntaxInfo(syntaxNodeInfo);
+            addParentToNode(syntaxNodeInfo);
+            extractSymbols(syntaxNodeInfo);
+            extractDetailedSymbols(syntaxNodeInfo);
+        } else if (nodeInfo instanceof ResolvedDeclarationNodeInfo resolvedNodeInfo) {
+            describeSymbolNode(resolvedNodeInfo);
+        } else if (nodeInfo instanceof ResolvedTypeNodeInfo typeNodeInfo) {
+            describeTypeSymbol(typeNodeInfo);
+        }
+    }
+
+    private void enrichConcurrently(ForkJoinPool pool, int start, int end) {
+        int chunks = (end - start + ENRICH_CHUNK_SIZE - 1) / ENRICH_CHUNK_SIZE;
+        List<List<Runnable>> writesByChunk = new ArrayList<>(Collections.nCopies(chunks, null));
+        pool.invoke(new EnrichTask(start, end, start, writesByChunk));
+        for (List<Runnable> writes : writesByChunk) {
+            writes.forEach(Runnable::run);
+            flushIfBatchFull();
         }
     }
 
-    // Helper method to collect .java files recursively.
-    private void collectJavaFiles(File dir, List<File> javaFiles) {
-        File[] files = dir.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    collectJavaFiles(file, javaFiles);
-                } else if (file.getName().endsWith(".java")) {
-                    javaFiles.add(file);
+    // Enriches the nodes [from, to) of the round starting at roundStart, splitting at chunk boundaries.
+    // Tasks are never serialized.
+    @SuppressWarnings("serial")
+    private final class EnrichTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int roundStart;
+        private final List<List<Runnable>> writesByChunk;
+
+        EnrichTask(int from, int to, int roundStart, List<List<Runnable>> writesByChunk) {
+            this.from = from;
+            this.to = to;
+            this.roundStart = roundStart;
+            this.writesByChunk = writesByChunk;
+        }
+
+        @Override
+        protected void compute() {
+            int chunks = (to - from + ENRICH_CHUNK_SIZE - 1) / ENRICH_CHUNK_SIZE;
+            if (chunks > 1) {
+                int middle = from + (chunks / 2) * ENRICH_CHUNK_SIZE;
+                invokeAll(new EnrichTask(from, middle, roundStart, writesByChunk),
+                        new EnrichTask(middle, to, roundStart, writesByChunk));
+                return;
+            }
+            List<Runnable> writes = new ArrayList<>();
+            deferredWrites.set(writes);
+            try {
+                for (int i = from; i < to; i++) {
+                    enrichNode(nodeInfoTracker.getNode(i));
                 }
+            } finally {
+                deferredWrites.remove();
             }
+            writesByChunk.set((from - roundStart) / ENRICH_CHUNK_SIZE, writes);
         }
     }
 
+    // Lists the .java files to scan: the base path itself if it is a source file, otherwise those the
+    // source discovery finds below it, largest first.
+    public List<File> collectJavaFiles() {
+        File root = new File(baseSourcePath);
+        if (root.isDirectory()) {
+            return sourceDiscovery.discover(root.toPath());
+        } else if (root.isFile() && root.getName().endsWith(".java")) {
+            return List.of(root);
+        }
+        return List.of();
+    }
 
     private SyntaxNodeInfo registerSyntaxNode(Node node) {
+        return registerSyntaxNode(new SyntaxNodeInfo(node));
+    }
 
-        SyntaxNodeInfo nodeInfo = new SyntaxNodeInfo(node);
-        nodeInfoTracker.registerNode(nodeInfo);
+    private SyntaxNodeInfo registerSyntaxNode(SyntaxNodeInfo nodeInfo) {
+        trackNode(nodeInfo);
         registerNodeData(nodeInfo, "registered_as", "syntaxNode");
         return nodeInfo;
     }
 
-    private ResolvedDeclarationNodeInfo registerSymbol(ResolvedDeclaration resolved) {
-        ResolvedDeclarationNodeInfo symbolNodeInfo = new ResolvedDeclarationNodeInfo(resolved);
-        if (!nodeInfoTracker.registerNode(symbolNodeInfo)) {
-
-            return symbolNodeInfo;
-        }
-
+    // Symbols resolved from different places are different objects; the interner hands out one node per
+    // descriptor, so relationships always use the same node and its node type. Syntax nodes get theirs
+    // from the resolution cache, which interned it in the resolution stage.
+    private ResolvedDeclarationNodeInfo registerSymbol(ResolvedDeclarationNodeInfo symbolNodeInfo) {
+        trackNode(symbolNodeInfo);
         return symbolNodeInfo;
     }
 
-    private ResolvedTypeNodeInfo registerTypeSymbol(ResolvedType type) {
-        ResolvedTypeNodeInfo typeNodeInfo = new ResolvedTypeNodeInfo(type);
-        if (!nodeInfoTracker.registerNode(typeNodeInfo)) {
-            return typeNodeInfo;
-        }
-
+    private ResolvedTypeNodeInfo registerTypeSymbol(ResolvedTypeNodeInfo typeNodeInfo) {
+        trackNode(typeNodeInfo);
         return typeNodeInfo;
     }
 
 
     public void describeSymbolNode(ResolvedDeclarationNodeInfo nodeInfo) {
         var resolved = nodeInfo.getDeclaration();
-        ResolvedDeclarationNodeInfo symbolNodeInfo = new ResolvedDeclarationNodeInfo(resolved);
+        ResolvedDeclarationNodeInfo symbolNodeInfo = nodeInfo;
 
         registerNodeData(symbolNodeInfo, "registered_as", "resolve_declaration");
 
         registerNodeData(symbolNodeInfo, "resolved_name", resolved.getName());
         registerNodeData(symbolNodeInfo, "referencedSymbol", resolved.getName());
 
-        registerNodeData(symbolNodeInfo, "resolved_qualifiedSignature", getQualifiedSignature(resolved));
+        registerNodeData(symbolNodeInfo, "resolved_qualifiedSignature", resolutionCache.signature(symbolNodeInfo));
         if (resolved instanceof ResolvedMethodDeclaration) {
-            try {
-                var returnType = ((ResolvedMethodDeclaration) resolved).getReturnType();
-                var target = registerTypeSymbol(returnType);
+            var returnType = resolutionCache.declaredType(symbolNodeInfo);
+            if (returnType.isSolved()) {
+                var target = registerTypeSymbol((ResolvedTypeNodeInfo) returnType.value());
                 var relationship = new GraphRelationship(symbolNodeInfo, target, "return_type_of");
                 registerRelationshipData(relationship, "uses", "return_type");
-                registerNodeData(symbolNodeInfo, "returnType", ((ResolvedMethodDeclaration) resolved).getReturnType().toString());
-            } catch (UnsolvedSymbolException exception) {
-
-                registerNodeData(symbolNodeInfo, "returnType", "UnsolvedSymbolException: " + exception.getMessage());
-                System.err.println("UnsolvedSymbolException for return type in " + resolved.getName() + ": " + exception.getMessage() + " For node :" + nodeInfo);
+                registerNodeData(symbolNodeInfo, "returnType", target.getType().toString());
+            } else {
+                registerTypeFailure(symbolNodeInfo, "returnType", returnType.failure());
             }
-        } else if (resolved instanceof ResolvedValueDeclaration resolvedValueDeclaration) {
-            try {
-                var resType = resolvedValueDeclaration.getType();
-                var target = registerTypeSymbol(resType);
+        } else if (resolved instanceof ResolvedValueDeclaration) {
+            var valueType = resolutionCache.declaredType(symbolNodeInfo);
+            if (valueType.isSolved()) {
+                var target = registerTypeSymbol((ResolvedTypeNodeInfo) valueType.value());
                 var relationship = new GraphRelationship(symbolNodeInfo, target, "value_type_of");
                 registerRelationshipData(relationship, "uses", "value_type");
-                registerNodeData(symbolNodeInfo, "valueType", resType.describe());
-            } catch (MethodAmbiguityException e) {
-//                throw new RuntimeException(e);
-                registerNodeData(symbolNodeInfo, "valueType", "MethodAmbiguityException: " + e.getMessage());
-                System.err.println("MethodAmbiguityException for value type in " + resolved.getName() + ": " + e.getMessage() + " For node :" + nodeInfo);
-            } catch (UnsolvedSymbolException exception) {
-                registerNodeData(symbolNodeInfo, "valueType", "UnsolvedSymbolException: " + exception.getMessage());
-                System.err.println("UnsolvedSymbolException for value type in " + resolved.getName() + ": " + exception.getMessage() + " For node :" + nodeInfo);
+                registerNodeData(symbolNodeInfo, "valueType", target.getType().describe());
+            } else {
+                registerTypeFailure(symbolNodeInfo, "valueType", valueType.failure());
             }
         }
     }
 
+    // Stores the failure as the property value and counts it in the failure report. Failures other than
+    // unsolved, ambiguous or unsupported symbols are not expected and are rethrown.
+    private void registerTypeFailure(ResolvedDeclarationNodeInfo symbolNodeInfo, String key, RuntimeException failure) {
+        if (!(failure instanceof UnsolvedSymbolException
+                || failure instanceof MethodAmbiguityException
+                || failure instanceof UnsupportedOperationException)) {
+            throw failure;
+        }
+        registerNodeData(symbolNodeInfo, key, failure.getClass().getSimpleName() + ": " + failure.getMessage());
+        failureReport.record(key, failure);
+    }
+
     public void describeTypeSymbol(ResolvedTypeNodeInfo typeNodeInfo) {
         var type = typeNodeInfo.getType();
         registerNodeData(typeNodeInfo, "registered_as", "resolved_type");
@@ -242,17 +793,13 @@ public class JavaSolutionParser {
         registerNodeData(typeNodeInfo, "isReference", type.isReference());
         registerNodeData(typeNodeInfo, "isReferenceType", type.isReferenceType());
         if (type.isReferenceType()) {
-            var refType = type.asReferenceType();
-            var relationship = new GraphRelationship(typeNodeInfo, registerTypeSymbol(refType), "type_of");
-            registerRelationshipData(relationship, "uses", "reference_type");
-            var typeDeclaration = refType.getTypeDeclaration();
-            if (typeDeclaration.isPresent()) {
-                var typeDeclarationD = typeDeclaration.get();
-                registerNodeData(typeNodeInfo, "typeDeclaration", typeDeclarationD.getName());
-
-            }
-            if (type.isReferenceType() && typeDeclaration.isPresent()) {
-                registerSymbol(typeDeclaration.get());
+            // A reference type is an instance of its declaration: List<String> and List<Integer> are two
+            // type nodes with a type_of relationship to the one declaration node of java.util.List
+            var typeDeclaration = resolutionCache.typeDeclaration(typeNodeInfo);
+            if (typeDeclaration != null) {
+                registerNodeData(typeNodeInfo, "typeDeclaration", typeDeclaration.getDeclaration().getName());
+                var relationship = new GraphRelationship(typeNodeInfo, registerSymbol(typeDeclaration), "type_of");
+                registerRelationshipData(relationship, "uses", "reference_type");
             } else {
                 registerNodeData(typeNodeInfo, "typeDeclaration", "N/A");
             }
@@ -270,7 +817,11 @@ public class JavaSolutionParser {
         Node node = nodeInfo.node;
         registerNodeData(nodeInfo, "nodeType", node.getClass().getSimpleName());
         registerNodeData(nodeInfo, "location", node.getRange().map(range -> range.begin.toString()).orElse("unknown"));
-        registerNodeData(nodeInfo, "nodeText", node.toString());
+        if (sourceFiles.keepsText()) {
+            // A reference into the source file, whose text is only read when the node is exported, or the copied text
+            Object text = sourceFiles.nodeText(node);
+            registerNodeData(nodeInfo, "nodeText", text != null ? text : NODE_PRINTER.print(node));
+        }
         registerNodeData(nodeInfo, "nodeHash", Integer.toHexString(node.hashCode()));
         // Add file name and package declaration if available
         if (node instanceof CompilationUnit) {
@@ -284,10 +835,11 @@ public class JavaSolutionParser {
 
     }
 
+    // Links the node to its parent, or to the nearest ancestor the scan profile keeps.
     public void addParentToNode(SyntaxNodeInfo nodeInfo) {
         Node node = nodeInfo.node;
-        if (node.hasParentNode()) {
-            Node parentNode = node.getParentNode().orElseThrow();
+        Node parentNode = profile.nearestKeptAncestor(node);
+        if (parentNode != null) {
             SyntaxNodeInfo parentNodeInfo = registerSyntaxNode(parentNode);
             GraphRelationship relationship = new GraphRelationship(nodeInfo, parentNodeInfo, "parent_of");
             registerRelationshipData(relationship, "has_parent", true);
@@ -301,50 +853,61 @@ public class JavaSolutionParser {
         Node node = nodeInfo.node;
         if (node instanceof Resolvable) {
             try {
-                ResolvedDeclaration resolved = ((Resolvable<? extends ResolvedDeclaration>) node).resolve();
-                registerSymbol(resolved);
+                ResolvedDeclarationNodeInfo declaration = resolutionCache.declaration(nodeInfo);
+                if (declaration != null) {
+                    registerSymbol(declaration);
+                }
             } catch (Exception e) {
 //                symbolInfo.put("error", e.getMessage());
             }
         }
     }
 
-    // Helper method to obtain a qualified signature or description from the resolved declaration.
-    private String getQualifiedSignature(ResolvedDeclaration resolved) {
-        try {
-            if (resolved instanceof ResolvedMethodDeclaration) {
-                return ((ResolvedMethodDeclaration) resolved).getQualifiedSignature();
-            } else if (resolved instanceof ResolvedReferenceTypeDeclaration) {
-                return ((ResolvedReferenceTypeDeclaration) resolved).getQualifiedName();
-            } else if (resolved instanceof ResolvedValueDeclaration) {
-                return ((ResolvedValueDeclaration) resolved).getType().describe();
-            }
-        } catch (Exception e) {
-//            System.err.println("Error getting qualified signature for " + resolved.getName() + ": " + e.getMessage());
-        }
-        return "N/A";
-    }
-
     // New method to extract detailed symbols (declared symbol, referenced symbol, return type, etc.)
     public Map<String, Object> extractDetailedSymbols(SyntaxNodeInfo nodeInfo) {
         Node node = nodeInfo.node;
 
         Map<String, Object> symbolDetails = new HashMap<>();
         if (node instanceof Resolvable) {
+            var resolution = resolutionCache.resolve(nodeInfo);
+            if (!resolution.isSolved()) {
+                failureReport.record("resolve " + node.getClass().getSimpleName(), resolution.failure());
+                symbolDetails.put("error", resolution.failure().getMessage());
+                return symbolDetails;
+            }
+            ResolvedDeclarationNodeInfo symbolNodeInfo = resolutionCache.declaration(nodeInfo);
+            if (symbolNodeInfo == null) {
+                symbolDetails.put("error", "Not a declaration: " + resolution.value());
+                return symbolDetails;
+            }
             try {
-                ResolvedDeclaration resolved = (ResolvedDeclaration) ((Resolvable<?>) node).resolve();
-                ResolvedDeclarationNodeInfo symbolNodeInfo = registerSymbol(resolved);
+                ResolvedDeclaration resolved = symbolNodeInfo.getDeclaration();
+                registerSymbol(symbolNodeInfo);
+                String callKind = callKind(node);
+                if (callKind != null && resolved instanceof ResolvedMethodLikeDeclaration) {
+                    registerCall(nodeInfo, callKind, symbolNodeInfo);
+                }
 
                 registerNodeData(symbolNodeInfo, "declaredSymbol", resolved.getName());
-                registerNodeData(symbolNodeInfo, "qualifiedSignature", getQualifiedSignature(resolved));
-                if (resolved instanceof ResolvedMethodDeclaration resolvedMethod) {
-                    var returnType = resolvedMethod.getReturnType();
-                    registerNodeData(symbolNodeInfo, "returnType", returnType.describe());
-                    registerTypeSymbol(returnType);
-                } else if (resolved instanceof ResolvedValueDeclaration valueDeclaration) {
-                    registerNodeData(symbolNodeInfo, "valueType", valueDeclaration.getType().describe());
-                    var valueType = valueDeclaration.getType();
-                    registerTypeSymbol(valueType);
+                registerNodeData(symbolNodeInfo, "qualifiedSignature", resolutionCache.signature(symbolNodeInfo));
+                if (resolved instanceof ResolvedMethodDeclaration) {
+                    var returnType = resolutionCache.declaredType(symbolNodeInfo);
+                    if (returnType.isSolved()) {
+                        var type = (ResolvedTypeNodeInfo) returnType.value();
+                        registerNodeData(symbolNodeInfo, "returnType", type.getType().describe());
+                        registerTypeSymbol(type);
+                    } else {
+                        symbolDetails.put("error", returnType.failure().getMessage());
+                    }
+                } else if (resolved instanceof ResolvedValueDeclaration) {
+                    var valueType = resolutionCache.declaredType(symbolNodeInfo);
+                    if (valueType.isSolved()) {
+                        var type = (ResolvedTypeNodeInfo) valueType.value();
+                        registerNodeData(symbolNodeInfo, "valueType", type.getType().describe());
+                        registerTypeSymbol(type);
+                    } else {
+                        symbolDetails.put("error", valueType.failure().getMessage());
+                    }
                 } else if (resolved instanceof ResolvedReferenceTypeDeclaration typeDeclaration) {
                     registerNodeData(symbolNodeInfo, "typeDeclaration_typeName", typeDeclaration.getName());
                     registerNodeData(symbolNodeInfo, "typeDeclaration_typeQualifiedName", typeDeclaration.getQualifiedName());
@@ -357,18 +920,16 @@ public class JavaSolutionParser {
             }
         } else if (node instanceof NameExpr) {
             try {
-                ResolvedDeclaration resolved = ((NameExpr) node).resolve();
-                registerSymbol(resolved);
+                ResolvedDeclaration resolved = registerSymbol(resolutionCache.declaration(nodeInfo)).getDeclaration();
                 symbolDetails.put("nameExpr", resolved.getName());
 
 
             } catch (Exception e) {
                 symbolDetails.put("extractDetailedSymbols_error", e.getMessage());
             }
-        } else if (node instanceof com.github.javaparser.ast.expr.MethodCallExpr) { // New branch for MethodCallExpr
+        } else if (node instanceof MethodCallExpr) { // New branch for MethodCallExpr
             try {
-                ResolvedDeclaration resolved = ((com.github.javaparser.ast.expr.MethodCallExpr) node).resolve();
-                registerSymbol(resolved);
+                ResolvedDeclaration resolved = registerSymbol(resolutionCache.declaration(nodeInfo)).getDeclaration();
                 symbolDetails.put("methodCall", resolved.getName());
             } catch (Exception e) {
                 symbolDetails.put("error", e.getMessage());
@@ -376,4 +937,41 @@ public class JavaSolutionParser {
         }
         return symbolDetails;
     }
+
+    // Kind of call a syntax node makes, or null if it is not a call site.
+    private static String callKind(Node node) {
+        if (node instanceof MethodCallExpr) {
+            return "method";
+        } else if (node instanceof ObjectCreationExpr || node instanceof ExplicitConstructorInvocationStmt) {
+            return "constructor";
+        } else if (node instanceof MethodReferenceExpr) {
+            return "method_reference";
+        }
+        return null;
+    }
+
+    // Records a calls relationship from the method or constructor the call site is in to the one it
+    // calls. Calls in lambdas belong to the enclosing method, calls in field initializers and initializer
+    // blocks to the enclosing type. Several calls of the same method are one relationship.
+    private void registerCall(SyntaxNodeInfo callSite, String kind, ResolvedDeclarationNodeInfo callee) {
+        Node caller = callerOf(callSite.node);
+        if (!(caller instanceof Resolvable)) {
+            return;
+        }
+        ResolvedDeclarationNodeInfo callerDeclaration = resolutionCache.declaration(new SyntaxNodeInfo(caller));
+        if (callerDeclaration == null) {
+            return;
+        }
+        var relationship = new GraphRelationship(registerSymbol(callerDeclaration), callee, "calls");
+        registerRelationshipData(relationship, "call_kind", kind);
+    }
+
+    // The method, constructor or type declaration a call site is in, or null.
+    private static Node callerOf(Node callSite) {
+        Node caller = callSite.getParentNode().orElse(null);
+        while (caller != null && !(caller instanceof CallableDeclaration || caller instanceof TypeDeclaration)) {
+            caller = caller.getParentNode().orElse(null);
+        }
+        return caller;
+    }
 }
@@ -0,0 +1,99 @@
+package org.example;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.javassistmodel.JavassistFactory;
+import javassist.ClassPool;
+import javassist.NotFoundException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+// Drop-in for JarTypeSolver that does nothing until it is asked for a type. The first lookup loads the
+// jar's class index from the JarIndexCache; the javassist class pool is only set up once a type is
+// actually found in the jar. Dependencies that the scanned code never touches cost one index read.
+public class LazyJarTypeSolver implements TypeSolver {
+
+    private final Path jar;
+    private final JarIndexCache indexCache;
+    private volatile Map<String, String> classes;
+    private volatile ClassPool classPool;
+    private TypeSolver parent;
+
+    public LazyJarTypeSolver(Path jar, JarIndexCache indexCache) {
+        this.jar = jar;
+        this.indexCache = indexCache;
+    }
+
+    @Override
+    public TypeSolver getParent() {
+        return parent;
+    }
+
+    @Override
+    public void setParent(TypeSolver parent) {
+        if (this.parent != null) {
+            throw new IllegalStateException("This TypeSolver already has a parent.");
+        }
+        if (parent == this) {
+            throw new IllegalStateException("The parent of this TypeSolver cannot be itself.");
+        }
+        this.parent = parent;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        String poolName = classes().get(name);
+        if (poolName == null) {
+            return SymbolReference.unsolved();
+        }
+        ClassPool pool = classPool();
+        synchronized (pool) {
+            try {
+                return SymbolReference.solved(JavassistFactory.toTypeDeclaration(pool.get(poolName), getRoot()));
+            } catch (NotFoundException e) {
+                throw new IllegalStateException("Class " + poolName + " is in the index of " + jar + " but not in the jar", e);
+            }
+        }
+    }
+
+    private Map<String, String> classes() {
+        Map<String, String> loaded = classes;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = classes;
+                if (loaded == null) {
+                    try {
+                        loaded = indexCache.classesOf(jar);
+                    } catch (IOException e) {
+                        System.err.println("Warning: cannot index " + jar + ", its types will not resolve: " + e.getMessage());
+                        loaded = Map.of();
+                    }
+                    classes = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private ClassPool classPool() {
+        ClassPool pool = classPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = classPool;
+                if (pool == null) {
+                    pool = new ClassPool();
+                    try {
+                        pool.appendClassPath(jar.toAbsolutePath().toString());
+                    } catch (NotFoundException e) {
+                        throw new IllegalStateException("Cannot open " + jar, e);
+                    }
+                    classPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+}
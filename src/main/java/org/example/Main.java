@@ -2,37 +2,242 @@ package org.example;
 
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.Dictionary;
-import java.util.Map;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class Main {
+    @SuppressWarnings("try")
     public static void main(String[] args) throws XmlPullParserException, IOException {
         // Instantiate the parser
         AtomicInteger i = new AtomicInteger();
-        JavaSolutionParser parser = new JavaSolutionParser("/Users/sim/src/simple-java-scanner");
-        parser.loadSyntaxNodes();
-        parser.enrichAndDiscoverMoreNodes();
+        ScanOptions options = ScanOptions.parse(args);
+        if (options.getFromSnapshot() != null) {
+            exportSnapshot(options);
+            return;
+        }
+        JavaSolutionParser parser = new JavaSolutionParser(options.getSourcePath());
+        parser.setNodeTextLimit(options.getNodeTextLimit());
+        parser.setProfile(options.getProfile());
+        SourceDiscovery discovery = new SourceDiscovery();
+        discovery.setIncludes(options.getIncludes());
+        discovery.setExcludes(options.getExcludes());
+        discovery.setGitignore(options.isGitignore());
+        parser.setSourceDiscovery(discovery);
+        if (options.isWatch()) {
+            watch(parser, options);
+            return;
+        }
+        if (options.getManifestPath() != null) {
+            incrementalScan(parser, options);
+            return;
+        }
+        if (options.isStreaming()) {
+            streamScan(parser, options);
+            return;
+        }
+        parser.loadSyntaxNodes(selectFiles(parser, options), options.getParseThreads());
+        parser.resolveSymbols(options.getResolveThreads());
+        parser.enrichAndDiscoverMoreNodes(options.getEnrichThreads());
         // Load syntax nodes from the solution path
 
         var syntaxNodes = parser.getNodesSet();
-        Dictionary<INodeInfo, Map<String, Object>> nodes = parser.getNodeInfos();
+        PropertyStore nodes = parser.getNodeInfos();
         var relationshipMapMap = parser.relationshipData();
         var relationships = parser.getRelationships();
         // Iterate through the nodes and print their information
 
         System.out.println("Number of nodes loaded: " + syntaxNodes.size());
+        printResolutionSummary(parser);
         // Print the loaded nodes
 
-        // Export nodes into Neo4j
-        try (Neo4JExporter exporter = new Neo4JExporter()) {
-            syntaxNodes.forEach(x -> {
-                exporter.exportNode(x, nodes.get(x));
-            });
-            relationships.forEach(x -> {
-                exporter.exportRelationShip(x, relationshipMapMap.get(x));
+        // Export nodes into Neo4j, CSV files for neo4j-admin import or a snapshot
+        ScanMetrics metrics = parser.getMetrics();
+        try (IGraphSink sink = openSink(options, metrics);
+             ScanMetrics.Phase phase = metrics.phase("export")) {
+            List<NodeRecord> nodeRecords = new ArrayList<>(syntaxNodes.size());
+            for (INodeInfo node : syntaxNodes) {
+                nodeRecords.add(NodeRecord.of(node, nodes.getProperties(node)));
+            }
+            sink.writeNodes(nodeRecords);
+            List<RelationshipRecord> relationshipRecords = new ArrayList<>(relationships.size());
+            for (GraphRelationship relationship : relationships) {
+                relationshipRecords.add(RelationshipRecord.of(relationship, relationshipMapMap.get(relationship)));
+            }
+            sink.writeRelationships(relationshipRecords);
+        }
+        updateCallGraph(parser, options, null);
+        reportMetrics(metrics, options);
+    }
+
+    // Exports while scanning: batches go through a bounded queue to the exporter thread. With --window the
+    // files are scanned a window at a time and released, with --spill-dir the queue overflows to disk.
+    private static void streamScan(JavaSolutionParser parser, ScanOptions options) throws IOException {
+        Path spillDirectory = options.getSpillDirectory() == null ? null : Path.of(options.getSpillDirectory());
+        try (IGraphSink exporter = openSink(options, parser.getMetrics());
+             StreamingExportPipeline pipeline = new StreamingExportPipeline(exporter, options.getQueueCapacity(), spillDirectory)) {
+            parser.streamTo(pipeline::submit, options.getBatchSize());
+            if (options.getWindowSize() > 0) {
+                parser.scanInWindows(selectFiles(parser, options), options.getWindowSize(), options.getParseThreads(),
+                        options.getResolveThreads(), options.getEnrichThreads());
+            } else {
+                parser.loadSyntaxNodes(selectFiles(parser, options), options.getParseThreads());
+                parser.resolveSymbols(options.getResolveThreads());
+                parser.enrichAndDiscoverMoreNodes(options.getEnrichThreads());
+            }
+        }
+        printResolutionSummary(parser);
+        reportMetrics(parser.getMetrics(), options);
+    }
+
+    // Rescans only files changed since the last run recorded in the manifest.
+    private static void incrementalScan(JavaSolutionParser parser, ScanOptions options) throws IOException {
+        try (Neo4JExporter exporter = openNeo4j(options, parser.getMetrics())) {
+            IncrementalScanner scanner = new IncrementalScanner(parser, exporter,
+                    Path.of(options.getManifestPath()), options.getParseThreads());
+            if (!options.isStreaming()) {
+                scanner.run();
+                updateCallGraph(parser, options, scanner.getStaleFiles());
+            } else {
+                try (StreamingExportPipeline pipeline = new StreamingExportPipeline(exporter, options.getQueueCapacity())) {
+                    parser.streamTo(pipeline::submit, options.getBatchSize());
+                    scanner.setAwaitWrites(pipeline::flush);
+                    scanner.run();
+                }
+            }
+        }
+        printResolutionSummary(parser);
+        reportMetrics(parser.getMetrics(), options);
+    }
+
+    // Rescans changed files and their dependents whenever sources change, until the process is stopped.
+    private static void watch(JavaSolutionParser parser, ScanOptions options) throws IOException {
+        try (Neo4JExporter exporter = openNeo4j(options, parser.getMetrics());
+             WatchDaemon daemon = new WatchDaemon(parser, exporter, Path.of(options.getSourcePath()),
+                     Path.of(options.getManifestPath()), options.getParseThreads(), options.getDebounceMillis())) {
+            daemon.onScan(staleFiles -> {
+                try {
+                    updateCallGraph(parser, options, staleFiles);
+                } catch (IOException e) {
+                    System.err.println("Cannot update call graph " + options.getCallGraphPath() + ": " + e.getMessage());
+                }
             });
+            daemon.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The files of the --shard to scan, or all of them.
+    private static List<File> selectFiles(JavaSolutionParser parser, ScanOptions options) {
+        List<File> files = parser.collectJavaFiles();
+        if (options.getShardCount() == 1) {
+            return files;
+        }
+        ShardPlan plan = ShardPlan.of(files, Path.of(options.getSourcePath()), options.getShardCount());
+        List<File> shard = plan.files(options.getShard());
+        System.out.println("Shard " + (options.getShard() + 1) + "/" + options.getShardCount() + ": " + shard.size()
+                + " of " + files.size() + " files, " + plan.bytes(options.getShard()) + " of " + plan.totalBytes() + " bytes");
+        return shard;
+    }
+
+    // Exports a snapshot without scanning, or only its changes from the --diff-base snapshot. Several
+    // snapshots, e.g. of the shards of a scan, are merged into one graph.
+    @SuppressWarnings("try")
+    private static void exportSnapshot(ScanOptions options) throws IOException {
+        List<String> paths = options.getFromSnapshots();
+        if (paths.size() > 1) {
+            mergeSnapshots(paths, options);
+            return;
+        }
+        GraphSnapshot snapshot = GraphSnapshot.open(Path.of(options.getFromSnapshot()));
+        ScanMetrics metrics = new ScanMetrics();
+        try (IGraphSink sink = openSink(options, metrics);
+             ScanMetrics.Phase phase = metrics.phase("export")) {
+            if (options.getDiffBase() == null) {
+                System.out.println("Exporting " + snapshot.nodeCount() + " nodes and " + snapshot.relationshipCount()
+                        + " relationships from " + snapshot.getPath());
+                snapshot.replay(sink, options.getBatchSize());
+            } else {
+                SnapshotDiff diff = SnapshotDiff.compute(GraphSnapshot.open(Path.of(options.getDiffBase())), snapshot);
+                System.out.println("Changes since " + options.getDiffBase() + ": " + diff);
+                diff.applyTo(sink, options.getBatchSize());
+            }
+        }
+        reportMetrics(metrics, options);
+    }
+
+    @SuppressWarnings("try")
+    private static void mergeSnapshots(List<String> paths, ScanOptions options) throws IOException {
+        List<GraphSnapshot> shards = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            shards.add(GraphSnapshot.open(Path.of(path)));
+        }
+        ScanMetrics metrics = new ScanMetrics();
+        try (IGraphSink sink = openSink(options, metrics);
+             ScanMetrics.Phase phase = metrics.phase("export")) {
+            SnapshotMerge merge = SnapshotMerge.mergeInto(shards, sink, options.getBatchSize());
+            System.out.println("Merged " + shards.size() + " snapshots: " + merge);
+        }
+        reportMetrics(metrics, options);
+    }
+
+    // The sink selected by the options; Neo4j unless CSV files or a snapshot were asked for.
+    private static IGraphSink openSink(ScanOptions options, ScanMetrics metrics) {
+        if (options.getCsvDirectory() != null) {
+            return new CsvBulkImportSink(Path.of(options.getCsvDirectory()), options.isCsvGzip(), options.getCsvRotationBytes());
+        }
+        if (options.getSnapshotPath() != null) {
+            return new GraphSnapshotWriter(Path.of(options.getSnapshotPath()));
+        }
+        return openNeo4j(options, metrics);
+    }
+
+    private static Neo4JExporter openNeo4j(ScanOptions options, ScanMetrics metrics) {
+        Neo4JExporter exporter = new Neo4JExporter(options.getBatchSize(), options.getBatchesPerTransaction());
+        exporter.setMetrics(metrics);
+        exporter.setMaxInFlight(options.getExportConcurrency());
+        exporter.setMaxRetries(options.getExportRetries());
+        return exporter;
+    }
+
+    // Updates the --call-graph index with the calls of the scanned files and precomputes the closures
+    // the update evicted. staleFiles are the files an incremental scan rescanned or found deleted; null
+    // after a full scan, which replaces the whole call graph.
+    @SuppressWarnings("try")
+    private static void updateCallGraph(JavaSolutionParser parser, ScanOptions options, List<String> staleFiles) throws IOException {
+        if (options.getCallGraphPath() == null) {
+            return;
+        }
+        Path path = Path.of(options.getCallGraphPath());
+        try (ScanMetrics.Phase phase = parser.getMetrics().phase("call graph")) {
+            CallGraphIndex callGraph = staleFiles == null ? new CallGraphIndex() : CallGraphIndex.load(path);
+            callGraph.update(parser, staleFiles);
+            callGraph.precompute();
+            callGraph.save(path);
+            System.out.println("Call graph: " + callGraph + ", saved to " + path);
+        }
+    }
+
+    // Cache hit rates and the most frequent resolution failures.
+    private static void printResolutionSummary(JavaSolutionParser parser) {
+        parser.getCacheStats().forEach(System.out::println);
+        parser.getFailureReport().print(System.out, 20);
+    }
+
+    // Prints the phase timings and writes the JSON summary to the --metrics file, or prints it too.
+    private static void reportMetrics(ScanMetrics metrics, ScanOptions options) throws IOException {
+        metrics.print(System.out);
+        String json = metrics.toJson();
+        if (options.getMetricsPath() == null) {
+            System.out.println("Scan metrics: " + json);
+        } else {
+            Files.writeString(Path.of(options.getMetricsPath()), json + System.lineSeparator());
+            System.out.println("Wrote scan metrics to " + options.getMetricsPath());
         }
     }
 }
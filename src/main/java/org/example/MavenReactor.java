@@ -0,0 +1,503 @@
+package org.example;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// The modules of a Maven build and what their code can refer to, worked out from the POMs and the local
+// repository (~/.m2/repository) alone, without Maven and without network access.
+//
+// Starting from the root pom.xml, <modules> are followed recursively. For every POM the parent chain is
+// read (from the reactor via relativePath, else from the local repository) to merge properties,
+// dependencyManagement (including imported BOMs) and inherited dependencies, and ${...} expressions
+// are interpolated. Each module's classpath is the transitive closure of its dependencies, nearest
+// declaration first as in Maven, honouring exclusions and skipping optional and test dependencies of
+// dependencies. Dependencies on other modules of the reactor are resolved to their source roots.
+//
+// This is an approximation of Maven's resolution that is good enough for symbol solving: profiles,
+// relocations and version conflicts beyond nearest-wins are not handled.
+public class MavenReactor {
+
+    private static final Pattern EXPRESSION = Pattern.compile("\\$\\{([^}]+)}");
+
+    // A module of the reactor: its directory, source roots and what it depends on.
+    public static final class Module {
+        private final String groupId;
+        private final String artifactId;
+        private final String version;
+        private final Path directory;
+        private final List<File> sourceRoots;
+        private final EffectivePom pom;
+        private final List<Module> moduleDependencies = new ArrayList<>();
+        private final List<Path> classpath = new ArrayList<>();
+
+        private Module(EffectivePom pom, Path directory, List<File> sourceRoots) {
+            this.groupId = pom.groupId;
+            this.artifactId = pom.artifactId;
+            this.version = pom.version;
+            this.directory = directory;
+            this.sourceRoots = sourceRoots;
+            this.pom = pom;
+        }
+
+        public String getId() {
+            return groupId + ":" + artifactId;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public Path getDirectory() {
+            return directory;
+        }
+
+        // Existing main and test source directories of the module.
+        public List<File> getSourceRoots() {
+            return sourceRoots;
+        }
+
+        // Modules of the reactor this module depends on, directly or transitively.
+        public List<Module> getModuleDependencies() {
+            return moduleDependencies;
+        }
+
+        // Source roots a symbol solver for this module needs: its own and those of the modules it depends on.
+        public List<File> getSolverRoots() {
+            List<File> roots = new ArrayList<>(sourceRoots);
+            moduleDependencies.forEach(module -> roots.addAll(module.sourceRoots));
+            return roots;
+        }
+
+        // Jars of the module's transitive dependencies, nearest first.
+        public List<Path> getClasspath() {
+            return classpath;
+        }
+
+        @Override
+        public String toString() {
+            return getId();
+        }
+    }
+
+    // A POM merged with its parents: coordinates, properties, managed versions and dependencies.
+    private static final class EffectivePom {
+        String groupId;
+        String artifactId;
+        String version;
+        Model model;
+        final Properties properties = new Properties();
+        // Managed dependencies by groupId:artifactId[:type[:classifier]]; the nearest declaration wins
+        final Map<String, Dependency> managed = new LinkedHashMap<>();
+        final List<Dependency> dependencies = new ArrayList<>();
+    }
+
+    private final Path repository;
+    private final List<Module> modules = new ArrayList<>();
+    private final Map<String, Module> modulesById = new HashMap<>();
+    private final Map<Path, Model> models = new ConcurrentHashMap<>();
+    private final Map<String, EffectivePom> repositoryPoms = new ConcurrentHashMap<>();
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+
+    private MavenReactor(Path repository) {
+        this.repository = repository;
+    }
+
+    // Reads the reactor rooted at the directory with the default local repository. A directory
+    // without pom.xml gives an empty reactor.
+    public static MavenReactor load(Path root) throws IOException, XmlPullParserException {
+        return load(root, Path.of(System.getProperty("user.home"), ".m2", "repository"));
+    }
+
+    public static MavenReactor load(Path root, Path repository) throws IOException, XmlPullParserException {
+        MavenReactor reactor = new MavenReactor(repository);
+        Path directory = Files.isDirectory(root) ? root : root.toAbsolutePath().getParent();
+        if (directory != null && Files.isRegularFile(directory.resolve("pom.xml"))) {
+            reactor.addModule(directory.toAbsolutePath().normalize().resolve("pom.xml"), new HashSet<>());
+            reactor.modules.parallelStream().forEach(reactor::resolveDependencies);
+            if (!reactor.missing.isEmpty()) {
+                List<String> sorted = new ArrayList<>(reactor.missing);
+                Collections.sort(sorted);
+                System.err.println("Warning: " + sorted.size() + " artifacts not found in " + repository + ": "
+                        + String.join(", ", sorted.subList(0, Math.min(10, sorted.size())))
+                        + (sorted.size() > 10 ? ", ..." : ""));
+            }
+        }
+        return reactor;
+    }
+
+    public List<Module> getModules() {
+        return Collections.unmodifiableList(modules);
+    }
+
+    // The module whose directory contains the file most closely, or null if none does.
+    public Module moduleOf(Path file) {
+        Path path = file.toAbsolutePath().normalize();
+        Module best = null;
+        for (Module module : modules) {
+            if (path.startsWith(module.directory)
+                    && (best == null || module.directory.getNameCount() > best.directory.getNameCount())) {
+                best = module;
+            }
+        }
+        return best;
+    }
+
+    // Every jar on the classpath of some module, once.
+    public Set<Path> getAllJars() {
+        Set<Path> jars = new LinkedHashSet<>();
+        modules.forEach(module -> jars.addAll(module.classpath));
+        return jars;
+    }
+
+    // Source roots of every module.
+    public List<File> getAllSourceRoots() {
+        List<File> roots = new ArrayList<>();
+        modules.forEach(module -> roots.addAll(module.sourceRoots));
+        return roots;
+    }
+
+    private void addModule(Path pomFile, Set<Path> visited) throws IOException, XmlPullParserException {
+        if (!visited.add(pomFile) || !Files.isRegularFile(pomFile)) {
+            return;
+        }
+        EffectivePom pom = effectivePom(pomFile, new HashSet<>());
+        Path directory = pomFile.getParent();
+        Module module = new Module(pom, directory, sourceRoots(pom, directory));
+        modules.add(module);
+        modulesById.putIfAbsent(module.getId(), module);
+        for (String child : pom.model.getModules()) {
+            Path childPath = directory.resolve(child).normalize();
+            addModule(Files.isDirectory(childPath) ? childPath.resolve("pom.xml") : childPath, visited);
+        }
+    }
+
+    private static List<File> sourceRoots(EffectivePom pom, Path directory) {
+        var build = pom.model.getBuild();
+        List<String> configured = new ArrayList<>();
+        configured.add(build != null && build.getSourceDirectory() != null ? interpolate(build.getSourceDirectory(), pom) : "src/main/java");
+        configured.add(build != null && build.getTestSourceDirectory() != null ? interpolate(build.getTestSourceDirectory(), pom) : "src/test/java");
+        List<File> roots = new ArrayList<>();
+        for (String root : configured) {
+            Path path = directory.resolve(root).normalize();
+            if (Files.isDirectory(path)) {
+                roots.add(path.toFile());
+            }
+        }
+        return roots;
+    }
+
+    // Walks the dependency graph of a module breadth first, so the nearest declaration of an artifact wins.
+    private void resolveDependencies(Module module) {
+        record Node(Dependency dependency, Set<String> exclusions, boolean direct) {}
+        Deque<Node> queue = new ArrayDeque<>();
+        module.pom.dependencies.forEach(dependency -> queue.add(new Node(dependency, Set.of(), true)));
+        Set<String> seen = new HashSet<>();
+        seen.add(module.getId());
+        Set<Module> reactorDependencies = new LinkedHashSet<>();
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            Dependency dependency = managed(node.dependency(), module.pom);
+            String key = dependency.getGroupId() + ":" + dependency.getArtifactId();
+            if (!seen.add(key)) {
+                continue;
+            }
+            Set<String> exclusions = new HashSet<>(node.exclusions());
+            for (Exclusion exclusion : dependency.getExclusions()) {
+                exclusions.add(exclusion.getGroupId() + ":" + exclusion.getArtifactId());
+            }
+
+            List<Dependency> transitive;
+            Module reactorModule = modulesById.get(key);
+            if (reactorModule != null) {
+                reactorDependencies.add(reactorModule);
+                transitive = reactorModule.pom.dependencies;
+            } else {
+                Path jar = artifactFile(dependency);
+                if (jar != null) {
+                    module.classpath.add(jar);
+                }
+                EffectivePom pom = dependency.getVersion() == null ? null : repositoryPom(dependency.getGroupId(),
+                        dependency.getArtifactId(), dependency.getVersion());
+                transitive = pom == null ? List.of() : pom.dependencies;
+            }
+            for (Dependency next : transitive) {
+                String scope = next.getScope() == null ? "compile" : next.getScope();
+                String nextKey = next.getGroupId() + ":" + next.getArtifactId();
+                if (next.isOptional() || scope.equals("test") || scope.equals("provided") || scope.equals("system")
+                        || excluded(exclusions, next.getGroupId(), next.getArtifactId()) || seen.contains(nextKey)) {
+                    continue;
+                }
+                queue.add(new Node(next, exclusions, false));
+            }
+        }
+        module.moduleDependencies.addAll(reactorDependencies);
+    }
+
+    private static boolean excluded(Set<String> exclusions, String groupId, String artifactId) {
+        return exclusions.contains(groupId + ":" + artifactId) || exclusions.contains(groupId + ":*")
+                || exclusions.contains("*:" + artifactId) || exclusions.contains("*:*");
+    }
+
+    // The dependency with the version of the module's dependencyManagement if it has one; the
+    // module's management also overrides the versions of transitive dependencies, as in Maven.
+    private static Dependency managed(Dependency dependency, EffectivePom pom) {
+        Dependency managed = pom.managed.get(managementKey(dependency));
+        if (managed == null || managed.getVersion() == null) {
+            return dependency;
+        }
+        Dependency copy = dependency.clone();
+        copy.setVersion(managed.getVersion());
+        if (copy.getScope() == null) {
+            copy.setScope(managed.getScope());
+        }
+        if (copy.getExclusions().isEmpty()) {
+            copy.setExclusions(managed.getExclusions());
+        }
+        return copy;
+    }
+
+    private static String managementKey(Dependency dependency) {
+        String type = dependency.getType() == null ? "jar" : dependency.getType();
+        String key = dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + type;
+        return dependency.getClassifier() == null ? key : key + ":" + dependency.getClassifier();
+    }
+
+    // Jar of the dependency in the local repository, or null for POM dependencies and missing jars.
+    private Path artifactFile(Dependency dependency) {
+        String type = dependency.getType() == null ? "jar" : dependency.getType();
+        if ("system".equals(dependency.getScope()) && dependency.getSystemPath() != null) {
+            Path path = Path.of(dependency.getSystemPath());
+            return Files.isRegularFile(path) ? path : null;
+        }
+        if (type.equals("pom")) {
+            return null;
+        }
+        String version = resolveVersion(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion());
+        if (version == null) {
+            missing.add(dependency.getGroupId() + ":" + dependency.getArtifactId());
+            return null;
+        }
+        String classifier = dependency.getClassifier() != null ? "-" + dependency.getClassifier()
+                : type.equals("test-jar") ? "-tests" : "";
+        Path jar = artifactDirectory(dependency.getGroupId(), dependency.getArtifactId(), version)
+                .resolve(dependency.getArtifactId() + "-" + version + classifier + ".jar");
+        if (!Files.isRegularFile(jar)) {
+            missing.add(dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + version);
+            return null;
+        }
+        return jar;
+    }
+
+    private Path artifactDirectory(String groupId, String artifactId, String version) {
+        return repository.resolve(groupId.replace('.', File.separatorChar)).resolve(artifactId).resolve(version);
+    }
+
+    // The version itself, or for a missing version or a version range the highest version installed locally.
+    private String resolveVersion(String groupId, String artifactId, String version) {
+        if (version != null && !version.startsWith("[") && !version.startsWith("(")) {
+            return version;
+        }
+        Path directory = repository.resolve(groupId.replace('.', File.separatorChar)).resolve(artifactId);
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        try (Stream<Path> versions = Files.list(directory)) {
+            return versions.filter(Files::isDirectory)
+                    .map(path -> path.getFileName().toString())
+                    .max(MavenReactor::compareVersions)
+                    .orElse(null);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Compares versions by their numeric and textual parts, e.g. 1.10 > 1.9 and 2.0 > 2.0-beta.
+    static int compareVersions(String left, String right) {
+        String[] a = left.split("[.\\-]");
+        String[] b = right.split("[.\\-]");
+        for (int i = 0; i < Math.max(a.length, b.length); i++) {
+            String x = i < a.length ? a[i] : "";
+            String y = i < b.length ? b[i] : "";
+            int order;
+            if (x.matches("\\d+") && y.matches("\\d+")) {
+                order = new java.math.BigInteger(x).compareTo(new java.math.BigInteger(y));
+            } else if (x.isEmpty() || y.isEmpty()) {
+                // A release is newer than its qualified versions (2.0 > 2.0-beta), older than its updates (2.0 < 2.0.1)
+                String present = x.isEmpty() ? y : x;
+                int presentOrder = present.matches("\\d+") ? 1 : -1;
+                order = x.isEmpty() ? -presentOrder : presentOrder;
+            } else {
+                order = x.compareTo(y);
+            }
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    }
+
+    // Effective POM of an artifact in the local repository, or null if it is not there.
+    private EffectivePom repositoryPom(String groupId, String artifactId, String version) {
+        String resolved = resolveVersion(groupId, artifactId, version);
+        if (resolved == null) {
+            return null;
+        }
+        String key = groupId + ":" + artifactId + ":" + resolved;
+        EffectivePom cached = repositoryPoms.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Path pomFile = artifactDirectory(groupId, artifactId, resolved).resolve(artifactId + "-" + resolved + ".pom");
+        if (!Files.isRegularFile(pomFile)) {
+            missing.add(key + ":pom");
+            return null;
+        }
+        try {
+            EffectivePom pom = effectivePom(pomFile, new HashSet<>());
+            repositoryPoms.putIfAbsent(key, pom);
+            return pom;
+        } catch (IOException | XmlPullParserException e) {
+            System.err.println("Warning: cannot read " + pomFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Merges the POM with its parent chain. The visited set guards against cyclic parents.
+    private EffectivePom effectivePom(Path pomFile, Set<Path> visited) throws IOException, XmlPullParserException {
+        Model model = model(pomFile);
+        EffectivePom parent = null;
+        Parent parentRef = model.getParent();
+        if (parentRef != null && visited.add(pomFile)) {
+            Path parentFile = parentPom(pomFile, parentRef);
+            if (parentFile != null) {
+                parent = effectivePom(parentFile, visited);
+            } else {
+                missing.add(parentRef.getGroupId() + ":" + parentRef.getArtifactId() + ":" + parentRef.getVersion() + ":pom");
+            }
+        }
+
+        EffectivePom pom = new EffectivePom();
+        pom.model = model;
+        pom.groupId = model.getGroupId() != null ? model.getGroupId() : parentRef != null ? parentRef.getGroupId() : null;
+        pom.artifactId = model.getArtifactId();
+        pom.version = model.getVersion() != null ? model.getVersion() : parentRef != null ? parentRef.getVersion() : null;
+        if (parent != null) {
+            pom.properties.putAll(parent.properties);
+        }
+        pom.properties.putAll(model.getProperties());
+        pom.properties.setProperty("project.groupId", String.valueOf(pom.groupId));
+        pom.properties.setProperty("project.artifactId", String.valueOf(pom.artifactId));
+        pom.properties.setProperty("project.version", String.valueOf(pom.version));
+        pom.properties.setProperty("pom.version", String.valueOf(pom.version));
+        if (parentRef != null) {
+            pom.properties.setProperty("project.parent.groupId", parentRef.getGroupId());
+            pom.properties.setProperty("project.parent.version", String.valueOf(parentRef.getVersion()));
+        }
+        pom.version = interpolate(pom.version, pom);
+
+        if (model.getDependencyManagement() != null) {
+            for (Dependency dependency : model.getDependencyManagement().getDependencies()) {
+                Dependency managed = interpolate(dependency, pom);
+                if ("import".equals(managed.getScope()) && "pom".equals(managed.getType())) {
+                    EffectivePom bom = repositoryPom(managed.getGroupId(), managed.getArtifactId(), managed.getVersion());
+                    if (bom != null) {
+                        bom.managed.forEach(pom.managed::putIfAbsent);
+                    }
+                } else {
+                    pom.managed.putIfAbsent(managementKey(managed), managed);
+                }
+            }
+        }
+        if (parent != null) {
+            parent.managed.forEach(pom.managed::putIfAbsent);
+            pom.dependencies.addAll(parent.dependencies);
+        }
+        for (Dependency dependency : model.getDependencies()) {
+            pom.dependencies.add(managed(interpolate(dependency, pom), pom));
+        }
+        return pom;
+    }
+
+    // The parent's pom.xml: the relative path if it holds the right artifact, else the local repository.
+    private Path parentPom(Path pomFile, Parent parentRef) throws IOException, XmlPullParserException {
+        String relativePath = parentRef.getRelativePath() == null ? "../pom.xml" : parentRef.getRelativePath();
+        if (!relativePath.isEmpty()) {
+            Path candidate = pomFile.getParent().resolve(relativePath).normalize();
+            if (Files.isDirectory(candidate)) {
+                candidate = candidate.resolve("pom.xml");
+            }
+            if (Files.isRegularFile(candidate)) {
+                Model model = model(candidate);
+                String groupId = model.getGroupId() != null ? model.getGroupId()
+                        : model.getParent() != null ? model.getParent().getGroupId() : null;
+                if (parentRef.getArtifactId().equals(model.getArtifactId()) && parentRef.getGroupId().equals(groupId)) {
+                    return candidate;
+                }
+            }
+        }
+        Path repositoryPom = artifactDirectory(parentRef.getGroupId(), parentRef.getArtifactId(), parentRef.getVersion())
+                .resolve(parentRef.getArtifactId() + "-" + parentRef.getVersion() + ".pom");
+        return Files.isRegularFile(repositoryPom) ? repositoryPom : null;
+    }
+
+    private Model model(Path pomFile) throws IOException, XmlPullParserException {
+        Model model = models.get(pomFile);
+        if (model == null) {
+            try (Reader reader = Files.newBufferedReader(pomFile)) {
+                model = new MavenXpp3Reader().read(reader, false);
+            }
+            models.putIfAbsent(pomFile, model);
+        }
+        return model;
+    }
+
+    private static Dependency interpolate(Dependency dependency, EffectivePom pom) {
+        Dependency copy = dependency.clone();
+        copy.setGroupId(interpolate(copy.getGroupId(), pom));
+        copy.setArtifactId(interpolate(copy.getArtifactId(), pom));
+        copy.setVersion(interpolate(copy.getVersion(), pom));
+        copy.setClassifier(interpolate(copy.getClassifier(), pom));
+        copy.setSystemPath(interpolate(copy.getSystemPath(), pom));
+        return copy;
+    }
+
+    // Replaces ${name} with the property; unknown properties are left as they are.
+    private static String interpolate(String value, EffectivePom pom) {
+        if (value == null) {
+            return null;
+        }
+        for (int depth = 0; depth < 10 && value.contains("${"); depth++) {
+            Matcher matcher = EXPRESSION.matcher(value);
+            StringBuilder result = new StringBuilder();
+            boolean replaced = false;
+            while (matcher.find()) {
+                String name = matcher.group(1);
+                String property = pom.properties.getProperty(name, name.startsWith("env.") ? System.getenv(name.substring(4))
+                        : System.getProperty(name));
+                replaced |= property != null;
+                matcher.appendReplacement(result, Matcher.quoteReplacement(property != null ? property : matcher.group()));
+            }
+            matcher.appendTail(result);
+            value = result.toString();
+            if (!replaced) {
+                break;
+            }
+        }
+        return value;
+    }
+}
@@ -1,13 +1,13 @@
 package org.example;
 
 import org.neo4j.driver.*;
+import org.neo4j.driver.exceptions.RetryableException;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
 
-public class Neo4JExporter implements AutoCloseable {
+public class Neo4JExporter implements IGraphSink {
 
     // URI examples: "neo4j://localhost", "neo4j+s://xxx.databases.neo4j.io"
     final String dbUri = "bolt://localhost:7687";
@@ -16,20 +16,64 @@ public class Neo4JExporter implements AutoCloseable {
 
     private final Driver driver;
 
+    // Rows sent per UNWIND statement, and statements committed per transaction by the bulk export.
+    private final int batchSize;
+    private final int batchesPerTransaction;
+    private ScanMetrics metrics = new ScanMetrics();
+
+    // Concurrent export: at most maxInFlight transactions are open at once, each on its own virtual
+    // thread and session. Transactions that fail with a retryable error are retried up to maxRetries
+    // times with exponential backoff before their rows are isolated.
+    private int maxInFlight = 1;
+    private int maxRetries = 3;
+    private ExecutorService executor;
+    private Semaphore inFlight;
+
     // New sets to track labels
     private final Set<String> nodeLabels = new HashSet<>();
     private final Set<String> relationshipLabels = new HashSet<>();
 
     // Constructor: establish connection
     public Neo4JExporter() {
+        this(1000, 10);
+    }
+
+    public Neo4JExporter(int batchSize, int batchesPerTransaction) {
+        if (batchSize < 1 || batchesPerTransaction < 1) {
+            throw new IllegalArgumentException("Batch size and batches per transaction must be positive");
+        }
+        this.batchSize = batchSize;
+        this.batchesPerTransaction = batchesPerTransaction;
         driver = GraphDatabase.driver(dbUri, AuthTokens.basic(dbUser, dbPassword));
     }
 
+    // Number of transactions kept in flight at once; 1 writes them one after the other.
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("At least one transaction must be allowed in flight");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    // Attempts after the first for transactions that fail with a transient error.
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    // Records transaction latencies and row counts in the given metrics instead of private ones.
+    public void setMetrics(ScanMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Relationships are batched per label and endpoint labels, so the MATCH of both ends can use the id indexes.
+    private record RelationshipGroup(String label, String fromType, String toType) {}
+
     // Export function: upsert node with label from getNodeType() and id property from getId(), plus extra data.
     public void exportNode(INodeInfo node, Map<String, Object> data) {
         if (data == null) {
             data = new HashMap<>();
         }
+        data = TextRef.materialize(data);
         nodeLabels.add(node.getNodeType());
         try (Session session = driver.session()) {
             session.run("MERGE (n:" + node.getNodeType() + " {id: $id}) SET n += $data",
@@ -66,6 +110,329 @@ public class Neo4JExporter implements AutoCloseable {
         }
     }
 
+    // Bulk export: groups nodes by getNodeType() and upserts each group with UNWIND batches.
+    public void exportNodes(Collection<? extends INodeInfo> nodes, Function<INodeInfo, Map<String, Object>> dataLookup) {
+        List<NodeRecord> records = new ArrayList<>(nodes.size());
+        for (INodeInfo node : nodes) {
+            records.add(NodeRecord.of(node, dataLookup.apply(node)));
+        }
+        writeNodes(records);
+    }
+
+    // Bulk export: groups relationships by label() and upserts each group with UNWIND batches.
+    // Export the nodes first; relationships whose endpoints do not exist are not created.
+    public void exportRelationships(Collection<GraphRelationship> relationships,
+                                    Function<GraphRelationship, Map<String, Object>> dataLookup) {
+        List<RelationshipRecord> records = new ArrayList<>(relationships.size());
+        for (GraphRelationship relationship : relationships) {
+            records.add(RelationshipRecord.of(relationship, dataLookup.apply(relationship)));
+        }
+        writeRelationships(records);
+    }
+
+    @Override
+    public void writeNodes(List<NodeRecord> nodes) {
+        Map<String, List<Map<String, Object>>> rowsByLabel = new LinkedHashMap<>();
+        for (NodeRecord node : nodes) {
+            rowsByLabel.computeIfAbsent(node.nodeType(), k -> new ArrayList<>())
+                    .add(Map.of("id", node.id(), "data", TextRef.materialize(node.data())));
+        }
+        if (nodeLabels.addAll(rowsByLabel.keySet())) {
+            createIndexes();
+        }
+
+        if (maxInFlight > 1) {
+            // Every node is in one row only, so concurrent transactions never merge the same node
+            List<Future<Integer>> results = new ArrayList<>();
+            rowsByLabel.forEach((label, rows) -> transactions(rows).forEach(batches ->
+                    results.add(submit(() -> writeTransaction(label + " nodes", nodeCypher(label), batches)))));
+            int failed = await(results);
+            System.out.println("Exported " + (nodes.size() - failed) + "/" + nodes.size() + " nodes"
+                    + (failed > 0 ? " (" + failed + " failed)" : ""));
+            return;
+        }
+        rowsByLabel.forEach((label, rows) -> writeBatches(label + " nodes", nodeCypher(label), rows));
+    }
+
+    @Override
+    public void writeRelationships(List<RelationshipRecord> relationships) {
+        if (maxInFlight > 1) {
+            writeRelationshipsConcurrently(relationships);
+            return;
+        }
+        Map<RelationshipGroup, List<Map<String, Object>>> rowsByGroup = new LinkedHashMap<>();
+        for (RelationshipRecord relationship : relationships) {
+            var group = new RelationshipGroup(relationship.label(), relationship.fromType(), relationship.toType());
+            rowsByGroup.computeIfAbsent(group, k -> new ArrayList<>()).add(relationshipRow(relationship));
+        }
+
+        rowsByGroup.forEach((group, rows) -> {
+            relationshipLabels.add(group.label());
+            writeBatches(describe(group), relationshipCypher(group), rows);
+        });
+    }
+
+    private static String nodeCypher(String label) {
+        return "UNWIND $rows AS row MERGE (n:" + label + " {id: row.id}) SET n += row.data";
+    }
+
+    private static Map<String, Object> relationshipRow(RelationshipRecord relationship) {
+        return Map.of("fromId", relationship.fromId(), "toId", relationship.toId(), "data", relationship.data());
+    }
+
+    private static String describe(RelationshipGroup group) {
+        return group.label() + " relationships (" + group.fromType() + " -> " + group.toType() + ")";
+    }
+
+    private static String relationshipCypher(RelationshipGroup group) {
+        return "UNWIND $rows AS row " +
+                "MATCH (a:" + group.fromType() + " {id: row.fromId}), (b:" + group.toType() + " {id: row.toId}) " +
+                "MERGE (a)-[r:" + group.label() + "]->(b) SET r += row.data";
+    }
+
+    // Creating a relationship locks both endpoints, so two transactions that share an endpoint can
+    // deadlock. Node ids are hashed into 2 * maxInFlight partitions and every relationship goes to the
+    // bucket of the unordered pair of its endpoint partitions. The buckets are written in rounds of a
+    // round-robin schedule, in which no two buckets share a partition: the transactions of a round never
+    // touch the same node, while each bucket's own transactions run one after the other.
+    private void writeRelationshipsConcurrently(List<RelationshipRecord> relationships) {
+        int partitions = 2 * maxInFlight;
+        Map<Integer, Map<RelationshipGroup, List<Map<String, Object>>>> buckets = new HashMap<>();
+        for (RelationshipRecord relationship : relationships) {
+            int from = Math.floorMod(relationship.fromId(), partitions);
+            int to = Math.floorMod(relationship.toId(), partitions);
+            int bucket = Math.min(from, to) * partitions + Math.max(from, to);
+            var group = new RelationshipGroup(relationship.label(), relationship.fromType(), relationship.toType());
+            relationshipLabels.add(group.label());
+            buckets.computeIfAbsent(bucket, k -> new LinkedHashMap<>())
+                    .computeIfAbsent(group, k -> new ArrayList<>()).add(relationshipRow(relationship));
+        }
+        int failed = 0;
+        for (List<Integer> round : rounds(partitions)) {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int bucket : round) {
+                Map<RelationshipGroup, List<Map<String, Object>>> rowsByGroup = buckets.get(bucket);
+                if (rowsByGroup != null) {
+                    results.add(submit(() -> {
+                        int bucketFailures = 0;
+                        for (var entry : rowsByGroup.entrySet()) {
+                            for (var batches : transactions(entry.getValue())) {
+                                bucketFailures += writeTransaction(describe(entry.getKey()), relationshipCypher(entry.getKey()), batches);
+                            }
+                        }
+                        return bucketFailures;
+                    }));
+                }
+            }
+            failed += await(results);
+        }
+        System.out.println("Exported " + (relationships.size() - failed) + "/" + relationships.size() + " relationships"
+                + (failed > 0 ? " (" + failed + " failed)" : ""));
+    }
+
+    // Buckets of partition pairs {a, b} (as a * partitions + b with a <= b) in rounds whose pairs are
+    // disjoint: first all pairs {a, a}, then the rounds of the circle method for round-robin tournaments.
+    static List<List<Integer>> rounds(int partitions) {
+        List<List<Integer>> rounds = new ArrayList<>();
+        List<Integer> diagonal = new ArrayList<>();
+        for (int a = 0; a < partitions; a++) {
+            diagonal.add(a * partitions + a);
+        }
+        rounds.add(diagonal);
+        int n = partitions;
+        for (int r = 0; r < n - 1; r++) {
+            List<Integer> round = new ArrayList<>();
+            round.add(r * partitions + (n - 1));
+            for (int k = 1; k < n / 2; k++) {
+                int a = (r + k) % (n - 1);
+                int b = Math.floorMod(r - k, n - 1);
+                round.add(Math.min(a, b) * partitions + Math.max(a, b));
+            }
+            rounds.add(round);
+        }
+        return rounds;
+    }
+
+    @Override
+    public void deleteNodes(String nodeType, long[] ids) {
+        List<Map<String, Object>> rows = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            rows.add(Map.of("id", id));
+        }
+        writeBatches("deleted " + nodeType + " nodes",
+                "UNWIND $rows AS row MATCH (n:" + nodeType + " {id: row.id}) DETACH DELETE n", rows);
+    }
+
+    @Override
+    public void deleteRelationships(List<RelationshipRecord> relationships) {
+        Map<RelationshipGroup, List<Map<String, Object>>> rowsByGroup = new LinkedHashMap<>();
+        for (RelationshipRecord relationship : relationships) {
+            var group = new RelationshipGroup(relationship.label(), relationship.fromType(), relationship.toType());
+            rowsByGroup.computeIfAbsent(group, k -> new ArrayList<>())
+                    .add(Map.of("fromId", relationship.fromId(), "toId", relationship.toId()));
+        }
+        rowsByGroup.forEach((group, rows) -> writeBatches("deleted " + describe(group),
+                "UNWIND $rows AS row MATCH (a:" + group.fromType() + " {id: row.fromId})-[r:" + group.label()
+                        + "]->(b:" + group.toType() + " {id: row.toId}) DELETE r", rows));
+    }
+
+    // Sends the rows as batches of batchSize, committing batchesPerTransaction batches per transaction.
+    // If a transaction fails, its batches are retried one by one and failing batches are split until
+    // the bad rows are isolated, so only those rows are dropped. With more than one transaction in
+    // flight the transactions run concurrently; the call returns once all of them are done.
+    private void writeBatches(String description, String cypher, List<Map<String, Object>> rows) {
+        List<List<List<Map<String, Object>>>> transactions = transactions(rows);
+        if (maxInFlight > 1) {
+            List<Future<Integer>> results = new ArrayList<>(transactions.size());
+            for (List<List<Map<String, Object>>> batches : transactions) {
+                results.add(submit(() -> writeTransaction(description, cypher, batches)));
+            }
+            int failed = await(results);
+            System.out.println("Exported " + (rows.size() - failed) + "/" + rows.size() + " " + description +
+                    (failed > 0 ? " (" + failed + " failed)" : ""));
+            return;
+        }
+        int written = 0;
+        int failed = 0;
+        for (List<List<Map<String, Object>>> batches : transactions) {
+            int rowCount = batches.stream().mapToInt(List::size).sum();
+            int transactionFailures = writeTransaction(description, cypher, batches);
+            written += rowCount - transactionFailures;
+            failed += transactionFailures;
+            System.out.println("Exported " + written + "/" + rows.size() + " " + description +
+                    (failed > 0 ? " (" + failed + " failed)" : ""));
+        }
+    }
+
+    // The rows cut into transactions of batchesPerTransaction batches of batchSize rows.
+    private List<List<List<Map<String, Object>>>> transactions(List<Map<String, Object>> rows) {
+        int rowsPerTransaction = batchSize * batchesPerTransaction;
+        List<List<List<Map<String, Object>>>> transactions = new ArrayList<>();
+        for (int start = 0; start < rows.size(); start += rowsPerTransaction) {
+            List<List<Map<String, Object>>> batches = new ArrayList<>();
+            int end = Math.min(rows.size(), start + rowsPerTransaction);
+            for (int batchStart = start; batchStart < end; batchStart += batchSize) {
+                batches.add(rows.subList(batchStart, Math.min(end, batchStart + batchSize)));
+            }
+            transactions.add(batches);
+        }
+        return transactions;
+    }
+
+    // Commits the batches in one transaction on its own session; returns the number of rows that failed.
+    private int writeTransaction(String description, String cypher, List<List<Map<String, Object>>> batches) {
+        int rows = batches.stream().mapToInt(List::size).sum();
+        int failed = 0;
+        ExportBatchEvent event = new ExportBatchEvent();
+        event.begin();
+        long started = System.nanoTime();
+        try (Session session = driver.session()) {
+            try {
+                withRetries(description, () -> commit(session, cypher, batches));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while retrying " + description, e);
+            } catch (Exception e) {
+                System.err.println("Transaction for " + description + " failed, retrying its batches separately. Error: " + e.getMessage());
+                for (List<Map<String, Object>> batch : batches) {
+                    failed += writeIsolatingFailures(session, description, cypher, batch);
+                }
+            }
+        }
+        metrics.histogram("neo4j transaction").record(System.nanoTime() - started);
+        metrics.add("rows exported", rows - failed);
+        metrics.add("rows failed", failed);
+        event.description = description;
+        event.batches = batches.size();
+        event.rows = rows;
+        event.failedRows = failed;
+        event.commit();
+        return failed;
+    }
+
+    // Runs the batches in an explicit transaction and commits it. Unlike executeWrite this does not retry
+    // on its own, so withRetries alone decides how often a transaction is attempted.
+    private static void commit(Session session, String cypher, List<List<Map<String, Object>>> batches) {
+        try (Transaction tx = session.beginTransaction()) {
+            for (List<Map<String, Object>> batch : batches) {
+                tx.run(cypher, Values.parameters("rows", batch)).consume();
+            }
+            tx.commit();
+        }
+    }
+
+    // Runs the write again after transient failures (deadlocks, leader switches, lost connections),
+    // waiting 100 ms, 200 ms, 400 ms, ... with jitter in between.
+    private void withRetries(String description, Runnable write) throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                write.run();
+                return;
+            } catch (RuntimeException e) {
+                if (!(e instanceof RetryableException) || attempt >= maxRetries) {
+                    throw e;
+                }
+                metrics.increment("neo4j retries");
+                long backoff = (100L << attempt) + ThreadLocalRandom.current().nextLong(50);
+                System.err.println("Transient failure for " + description + ", retrying in " + backoff + " ms: " + e.getMessage());
+                Thread.sleep(backoff);
+            }
+        }
+    }
+
+    // Runs the task on a virtual thread once fewer than maxInFlight tasks are running.
+    private <T> Future<T> submit(Callable<T> task) {
+        if (executor == null) {
+            executor = Executors.newVirtualThreadPerTaskExecutor();
+            inFlight = new Semaphore(maxInFlight);
+        }
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a transaction slot", e);
+        }
+        return executor.submit(() -> {
+            try {
+                return task.call();
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    // Waits for every task and returns the sum of their results.
+    private static int await(List<Future<Integer>> results) {
+        int sum = 0;
+        try {
+            for (Future<Integer> result : results) {
+                sum += result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for export transactions", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Export transaction failed", e.getCause());
+        }
+        return sum;
+    }
+
+    // Writes one batch in its own transaction, bisecting it on failure; returns the number of rows that failed.
+    private int writeIsolatingFailures(Session session, String description, String cypher, List<Map<String, Object>> batch) {
+        try {
+            commit(session, cypher, List.of(batch));
+            return 0;
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                System.err.println("Failed to export " + description + " row: " + batch.get(0) + ". Error: " + e.getMessage());
+                return 1;
+            }
+            int middle = batch.size() / 2;
+            return writeIsolatingFailures(session, description, cypher, batch.subList(0, middle))
+                    + writeIsolatingFailures(session, description, cypher, batch.subList(middle, batch.size()));
+        }
+    }
+
     // Create indexes on tracked labels.
     public void createIndexes() {
         try (Session session = driver.session()) {
@@ -87,6 +454,9 @@ public class Neo4JExporter implements AutoCloseable {
     // Dispose connection when the class is closed.
     @Override
     public void close() {
+        if (executor != null) {
+            executor.close();
+        }
         driver.close();
     }
 }
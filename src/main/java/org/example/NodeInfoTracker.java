@@ -1,26 +1,103 @@
 package org.example;
 
-import java.util.HashSet;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+// Worklist of discovered nodes: an append-only node table, an id index for deduplication and a
+// frontier cursor. Nodes at or after the cursor have not been processed yet. Accessors return
+// read-only views of the table instead of copies.
 public class NodeInfoTracker {
-    private HashSet<INodeInfo> allNodes = new HashSet<>();
-    private HashSet<INodeInfo> newNodes = new HashSet<>();
+    private final List<INodeInfo> allNodes = new ArrayList<>();
+    private final LongIntHashMap indexById = new LongIntHashMap();
+    private int frontier = 0;
+    // Nodes before this index have been released
+    private int released = 0;
+
     public boolean registerNode(INodeInfo node) {
-        if (allNodes.contains(node)) {
+        if (!indexById.putIfAbsent(node.getId(), allNodes.size())) {
             return false; // Node already exists
         }
         allNodes.add(node);
-        newNodes.add(node);
         return true; // Node added successfully
     }
-    public void clearNewNodes() {
-        newNodes.clear();
+
+    // Returns the node registered under the id, or null (also for released syntax nodes).
+    public INodeInfo getNode(long id) {
+        int index = indexById.get(id, -1);
+        return index < 0 ? null : allNodes.get(index);
+    }
+
+    public INodeInfo getNode(int index) {
+        return allNodes.get(index);
     }
-    public HashSet<INodeInfo> getNewNodes() {
-        return new HashSet<>(newNodes); // Return a copy to avoid external modification
+
+    public int size() {
+        return allNodes.size();
     }
-    public HashSet<INodeInfo> getAllNodes() {
-        return new HashSet<>(allNodes); // Return a copy to avoid external modification
+
+    // Index of the first node that has not been handed out by nextRound().
+    public int getFrontier() {
+        return frontier;
+    }
+
+    // Moves the cursor past all nodes registered so far and returns the end of that range; the
+    // round to process is [previous frontier, returned index). Nodes registered while the round is
+    // processed form the next round.
+    public int nextRound() {
+        frontier = allNodes.size();
+        return frontier;
+    }
+
+    // Releases the nodes processed since the last release, so their ASTs and resolved symbols can be
+    // collected: syntax nodes are dropped from the table (their entries become null), the others are
+    // replaced with a NodeRef. Ids stay registered, so a released node is never discovered again.
+    // Returns the number of nodes released.
+    public int release() {
+        int count = frontier - released;
+        for (int i = released; i < frontier; i++) {
+            INodeInfo node = allNodes.get(i);
+            allNodes.set(i, node instanceof SyntaxNodeInfo ? null : NodeRef.of(node));
+        }
+        released = frontier;
+        return count;
     }
 
+    // Forgets every node, including the ids of released ones.
+    public void clear() {
+        allNodes.clear();
+        indexById.clear();
+        frontier = 0;
+        released = 0;
+    }
+
+    public boolean hasNewNodes() {
+        return frontier < allNodes.size();
+    }
+
+    // Live view of the nodes after the cursor.
+    public List<INodeInfo> getNewNodes() {
+        return tail(frontier);
+    }
+
+    // Live view of all nodes, in registration order; entries of released syntax nodes are null.
+    public List<INodeInfo> getAllNodes() {
+        return Collections.unmodifiableList(allNodes);
+    }
+
+    // Read-only view of the table from the index on; unlike ArrayList.subList it stays valid while entries are appended.
+    private List<INodeInfo> tail(int start) {
+        return new AbstractList<>() {
+            @Override
+            public INodeInfo get(int index) {
+                return allNodes.get(start + index);
+            }
+
+            @Override
+            public int size() {
+                return allNodes.size() - start;
+            }
+        };
+    }
 }
@@ -0,0 +1,11 @@
+package org.example;
+
+import java.util.Map;
+
+// Plain export form of a node: everything a sink needs, without references to the AST or resolved symbols.
+public record NodeRecord(long id, String nodeType, Map<String, Object> data) {
+
+    public static NodeRecord of(INodeInfo node, Map<String, Object> data) {
+        return new NodeRecord(node.getId(), node.getNodeType(), data == null ? Map.of() : data);
+    }
+}
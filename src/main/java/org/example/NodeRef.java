@@ -0,0 +1,20 @@
+package org.example;
+
+// Stand-in for a node whose AST or resolved symbol has been released: just its id and node type,
+// which is all relationships and the export need once the node has been enriched and flushed.
+public record NodeRef(long id, String nodeType) implements INodeInfo {
+
+    public static NodeRef of(INodeInfo node) {
+        return node instanceof NodeRef ref ? ref : new NodeRef(node.getId(), node.getNodeType());
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String getNodeType() {
+        return nodeType;
+    }
+}
@@ -0,0 +1,265 @@
+package org.example;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+// Node properties stored by schema instead of one HashMap per node. Property keys are interned to
+// small ints, every node type has its own table with one row per node, and each property is a column
+// of that table: booleans in bit sets, ints in int arrays, strings as codes into a dictionary of the
+// column, anything else as object references. A column switches to object storage if it receives
+// values of different types, and a string column does once it has too many distinct values for the
+// dictionary to pay off (node hashes, locations, text): those strings are stored as they are.
+//
+// Not thread-safe; the parser only writes to it from one thread.
+public class PropertyStore {
+
+    private final Map<String, Integer> keyIds = new HashMap<>();
+    private final List<String> keyNames = new ArrayList<>();
+    private final Map<String, Table> tables = new LinkedHashMap<>();
+
+    public void put(INodeInfo node, String key, Object value) {
+        Table table = tables.computeIfAbsent(node.getNodeType(), Table::new);
+        int row = table.rowFor(node.getId());
+        int keyId = keyIds.computeIfAbsent(key, k -> {
+            keyNames.add(k);
+            return keyNames.size() - 1;
+        });
+        table.set(row, keyId, value);
+    }
+
+    public Object get(INodeInfo node, String key) {
+        Table table = tables.get(node.getNodeType());
+        Integer keyId = keyIds.get(key);
+        if (table == null || keyId == null) {
+            return null;
+        }
+        int row = table.rowById.get(node.getId(), -1);
+        return row < 0 ? null : table.get(row, keyId);
+    }
+
+    // Properties of the node as a new map, or null if nothing was stored for it.
+    public Map<String, Object> getProperties(INodeInfo node) {
+        Table table = tables.get(node.getNodeType());
+        if (table == null) {
+            return null;
+        }
+        int row = table.rowById.get(node.getId(), -1);
+        return row < 0 ? null : table.materialize(row);
+    }
+
+    public Set<String> nodeTypes() {
+        return Collections.unmodifiableSet(tables.keySet());
+    }
+
+    // Keys that have a column in the table of the node type, in the order they were first used.
+    public List<String> keys(String nodeType) {
+        Table table = tables.get(nodeType);
+        if (table == null) {
+            return List.of();
+        }
+        List<String> keys = new ArrayList<>();
+        for (int keyId = 0; keyId < table.columns.length; keyId++) {
+            if (table.columns[keyId] != null) {
+                keys.add(keyNames.get(keyId));
+            }
+        }
+        return keys;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Table table : tables.values()) {
+            size += table.rowCount;
+        }
+        return size;
+    }
+
+    // Iterates the rows of all tables as export records. Each record's map is created when it is reached.
+    public Iterable<NodeRecord> records() {
+        return () -> tables.values().stream()
+                .flatMap(table -> IntStream.range(0, table.rowCount)
+                        .mapToObj(row -> new NodeRecord(table.ids[row], table.nodeType, table.materialize(row))))
+                .iterator();
+    }
+
+    public void clear() {
+        tables.clear();
+    }
+
+    private final class Table {
+        private final String nodeType;
+        private final LongIntHashMap rowById = new LongIntHashMap();
+        private long[] ids = new long[16];
+        private int rowCount = 0;
+        private Column[] columns = new Column[0];
+
+        Table(String nodeType) {
+            this.nodeType = nodeType;
+        }
+
+        int rowFor(long id) {
+            int row = rowById.get(id, -1);
+            if (row >= 0) {
+                return row;
+            }
+            if (rowCount == ids.length) {
+                ids = Arrays.copyOf(ids, rowCount * 2);
+            }
+            ids[rowCount] = id;
+            rowById.put(id, rowCount);
+            return rowCount++;
+        }
+
+        void set(int row, int keyId, Object value) {
+            if (keyId >= columns.length) {
+                columns = Arrays.copyOf(columns, Math.max(keyId + 1, columns.length * 2));
+            }
+            Column column = columns[keyId];
+            if (column == null) {
+                column = Column.forValue(value);
+                columns[keyId] = column;
+            }
+            if (!column.accepts(value)) {
+                column = column.toObjectColumn(PropertyStore.this, rowCount);
+                columns[keyId] = column;
+            }
+            column.set(PropertyStore.this, row, value);
+        }
+
+        Object get(int row, int keyId) {
+            return keyId < columns.length && columns[keyId] != null ? columns[keyId].get(PropertyStore.this, row) : null;
+        }
+
+        Map<String, Object> materialize(int row) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            for (int keyId = 0; keyId < columns.length; keyId++) {
+                Object value = get(row, keyId);
+                if (value != null) {
+                    properties.put(keyNames.get(keyId), value);
+                }
+            }
+            return properties;
+        }
+    }
+
+    private abstract static class Column {
+        static Column forValue(Object value) {
+            if (value instanceof Boolean) {
+                return new BooleanColumn();
+            } else if (value instanceof Integer) {
+                return new IntColumn();
+            } else if (value instanceof String) {
+                return new StringColumn();
+            }
+            return new ObjectColumn();
+        }
+
+        abstract boolean accepts(Object value);
+
+        abstract void set(PropertyStore store, int row, Object value);
+
+        abstract Object get(PropertyStore store, int row);
+
+        Column toObjectColumn(PropertyStore store, int rowCount) {
+            ObjectColumn column = new ObjectColumn();
+            for (int row = 0; row < rowCount; row++) {
+                Object value = get(store, row);
+                if (value != null) {
+                    column.set(store, row, value);
+                }
+            }
+            return column;
+        }
+    }
+
+    private static final class BooleanColumn extends Column {
+        private final BitSet present = new BitSet();
+        private final BitSet values = new BitSet();
+
+        boolean accepts(Object value) {
+            return value instanceof Boolean;
+        }
+
+        void set(PropertyStore store, int row, Object value) {
+            present.set(row);
+            values.set(row, (Boolean) value);
+        }
+
+        Object get(PropertyStore store, int row) {
+            return present.get(row) ? values.get(row) : null;
+        }
+    }
+
+    private static final class IntColumn extends Column {
+        private final BitSet present = new BitSet();
+        private int[] values = new int[16];
+
+        boolean accepts(Object value) {
+            return value instanceof Integer;
+        }
+
+        void set(PropertyStore store, int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, Math.max(row + 1, values.length * 2));
+            }
+            present.set(row);
+            values[row] = (Integer) value;
+        }
+
+        Object get(PropertyStore store, int row) {
+            return present.get(row) ? values[row] : null;
+        }
+    }
+
+    // Stores dictionary code + 1, so the zero-filled array means "absent". Takes no new value once the
+    // dictionary has more than MIN_DISTINCT values and fewer than MIN_REUSE writes per value, so a
+    // high-cardinality column moves to object storage before its dictionary outgrows the strings.
+    private static final class StringColumn extends Column {
+        private static final int MIN_DISTINCT = 256;
+        private static final int MIN_REUSE = 4;
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private int[] values = new int[16];
+        private int writes = 0;
+
+        boolean accepts(Object value) {
+            return value instanceof String string && (codes.containsKey(string)
+                    || dictionary.size() < MIN_DISTINCT || (long) dictionary.size() * MIN_REUSE < writes);
+        }
+
+        void set(PropertyStore store, int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, Math.max(row + 1, values.length * 2));
+            }
+            values[row] = codes.computeIfAbsent((String) value, v -> {
+                dictionary.add(v);
+                return dictionary.size() - 1;
+            }) + 1;
+            writes++;
+        }
+
+        Object get(PropertyStore store, int row) {
+            return row < values.length && values[row] != 0 ? dictionary.get(values[row] - 1) : null;
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+        private Object[] values = new Object[16];
+
+        boolean accepts(Object value) {
+            return true;
+        }
+
+        void set(PropertyStore store, int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, Math.max(row + 1, values.length * 2));
+            }
+            values[row] = value;
+        }
+
+        Object get(PropertyStore store, int row) {
+            return row < values.length ? values[row] : null;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.example;
+
+import java.util.Map;
+
+// Plain export form of a GraphRelationship; endpoints are referenced by id and node type.
+public record RelationshipRecord(long fromId, String fromType, long toId, String toType, String label,
+                                 Map<String, Object> data) {
+
+    public static RelationshipRecord of(GraphRelationship relationship, Map<String, Object> data) {
+        return new RelationshipRecord(relationship.from().getId(), relationship.from().getNodeType(),
+                relationship.to().getId(), relationship.to().getNodeType(), relationship.label(),
+                data == null ? Map.of() : data);
+    }
+}
@@ -1,29 +1,81 @@
 package org.example;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 
+// Append-only relationship table with a dedup set; accessors return read-only views instead of copies.
+// Released relationships leave the table and are only remembered by a 64-bit fingerprint of their
+// endpoint ids and label, which is enough to keep them from being registered again.
 public class RelationshupTracker {
-    private HashSet<GraphRelationship> allRelationships = new HashSet<>();
-    private HashSet<GraphRelationship> newRelationships = new HashSet<>();
+    private final List<GraphRelationship> allRelationships = new ArrayList<>();
+    private final HashSet<GraphRelationship> known = new HashSet<>();
+    // Fingerprints of released relationships, as a set
+    private final LongIntHashMap released = new LongIntHashMap();
+    private int frontier = 0;
 
     public boolean registerRelationship(GraphRelationship relationship) {
-        if (allRelationships.contains(relationship)) {
+        if (released.size() > 0 && released.containsKey(fingerprint(relationship))) {
+            return false; // Relationship already exported
+        }
+        if (!known.add(relationship)) {
             return false; // Relationship already exists
         }
         allRelationships.add(relationship);
-        newRelationships.add(relationship);
         return true; // Relationship added successfully
     }
 
     public void clearNewRelationships() {
-        newRelationships.clear();
+        frontier = allRelationships.size();
+    }
+
+    public void clear() {
+        allRelationships.clear();
+        known.clear();
+        released.clear();
+        frontier = 0;
+    }
+
+    // Drops every relationship from the table, keeping its fingerprint, so that relationships no longer
+    // hold on to ASTs. Only for relationships that have been handed on, e.g. streamed.
+    public void release() {
+        for (GraphRelationship relationship : allRelationships) {
+            released.put(fingerprint(relationship), 1);
+        }
+        allRelationships.clear();
+        known.clear();
+        frontier = 0;
     }
 
-    public HashSet<GraphRelationship> getNewRelationships() {
-        return new HashSet<>(newRelationships); // Return a copy to avoid external modification
+    private static long fingerprint(GraphRelationship relationship) {
+        long from = Fingerprint.mix(relationship.from().getId() + Fingerprint.of(relationship.label()));
+        return Fingerprint.mix(from ^ relationship.to().getId());
     }
 
-    public HashSet<GraphRelationship> getAllRelationships() {
-        return new HashSet<>(allRelationships); // Return a copy to avoid external modification
+    // Live view of the relationships registered since the last clearNewRelationships().
+    public List<GraphRelationship> getNewRelationships() {
+        return tail(frontier);
+    }
+
+    // Live view of all relationships since the last release, in registration order.
+    public List<GraphRelationship> getAllRelationships() {
+        return Collections.unmodifiableList(allRelationships);
+    }
+
+    // Read-only view of the table from the index on; unlike ArrayList.subList it stays valid while entries are appended.
+    private List<GraphRelationship> tail(int start) {
+        return new AbstractList<>() {
+            @Override
+            public GraphRelationship get(int index) {
+                return allRelationships.get(start + index);
+            }
+
+            @Override
+            public int size() {
+                return allRelationships.size() - start;
+            }
+        };
     }
 }
@@ -0,0 +1,287 @@
+package org.example;
+
+import com.github.javaparser.resolution.Resolvable;
+import com.github.javaparser.resolution.UnsolvedSymbolException;
+import com.github.javaparser.resolution.declarations.ResolvedDeclaration;
+import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.declarations.ResolvedValueDeclaration;
+import com.github.javaparser.resolution.types.ResolvedType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Memoized symbol resolution results. resolve() of a syntax node and the interned node of the
+// declaration it resolves to are stored under the node id, the interned node of the return type of a
+// method or the type of a value under the id of the declaration, and the interned declaration of a
+// reference type under the id of the type. Failures are stored
+// too and handed out as results, so a node that cannot be resolved is only tried once and callers
+// never have to catch anything for a known failure.
+//
+// Unsolved references are also stored under their scope and text (see SymbolDescriptors.reference),
+// so every later occurrence of the same unresolvable reference fails with a map lookup instead of a new
+// attempt. Ambiguous calls are not: whether a call is ambiguous depends on the argument types.
+//
+// Filled concurrently by the resolution stage, where every worker resolves with its own solver, and
+// read during enrichment. The resolution stage also computes everything enrichment would ask the solver
+// about: the descriptors of the interned nodes (see SymbolDescriptors), declared types, the declarations
+// of those types and qualified signatures. Enrichment workers therefore only read results, and node ids
+// never depend on which thread got to a symbol first. A lookup that misses, e.g. for a node outside the
+// resolved frontier, is computed one at a time: the resolved symbols keep the solver they came from, and
+// solvers are not thread-safe.
+public class ResolutionCache {
+
+    // Result of a resolution: the resolved value, or the exception that was thrown instead.
+    public record Resolution(Object value, RuntimeException failure) {
+        public boolean isSolved() {
+            return failure == null;
+        }
+    }
+
+    private final Map<Long, Resolution> resolvedNodes = new ConcurrentHashMap<>();
+    private final Map<Long, ResolvedDeclarationNodeInfo> declarations = new ConcurrentHashMap<>();
+    private final Map<Long, Resolution> declaredTypes = new ConcurrentHashMap<>();
+    private final Map<Long, Resolution> typeDeclarations = new ConcurrentHashMap<>();
+    private final Map<String, Resolution> unsolvedReferences = new ConcurrentHashMap<>();
+    private final Map<Long, String> signatures = new ConcurrentHashMap<>();
+    private final Object missLock = new Object();
+    private final CacheStats resolvedNodeStats = new CacheStats("resolve()");
+    private final CacheStats declarationStats = new CacheStats("declaration nodes");
+    private final CacheStats declaredTypeStats = new CacheStats("declared types");
+    private final CacheStats typeDeclarationStats = new CacheStats("type declarations");
+    private final CacheStats unsolvedReferenceStats = new CacheStats("unsolved references");
+    private final CacheStats signatureStats = new CacheStats("signatures");
+    private final ScanMetrics metrics;
+    private final SymbolInterner symbols;
+    private final LatencyHistogram resolveLatency;
+
+    // Every resolve() call that is not answered from a cache is timed and its failure counted in the
+    // metrics. Declarations are keyed by the ids of their interned nodes.
+    public ResolutionCache(ScanMetrics metrics, SymbolInterner symbols) {
+        this.metrics = metrics;
+        this.symbols = symbols;
+        this.resolveLatency = metrics.histogram("resolve()");
+    }
+
+    // Result of resolve() on the node, resolving it on the calling thread on a miss.
+    public Resolution resolve(SyntaxNodeInfo nodeInfo) {
+        Resolution resolution = resolvedNodes.get(nodeInfo.getId());
+        if (resolution != null) {
+            resolvedNodeStats.hit();
+            return resolution;
+        }
+        resolvedNodeStats.miss();
+        synchronized (missLock) {
+            return resolveNode(nodeInfo);
+        }
+    }
+
+    // Interned node of the declaration the node resolves to, or null if it resolves to something else or
+    // not at all. Its descriptor is computed once per syntax node, normally by the resolution stage.
+    public ResolvedDeclarationNodeInfo declaration(SyntaxNodeInfo nodeInfo) {
+        ResolvedDeclarationNodeInfo declaration = declarations.get(nodeInfo.getId());
+        if (declaration != null) {
+            declarationStats.hit();
+            return declaration;
+        }
+        Resolution resolution = resolvedNodes.get(nodeInfo.getId());
+        if (resolution != null && !(resolution.value() instanceof ResolvedDeclaration)) {
+            declarationStats.hit();
+            return null;
+        }
+        declarationStats.miss();
+        synchronized (missLock) {
+            return intern(nodeInfo.getId(), resolution != null ? resolution : resolveNode(nodeInfo));
+        }
+    }
+
+    // Interned node of the return type of a method or the type of a value declaration.
+    public Resolution declaredType(ResolvedDeclarationNodeInfo nodeInfo) {
+        Resolution resolution = declaredTypes.get(nodeInfo.getId());
+        if (resolution != null) {
+            declaredTypeStats.hit();
+            return resolution;
+        }
+        declaredTypeStats.miss();
+        synchronized (missLock) {
+            return store(declaredTypes, nodeInfo.getId(), compute(() -> symbols.type(computeDeclaredType(nodeInfo.getDeclaration()))));
+        }
+    }
+
+    // Interned node of the declaration a reference type is an instance of, or null if the type is not a
+    // reference type or has none. Rethrows the failure of looking it up.
+    public ResolvedDeclarationNodeInfo typeDeclaration(ResolvedTypeNodeInfo nodeInfo) {
+        Resolution resolution = typeDeclarations.get(nodeInfo.getId());
+        if (resolution != null) {
+            typeDeclarationStats.hit();
+        } else {
+            typeDeclarationStats.miss();
+            synchronized (missLock) {
+                resolution = store(typeDeclarations, nodeInfo.getId(), compute(() -> internTypeDeclaration(nodeInfo)));
+            }
+        }
+        if (!resolution.isSolved()) {
+            throw resolution.failure();
+        }
+        return (ResolvedDeclarationNodeInfo) resolution.value();
+    }
+
+    // Qualified signature of a method, qualified name of a type or type of a value; "N/A" if it cannot
+    // be resolved.
+    public String signature(ResolvedDeclarationNodeInfo nodeInfo) {
+        String signature = signatures.get(nodeInfo.getId());
+        if (signature != null) {
+            signatureStats.hit();
+            return signature;
+        }
+        signatureStats.miss();
+        synchronized (missLock) {
+            return signatures.computeIfAbsent(nodeInfo.getId(), id -> computeSignature(nodeInfo.getDeclaration()));
+        }
+    }
+
+    // Resolves the node and interns the declaration it resolves to, its type and the declaration of that
+    // type, with their signatures, ahead of enrichment, with the solver of the calling worker. Only the
+    // negative cache is counted here, the other caches count the lookups that follow.
+    void preload(SyntaxNodeInfo nodeInfo) {
+        Resolution resolution = resolvedNodes.get(nodeInfo.getId());
+        if (resolution == null) {
+            resolution = resolveNode(nodeInfo);
+        }
+        if (resolution.value() instanceof ResolvedDeclaration declaration) {
+            try {
+                long id = intern(nodeInfo.getId(), resolution).getId();
+                if ((declaration instanceof ResolvedMethodDeclaration || declaration instanceof ResolvedValueDeclaration)
+                        && !declaredTypes.containsKey(id)) {
+                    Resolution type = compute(() -> computeDeclaredType(declaration));
+                    if (type.value() instanceof ResolvedType resolvedType) {
+                        ResolvedTypeNodeInfo typeNode = symbols.type(resolvedType);
+                        preloadTypeDeclaration(typeNode.getId(), resolvedType);
+                        type = new Resolution(typeNode, null);
+                    }
+                    store(declaredTypes, id, type);
+                }
+                if (!signatures.containsKey(id)) {
+                    signatures.putIfAbsent(id, computeSignature(declaration));
+                }
+            } catch (RuntimeException e) {
+                // Left to the lookup during enrichment
+            }
+        }
+    }
+
+    // Interns the declaration of a type the calling worker resolved, unless its type node has one already.
+    private void preloadTypeDeclaration(long typeId, ResolvedType type) {
+        if (typeDeclarations.containsKey(typeId)) {
+            return;
+        }
+        Resolution typeDeclaration = compute(() -> declarationOf(type));
+        if (typeDeclaration.value() instanceof ResolvedReferenceTypeDeclaration declaration) {
+            ResolvedDeclarationNodeInfo node = symbols.declaration(declaration);
+            if (!signatures.containsKey(node.getId())) {
+                signatures.putIfAbsent(node.getId(), computeSignature(declaration));
+            }
+            typeDeclaration = new Resolution(node, null);
+        }
+        store(typeDeclarations, typeId, typeDeclaration);
+    }
+
+    // Drops the results stored by node and declaration id, which hold on to ASTs. Failures stored by
+    // reference text are kept, they only hold strings.
+    public void releaseNodes() {
+        resolvedNodes.clear();
+        declarations.clear();
+        declaredTypes.clear();
+        typeDeclarations.clear();
+        signatures.clear();
+    }
+
+    // Drops every result, including failures, e.g. after the sources changed.
+    public void clear() {
+        releaseNodes();
+        unsolvedReferences.clear();
+    }
+
+    public List<CacheStats> stats() {
+        return List.of(resolvedNodeStats, declarationStats, declaredTypeStats, typeDeclarationStats, signatureStats, unsolvedReferenceStats);
+    }
+
+    public int size() {
+        return resolvedNodes.size() + declarations.size() + declaredTypes.size() + typeDeclarations.size() + signatures.size() + unsolvedReferences.size();
+    }
+
+    private Resolution resolveNode(SyntaxNodeInfo nodeInfo) {
+        String reference = SymbolDescriptors.reference(nodeInfo.node);
+        Resolution resolution = unsolvedReferences.get(reference);
+        if (resolution != null) {
+            unsolvedReferenceStats.hit();
+        } else {
+            unsolvedReferenceStats.miss();
+            long start = System.nanoTime();
+            resolution = compute(() -> ((Resolvable<?>) nodeInfo.node).resolve());
+            resolveLatency.record(System.nanoTime() - start);
+            if (!resolution.isSolved()) {
+                metrics.recordFailure(resolution.failure());
+            }
+            if (resolution.failure() instanceof UnsolvedSymbolException) {
+                resolution = store(unsolvedReferences, reference, resolution);
+            }
+        }
+        return store(resolvedNodes, nodeInfo.getId(), resolution);
+    }
+
+    // The interned declaration node of the resolution, stored under the syntax node id.
+    private ResolvedDeclarationNodeInfo intern(long id, Resolution resolution) {
+        if (!(resolution.value() instanceof ResolvedDeclaration declaration)) {
+            return null;
+        }
+        return declarations.computeIfAbsent(id, k -> symbols.declaration(declaration));
+    }
+
+    private ResolvedDeclarationNodeInfo internTypeDeclaration(ResolvedTypeNodeInfo nodeInfo) {
+        ResolvedReferenceTypeDeclaration declaration = declarationOf(nodeInfo.getType());
+        return declaration != null ? symbols.declaration(declaration) : null;
+    }
+
+    private static ResolvedReferenceTypeDeclaration declarationOf(ResolvedType type) {
+        return type.isReferenceType() ? type.asReferenceType().getTypeDeclaration().orElse(null) : null;
+    }
+
+    private static ResolvedType computeDeclaredType(ResolvedDeclaration declaration) {
+        if (declaration instanceof ResolvedMethodDeclaration method) {
+            return method.getReturnType();
+        }
+        return ((ResolvedValueDeclaration) declaration).getType();
+    }
+
+    private static String computeSignature(ResolvedDeclaration declaration) {
+        try {
+            if (declaration instanceof ResolvedMethodDeclaration method) {
+                return method.getQualifiedSignature();
+            } else if (declaration instanceof ResolvedReferenceTypeDeclaration type) {
+                return type.getQualifiedName();
+            } else if (declaration instanceof ResolvedValueDeclaration value) {
+                return value.getType().describe();
+            }
+        } catch (Exception e) {
+            // Unresolvable parameter or value types
+        }
+        return "N/A";
+    }
+
+    // Stores the resolution unless another thread got there first; returns the stored one.
+    private static <K> Resolution store(Map<K, Resolution> cache, K key, Resolution resolution) {
+        Resolution previous = cache.putIfAbsent(key, resolution);
+        return previous != null ? previous : resolution;
+    }
+
+    private static Resolution compute(Supplier<Object> resolver) {
+        try {
+            return new Resolution(resolver.get(), null);
+        } catch (RuntimeException e) {
+            return new Resolution(null, e);
+        }
+    }
+}
@@ -3,9 +3,13 @@ package org.example;
 import com.github.javaparser.resolution.declarations.ResolvedDeclaration;
 
 public class ResolvedDeclarationNodeInfo implements INodeInfo {
+    // The same for every declaration. The JavaParser class of a declaration depends on where it was
+    // resolved from (source, jar or reflection), but nodes with the same id must have the same node type
+    // to be merged, e.g. across shards.
+    public static final String NODE_TYPE = "ResolvedDeclaration";
+
     private ResolvedDeclaration declaration = null;
-    private String id = null;
-    private String nodeType = null;
+    private long id;
 
     private  int size = -100; // Default size, can be adjusted later if needed
     public ResolvedDeclarationNodeInfo(ResolvedDeclaration declaration) {
@@ -17,15 +21,7 @@ public class ResolvedDeclarationNodeInfo implements INodeInfo {
 //            throw new IllegalArgumentException("ResolvedDeclaration must have an AST node.");
 //        }
 
-        this.id = Integer.toHexString(declaration.hashCode());
-        try {
-            this.nodeType = declaration.getClass().getSimpleName();
-            if (this.nodeType.isEmpty()) {
-                this.nodeType = "UnknownDeclaration";
-            }
-        } catch (Exception e) {
-            this.nodeType = "UnknownDeclaration";
-        }
+        this.id = Fingerprint.of("declaration", SymbolDescriptors.declaration(declaration));
     }
 
     public ResolvedDeclaration getDeclaration() {
@@ -34,18 +30,18 @@ public class ResolvedDeclarationNodeInfo implements INodeInfo {
 
 
     @Override
-    public String getId() {
+    public long getId() {
         return id;
     }
 
     @Override
     public String getNodeType() {
-        return nodeType;
+        return NODE_TYPE;
     }
 
     @Override
     public int hashCode() {
-        return declaration.hashCode();
+        return Long.hashCode(id);
     }
 
     @Override
@@ -53,8 +49,7 @@ public class ResolvedDeclarationNodeInfo implements INodeInfo {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         ResolvedDeclarationNodeInfo that = (ResolvedDeclarationNodeInfo) obj;
-        return this.getId().equals(that.getId()) &&
-                this.getNodeType().equals(that.getNodeType());
+        return this.id == that.id;
     }
 }
 
@@ -1,23 +1,16 @@
 package org.example;
 
 public class ResolvedTypeNodeInfo implements INodeInfo {
+    // The same for every type: a LazyType and a ReferenceTypeImpl of java.lang.String have the same
+    // descriptor and therefore the same id (see SymbolDescriptors.type).
+    public static final String NODE_TYPE = "ResolvedType";
+
     private com.github.javaparser.resolution.types.ResolvedType type = null;
-    private String id = null;
-    private String nodeType = null;
-    private int size = -100;
+    private long id;
 
     public ResolvedTypeNodeInfo(com.github.javaparser.resolution.types.ResolvedType type) {
         this.type = type;
-        this.id = Integer.toHexString(type.hashCode());
-        try {
-            this.nodeType = type.getClass().getSimpleName();
-            if (this.nodeType.isEmpty()) {
-                this.nodeType = "UnknownType";
-            }
-        } catch (Exception e) {
-            this.nodeType = "UnknownType";
-        }
-        size = nodeType.length();
+        this.id = Fingerprint.of("type", SymbolDescriptors.type(type));
     }
 
     public com.github.javaparser.resolution.types.ResolvedType getType() {
@@ -25,18 +18,18 @@ public class ResolvedTypeNodeInfo implements INodeInfo {
     }
 
     @Override
-    public String getId() {
+    public long getId() {
         return id;
     }
 
     @Override
     public String getNodeType() {
-        return nodeType;
+        return NODE_TYPE;
     }
 
     @Override
     public int hashCode() {
-        return type.hashCode();
+        return Long.hashCode(id);
     }
 
     @Override
@@ -44,7 +37,6 @@ public class ResolvedTypeNodeInfo implements INodeInfo {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         ResolvedTypeNodeInfo that = (ResolvedTypeNodeInfo) obj;
-        return this.getId().equals(that.getId()) &&
-                this.getNodeType().equals(that.getNodeType());
+        return this.id == that.id;
     }
 }
@@ -0,0 +1,151 @@
+package org.example;
+
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+// On-disk record of the previous scan: for every source file its size, modification time and
+// content hash, the syntax nodes that were produced from it, the declarations it declares and the
+// relationships between shared nodes that its scan produced for those declarations.
+//
+// File format, one record per line, tab separated:
+//   F <size> <lastModified> <sha256> <path>
+//   N <nodeType> <id>        (syntax nodes of the preceding F line)
+//   D <nodeType> <id>        (declarations of the preceding F line)
+//   R <fromType> <fromId> <label> <toType> <toId>        (relationships of the preceding F line)
+public class ScanManifest {
+
+    public record NodeRef(String nodeType, long id) {}
+
+    public record RelationshipRef(NodeRef from, String label, NodeRef to) {
+
+        public RelationshipRecord toRecord() {
+            return new RelationshipRecord(from.id(), from.nodeType(), to.id(), to.nodeType(), label, Map.of());
+        }
+    }
+
+    public record Entry(long size, long lastModified, String hash, List<NodeRef> nodes,
+                        List<NodeRef> declarations, List<RelationshipRef> relationships) {}
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public static ScanManifest load(Path path) throws IOException {
+        ScanManifest manifest = new ScanManifest();
+        if (!Files.exists(path)) {
+            return manifest;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            Entry entry = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("F\t")) {
+                    String[] parts = line.split("\t", 5);
+                    entry = new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3],
+                            new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+                    manifest.entries.put(parts[4], entry);
+                } else if (line.startsWith("N\t") && entry != null) {
+                    String[] parts = line.split("\t", 3);
+                    entry.nodes().add(new NodeRef(parts[1], Long.parseLong(parts[2])));
+                } else if (line.startsWith("D\t") && entry != null) {
+                    String[] parts = line.split("\t", 3);
+                    entry.declarations().add(new NodeRef(parts[1], Long.parseLong(parts[2])));
+                } else if (line.startsWith("R\t") && entry != null) {
+                    String[] parts = line.split("\t", 6);
+                    entry.relationships().add(new RelationshipRef(new NodeRef(parts[1], Long.parseLong(parts[2])),
+                            parts[3], new NodeRef(parts[4], Long.parseLong(parts[5]))));
+                }
+            }
+        }
+        return manifest;
+    }
+
+    // Writes to a temporary file first so an interrupted save does not corrupt the previous manifest.
+    public void save(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (var file : new TreeMap<>(entries).entrySet()) {
+                Entry entry = file.getValue();
+                writer.write("F\t" + entry.size() + "\t" + entry.lastModified() + "\t" + entry.hash() + "\t" + file.getKey());
+                writer.newLine();
+                for (NodeRef node : entry.nodes()) {
+                    writer.write("N\t" + node.nodeType() + "\t" + node.id());
+                    writer.newLine();
+                }
+                for (NodeRef declaration : entry.declarations()) {
+                    writer.write("D\t" + declaration.nodeType() + "\t" + declaration.id());
+                    writer.newLine();
+                }
+                for (RelationshipRef relationship : entry.relationships()) {
+                    writer.write("R\t" + relationship.from().nodeType() + "\t" + relationship.from().id() + "\t"
+                            + relationship.label() + "\t" + relationship.to().nodeType() + "\t" + relationship.to().id());
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public Entry get(String path) {
+        return entries.get(path);
+    }
+
+    public void put(String path, Entry entry) {
+        entries.put(path, entry);
+    }
+
+    public Entry remove(String path) {
+        return entries.remove(path);
+    }
+
+    public Set<String> paths() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    // Key used for a file in the manifest.
+    public static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    // Key of the file a node is declared in, or "" if it is not a source declaration.
+    public static String declaringFile(INodeInfo node) {
+        if (node instanceof ResolvedDeclarationNodeInfo declaration) {
+            return declaration.getDeclaration().toAst()
+                    .flatMap(ast -> ast.findCompilationUnit())
+                    .flatMap(CompilationUnit::getStorage)
+                    .map(storage -> key(storage.getPath()))
+                    .orElse("");
+        }
+        return "";
+    }
+
+    public static String hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,160 @@
+package org.example;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Instrumentation of a scan: a timer per phase, named counters, latency histograms and failed
+// resolutions by exception type. Phases are also emitted as JFR events. Everything can be updated
+// from any thread; entries are listed in the order they were first used.
+public class ScanMetrics {
+
+    private final Map<String, PhaseTimer> phases = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, LongAdder> counters = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, LatencyHistogram> histograms = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, LongAdder> failuresByType = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    // Runs of a phase: how often, how long in total and the longest run.
+    private static final class PhaseTimer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+    }
+
+    // A running phase; closing it stops the timer. Used in try-with-resources without being referenced,
+    // so methods that time phases suppress javac's "try" lint.
+    public final class Phase implements AutoCloseable {
+        private final String name;
+        private final long start = System.nanoTime();
+        private final ScanPhaseEvent event = new ScanPhaseEvent();
+
+        private Phase(String name) {
+            this.name = name;
+            event.begin();
+        }
+
+        @Override
+        public void close() {
+            long elapsed = System.nanoTime() - start;
+            PhaseTimer timer = phases.computeIfAbsent(name, k -> new PhaseTimer());
+            timer.count.increment();
+            timer.totalNanos.add(elapsed);
+            timer.maxNanos.accumulate(elapsed);
+            event.phase = name;
+            event.commit();
+        }
+    }
+
+    public Phase phase(String name) {
+        return new Phase(name);
+    }
+
+    public void increment(String counter) {
+        add(counter, 1);
+    }
+
+    public void add(String counter, long amount) {
+        counters.computeIfAbsent(counter, k -> new LongAdder()).add(amount);
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    public void recordFailure(Throwable failure) {
+        failuresByType.computeIfAbsent(failure.getClass().getSimpleName(), k -> new LongAdder()).increment();
+    }
+
+    public void print(PrintStream out) {
+        synchronized (phases) {
+            phases.forEach((name, timer) -> out.printf("%s: %d run(s), %.1f ms total, %.1f ms max%n",
+                    name, timer.count.sum(), timer.totalNanos.sum() / 1e6, timer.maxNanos.get() / 1e6));
+        }
+        synchronized (histograms) {
+            histograms.values().forEach(out::println);
+        }
+        synchronized (counters) {
+            counters.forEach((name, value) -> out.println(name + ": " + value.sum()));
+        }
+        synchronized (failuresByType) {
+            if (!failuresByType.isEmpty()) {
+                out.println("Failed resolutions by type: " + failuresByType);
+            }
+        }
+    }
+
+    // Summary as a JSON object: phases, counters, histograms and failures by exception type.
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"phases\":{");
+        synchronized (phases) {
+            appendEntries(json, phases, timer -> "{\"count\":" + timer.count.sum()
+                    + ",\"totalMillis\":" + millis(timer.totalNanos.sum())
+                    + ",\"maxMillis\":" + millis(timer.maxNanos.get()) + "}");
+        }
+        json.append("},\"counters\":{");
+        synchronized (counters) {
+            appendEntries(json, counters, value -> Long.toString(value.sum()));
+        }
+        json.append("},\"histograms\":{");
+        synchronized (histograms) {
+            appendEntries(json, histograms, histogram -> "{\"count\":" + histogram.getCount()
+                    + ",\"meanMicros\":" + micros(histogram.getMeanNanos())
+                    + ",\"p50Micros\":" + micros(histogram.percentileNanos(0.5))
+                    + ",\"p90Micros\":" + micros(histogram.percentileNanos(0.9))
+                    + ",\"p99Micros\":" + micros(histogram.percentileNanos(0.99))
+                    + ",\"maxMicros\":" + micros(histogram.getMaxNanos()) + "}");
+        }
+        json.append("},\"failuresByType\":{");
+        synchronized (failuresByType) {
+            appendEntries(json, failuresByType, value -> Long.toString(value.sum()));
+        }
+        return json.append("}}").toString();
+    }
+
+    private static <V> void appendEntries(StringBuilder json, Map<String, V> entries, Function<V, String> value) {
+        boolean first = true;
+        for (Map.Entry<String, V> entry : entries.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            appendString(json, entry.getKey());
+            json.append(':').append(value.apply(entry.getValue()));
+        }
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String micros(double nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e3);
+    }
+}
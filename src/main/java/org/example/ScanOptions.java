@@ -0,0 +1,297 @@
+package org.example;
+
+import java.util.List;
+
+// Command line options for a scan. Arguments are "--name value" pairs; an argument without
+// a leading "--" is taken as the source path.
+public class ScanOptions {
+    private String sourcePath = "/Users/sim/src/simple-java-scanner";
+    private int parseThreads = Runtime.getRuntime().availableProcessors();
+    private int resolveThreads = Runtime.getRuntime().availableProcessors();
+    private int enrichThreads = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 1000;
+    private int batchesPerTransaction = 10;
+    private boolean streaming = false;
+    private int queueCapacity = 4;
+    private String manifestPath = null;
+    private int nodeTextLimit = SourceFiles.FULL_TEXT;
+    private ScanProfile profile = ScanProfile.FULL;
+    private String csvDirectory = null;
+    private boolean csvGzip = false;
+    private long csvRotationBytes = 256L << 20;
+    private String snapshotPath = null;
+    private String fromSnapshot = null;
+    private String diffBase = null;
+    private String metricsPath = null;
+    private int windowSize = 0;
+    private String spillDirectory = null;
+    private int exportConcurrency = 4;
+    private int exportRetries = 3;
+    private String callGraphPath = null;
+    private boolean watch = false;
+    private long debounceMillis = 500;
+    private int shard = 0;
+    private int shardCount = 1;
+    private List<String> includes = List.of();
+    private List<String> excludes = List.of();
+    private boolean gitignore = true;
+
+    public static ScanOptions parse(String[] args) {
+        ScanOptions options = new ScanOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                options.sourcePath = arg;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for option " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--parse-threads" -> options.parseThreads = Integer.parseInt(value);
+                case "--resolve-threads" -> options.resolveThreads = Integer.parseInt(value);
+                case "--enrich-threads" -> options.enrichThreads = Integer.parseInt(value);
+                case "--batch-size" -> options.batchSize = Integer.parseInt(value);
+                case "--batches-per-tx" -> options.batchesPerTransaction = Integer.parseInt(value);
+                case "--stream" -> options.streaming = Boolean.parseBoolean(value);
+                case "--queue-capacity" -> options.queueCapacity = Integer.parseInt(value);
+                case "--manifest" -> options.manifestPath = value;
+                case "--node-text" -> options.nodeTextLimit = parseNodeTextLimit(value);
+                case "--profile" -> options.profile = ScanProfile.parse(value);
+                case "--csv" -> options.csvDirectory = value;
+                case "--csv-gzip" -> options.csvGzip = Boolean.parseBoolean(value);
+                case "--csv-rotate-mb" -> options.csvRotationBytes = Long.parseLong(value) << 20;
+                case "--snapshot" -> options.snapshotPath = value;
+                case "--from-snapshot" -> options.fromSnapshot = value;
+                case "--diff-base" -> options.diffBase = value;
+                case "--metrics" -> options.metricsPath = value;
+                case "--window" -> options.windowSize = Integer.parseInt(value);
+                case "--spill-dir" -> options.spillDirectory = value;
+                case "--export-concurrency" -> options.exportConcurrency = Integer.parseInt(value);
+                case "--export-retries" -> options.exportRetries = Integer.parseInt(value);
+                case "--call-graph" -> options.callGraphPath = value;
+                case "--watch" -> options.watch = Boolean.parseBoolean(value);
+                case "--debounce-ms" -> options.debounceMillis = Long.parseLong(value);
+                case "--shard" -> options.parseShard(value);
+                case "--include" -> options.includes = List.of(value.split(","));
+                case "--exclude" -> options.excludes = List.of(value.split(","));
+                case "--gitignore" -> options.gitignore = Boolean.parseBoolean(value);
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (options.csvDirectory != null && (options.streaming || options.manifestPath != null)) {
+            // The import tool needs every node in one row and cannot delete
+            throw new IllegalArgumentException("--csv needs a full scan without --stream or --manifest");
+        }
+        if (options.snapshotPath != null && (options.csvDirectory != null || options.manifestPath != null)) {
+            throw new IllegalArgumentException("--snapshot cannot be combined with --csv or --manifest");
+        }
+        if (options.windowSize > 0) {
+            // Windows are streamed; the data of released files cannot be merged into CSV rows or a manifest
+            if (options.csvDirectory != null || options.manifestPath != null) {
+                throw new IllegalArgumentException("--window cannot be combined with --csv or --manifest");
+            }
+            options.streaming = true;
+        }
+        if (options.watch && (options.manifestPath == null || options.streaming)) {
+            // Every rescan is incremental, so the manifest must say what the sink already holds
+            throw new IllegalArgumentException("--watch needs --manifest and cannot be combined with --stream or --window");
+        }
+        if (options.callGraphPath != null && options.streaming) {
+            // The call graph is read from the relationships the parser holds at the end of the scan
+            throw new IllegalArgumentException("--call-graph cannot be combined with --stream or --window");
+        }
+        if (options.diffBase != null && options.fromSnapshot == null) {
+            throw new IllegalArgumentException("--diff-base needs --from-snapshot");
+        }
+        if (options.diffBase != null && options.getFromSnapshots().size() > 1) {
+            throw new IllegalArgumentException("--diff-base needs a single --from-snapshot");
+        }
+        if (options.diffBase != null && options.csvDirectory != null) {
+            // A diff deletes the nodes that are gone, which the import files cannot express
+            throw new IllegalArgumentException("--diff-base cannot be combined with --csv");
+        }
+        if (options.shardCount > 1 && options.watch) {
+            // Rescans cover every changed file, not the files of one shard
+            throw new IllegalArgumentException("--shard cannot be combined with --watch");
+        }
+        if (options.shardCount > 1 && (options.manifestPath != null || options.csvDirectory != null)) {
+            // Shards share declaration nodes, which only a merge or an upserting sink combines
+            throw new IllegalArgumentException("--shard cannot be combined with --manifest or --csv");
+        }
+        if (options.shardCount > 1 && options.callGraphPath != null) {
+            // Every shard would replace the shared index with the calls of its own files
+            throw new IllegalArgumentException("--shard cannot be combined with --call-graph");
+        }
+        return options;
+    }
+
+    // "i/N": scan the i-th of N shards of the source files, 1-based.
+    private void parseShard(String value) {
+        int slash = value.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("--shard must be i/N, not " + value);
+        }
+        int index = Integer.parseInt(value.substring(0, slash));
+        int count = Integer.parseInt(value.substring(slash + 1));
+        if (count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException("--shard must be i/N with 1 <= i <= N, not " + value);
+        }
+        shard = index - 1;
+        shardCount = count;
+    }
+
+    // "full", "none" or the maximum number of characters to keep.
+    private static int parseNodeTextLimit(String value) {
+        return switch (value) {
+            case "full" -> SourceFiles.FULL_TEXT;
+            case "none" -> SourceFiles.NO_TEXT;
+            default -> Integer.parseInt(value);
+        };
+    }
+
+    public String getSourcePath() {
+        return sourcePath;
+    }
+
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    public int getResolveThreads() {
+        return resolveThreads;
+    }
+
+    public int getEnrichThreads() {
+        return enrichThreads;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getBatchesPerTransaction() {
+        return batchesPerTransaction;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    // Number of batches that may wait for the exporter before the scan blocks.
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    // Path of the incremental scan manifest, or null for a full scan.
+    public String getManifestPath() {
+        return manifestPath;
+    }
+
+    public int getNodeTextLimit() {
+        return nodeTextLimit;
+    }
+
+    public ScanProfile getProfile() {
+        return profile;
+    }
+
+    // Directory for neo4j-admin import files instead of exporting to Neo4j, or null.
+    public String getCsvDirectory() {
+        return csvDirectory;
+    }
+
+    public boolean isCsvGzip() {
+        return csvGzip;
+    }
+
+    public long getCsvRotationBytes() {
+        return csvRotationBytes;
+    }
+
+    // File to write a graph snapshot to instead of exporting to Neo4j, or null.
+    public String getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    // Snapshot to export instead of scanning, or null. May be a comma-separated list of shard snapshots.
+    public String getFromSnapshot() {
+        return fromSnapshot;
+    }
+
+    // The snapshots of --from-snapshot, merged in this order; empty if none.
+    public List<String> getFromSnapshots() {
+        return fromSnapshot == null ? List.of() : List.of(fromSnapshot.split(","));
+    }
+
+    // Snapshot the sink already holds; only the changes from it to --from-snapshot are exported.
+    public String getDiffBase() {
+        return diffBase;
+    }
+
+    // File for the JSON metrics summary of the run; printed to stdout if null.
+    public String getMetricsPath() {
+        return metricsPath;
+    }
+
+    // Number of files scanned and released at a time, or 0 to keep the whole repository in memory.
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    // Directory where streamed batches the exporter has not caught up with are spilled, or null to wait for it.
+    public String getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    // Neo4j transactions kept in flight at once; 1 exports synchronously.
+    public int getExportConcurrency() {
+        return exportConcurrency;
+    }
+
+    // Retries of a Neo4j transaction that failed with a transient error; 0 disables retrying.
+    public int getExportRetries() {
+        return exportRetries;
+    }
+
+    // File the call graph index with its precomputed closures is kept in, or null for none.
+    public String getCallGraphPath() {
+        return callGraphPath;
+    }
+
+    // Keep running and rescan whenever sources change.
+    public boolean isWatch() {
+        return watch;
+    }
+
+    // Quiet period after a file event before a watch rescan starts.
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    // Shard of the source files to scan, 0-based; see getShardCount.
+    public int getShard() {
+        return shard;
+    }
+
+    // Number of shards the source files are split into; 1 scans them all.
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    // Globs of the files to scan, relative to the source path; all .java files if empty.
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    // Globs of files and directories not to scan, e.g. "**/src/test/**".
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    // Skip what .gitignore files below the source path ignore.
+    public boolean isGitignore() {
+        return gitignore;
+    }
+}
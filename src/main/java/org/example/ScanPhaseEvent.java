@@ -0,0 +1,17 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event spanning one phase of the scan, e.g. parse, resolve or one enrichment round.
+@Name("org.example.ScanPhase")
+@Label("Scan Phase")
+@Category("Java Scanner")
+@Description("A phase of the scan pipeline")
+public class ScanPhaseEvent extends jdk.jfr.Event {
+
+    @Label("Phase")
+    public String phase;
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.PackageDeclaration;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.MethodReferenceExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.stmt.ExplicitConstructorInvocationStmt;
+import com.github.javaparser.ast.type.TypeParameter;
+
+import java.util.List;
+
+// Which syntax nodes a scan keeps. Nodes of other classes are skipped when files are loaded, so they are
+// never registered, resolved, enriched or exported; the parent_of chain links every kept node to its
+// nearest kept ancestor.
+public enum ScanProfile {
+    // Files, types, their members, parameters and type parameters.
+    DECLARATIONS_ONLY("declarations-only", List.of(
+            CompilationUnit.class, PackageDeclaration.class, ImportDeclaration.class,
+            BodyDeclaration.class, VariableDeclarator.class, Parameter.class, TypeParameter.class)),
+    // Declarations plus method calls, constructor calls and method references.
+    DECLARATIONS_AND_CALLS("declarations+calls", List.of(
+            CompilationUnit.class, PackageDeclaration.class, ImportDeclaration.class,
+            BodyDeclaration.class, VariableDeclarator.class, Parameter.class, TypeParameter.class,
+            MethodCallExpr.class, ObjectCreationExpr.class, MethodReferenceExpr.class,
+            ExplicitConstructorInvocationStmt.class)),
+    // Every node.
+    FULL("full", List.of(Node.class));
+
+    private final String name;
+    private final List<Class<? extends Node>> keptClasses;
+
+    // Whether nodes of a class are kept, computed once per concrete node class.
+    private final ClassValue<Boolean> kept = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> nodeClass) {
+            return keptClasses.stream().anyMatch(kept -> kept.isAssignableFrom(nodeClass));
+        }
+    };
+
+    ScanProfile(String name, List<Class<? extends Node>> keptClasses) {
+        this.name = name;
+        this.keptClasses = keptClasses;
+    }
+
+    public boolean keeps(Node node) {
+        return kept.get(node.getClass());
+    }
+
+    // The closest ancestor of the node that this profile keeps, if any.
+    public Node nearestKeptAncestor(Node node) {
+        Node ancestor = node.getParentNode().orElse(null);
+        while (ancestor != null && !keeps(ancestor)) {
+            ancestor = ancestor.getParentNode().orElse(null);
+        }
+        return ancestor;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static ScanProfile parse(String name) {
+        for (ScanProfile profile : values()) {
+            if (profile.name.equals(name)) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scan profile " + name);
+    }
+}
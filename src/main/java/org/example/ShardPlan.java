@@ -0,0 +1,78 @@
+package org.example;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+
+// Splits the source files of a scan into shards that separate processes (or machines) scan on their own,
+// each into its own snapshot, to be combined with SnapshotMerge. The plan depends only on the files'
+// paths relative to the source root and their sizes, so every process computes the same plan without
+// talking to the others: largest files first, each to the shard with the fewest bytes so far (ties to the
+// lower shard, equal sizes by path). File size stands in for parse and resolve cost.
+//
+// Every shard resolves against the whole source tree; only the files whose syntax is scanned are split.
+public class ShardPlan {
+
+    private final List<List<File>> shards;
+    private final long[] bytes;
+
+    private ShardPlan(List<List<File>> shards, long[] bytes) {
+        this.shards = shards;
+        this.bytes = bytes;
+    }
+
+    public static ShardPlan of(List<File> files, Path root, int shardCount) {
+        Path base = root.toAbsolutePath().normalize();
+        Map<File, String> relativePaths = new HashMap<>();
+        Map<File, Long> sizes = new HashMap<>();
+        for (File file : files) {
+            relativePaths.put(file, relativePath(base, file));
+            sizes.put(file, file.length());
+        }
+        List<File> bySize = new ArrayList<>(files);
+        bySize.sort(Comparator.comparing((File file) -> sizes.get(file)).reversed()
+                .thenComparing(relativePaths::get));
+
+        List<List<File>> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+        long[] bytes = new long[shardCount];
+        for (File file : bySize) {
+            int lightest = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (bytes[i] < bytes[lightest]) {
+                    lightest = i;
+                }
+            }
+            shards.get(lightest).add(file);
+            bytes[lightest] += sizes.get(file);
+        }
+        // Each shard keeps the largest-first order, like an unsharded scan
+        return new ShardPlan(shards, bytes);
+    }
+
+    // Files of the shard, 0-based.
+    public List<File> files(int shard) {
+        return Collections.unmodifiableList(shards.get(shard));
+    }
+
+    public long bytes(int shard) {
+        return bytes[shard];
+    }
+
+    public long totalBytes() {
+        return Arrays.stream(bytes).sum();
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    // Separators normalized, so plans agree between platforms.
+    private static String relativePath(Path base, File file) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        String relative = path.startsWith(base) ? base.relativize(path).toString() : path.toString();
+        return relative.replace(File.separatorChar, '/');
+    }
+}
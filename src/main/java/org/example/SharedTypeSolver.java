@@ -0,0 +1,156 @@
+package org.example;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.cache.Cache;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.cache.DefaultCacheStats;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Type solver for libraries (JDK classes and dependency jars) that several CombinedTypeSolvers use at
+// the same time. JarTypeSolver only loads classes through javassist's synchronized class pool, and the
+// type cache of the combined solver is backed by a ConcurrentHashMap, so lookups are safe from any thread.
+//
+// A type solver can only have one parent, so every user gets its own view(); types found in the
+// libraries are still resolved further against the libraries alone, never against project sources.
+//
+// Every jar of a reactor gets exactly one solver, however many modules depend on it, so a jar is indexed
+// and loaded once. A module only sees the jars of its own classpath through view(classpath); the
+// answers of such a view are cached per classpath and shared by all of its users. Types referenced from
+// inside a jar are still resolved against all libraries, as the jar solvers have a single parent.
+public class SharedTypeSolver {
+
+    private final CombinedTypeSolver libraries;
+    private final ReflectionTypeSolver jdk = new ReflectionTypeSolver();
+    private final Map<Path, LazyJarTypeSolver> jars = new LinkedHashMap<>();
+    private final Map<List<Path>, Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>>> classpathCaches = new ConcurrentHashMap<>();
+
+    // JDK classes plus every jar on the classpath of some module of the reactor.
+    public SharedTypeSolver(MavenReactor reactor) {
+        this.libraries = new CombinedTypeSolver(CombinedTypeSolver.ExceptionHandlers.IGNORE_NONE, List.of(), new ConcurrentCache<>());
+        libraries.add(jdk);
+        for (Path jar : reactor.getAllJars()) {
+            LazyJarTypeSolver solver = new LazyJarTypeSolver(jar, JarIndexCache.getDefault());
+            jars.put(jar, solver);
+            libraries.add(solver);
+        }
+    }
+
+    // Number of distinct jars the solvers are shared between.
+    public int getJarCount() {
+        return jars.size();
+    }
+
+    // A type solver that answers from all shared libraries and can be added to one CombinedTypeSolver.
+    public TypeSolver view() {
+        return new View(libraries::tryToSolveType);
+    }
+
+    // Same as view(), but only answers types of the JDK and of the given jars, in classpath order.
+    public TypeSolver view(List<Path> classpath) {
+        List<TypeSolver> delegates = new ArrayList<>();
+        for (Path jar : classpath) {
+            LazyJarTypeSolver solver = jars.get(jar);
+            if (solver != null) {
+                delegates.add(solver);
+            }
+        }
+        Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> cache =
+                classpathCaches.computeIfAbsent(List.copyOf(classpath), k -> new ConcurrentCache<>());
+        return new View(name -> {
+            Optional<SymbolReference<ResolvedReferenceTypeDeclaration>> cached = cache.get(name);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+            SymbolReference<ResolvedReferenceTypeDeclaration> result = jdk.tryToSolveType(name);
+            for (int i = 0; !result.isSolved() && i < delegates.size(); i++) {
+                result = delegates.get(i).tryToSolveType(name);
+            }
+            cache.put(name, result);
+            return result;
+        });
+    }
+
+    private static final class View implements TypeSolver {
+        private final Function<String, SymbolReference<ResolvedReferenceTypeDeclaration>> delegate;
+        private TypeSolver parent;
+
+        View(Function<String, SymbolReference<ResolvedReferenceTypeDeclaration>> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public TypeSolver getParent() {
+            return parent;
+        }
+
+        @Override
+        public void setParent(TypeSolver parent) {
+            if (this.parent != null) {
+                throw new IllegalStateException("This TypeSolver already has a parent.");
+            }
+            this.parent = parent;
+        }
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+            return delegate.apply(name);
+        }
+    }
+
+    // Cache without eviction; the set of library types a scan asks for is bounded by the code it scans.
+    private static final class ConcurrentCache<K, V> implements Cache<K, V> {
+        private final Map<K, V> entries = new ConcurrentHashMap<>();
+        private final DefaultCacheStats stats = new DefaultCacheStats();
+
+        @Override
+        public void put(K key, V value) {
+            entries.put(key, value);
+        }
+
+        @Override
+        public Optional<V> get(K key) {
+            return Optional.ofNullable(entries.get(key));
+        }
+
+        @Override
+        public void remove(K key) {
+            entries.remove(key);
+        }
+
+        @Override
+        public void removeAll() {
+            entries.clear();
+        }
+
+        @Override
+        public boolean contains(K key) {
+            return entries.containsKey(key);
+        }
+
+        @Override
+        public long size() {
+            return entries.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        @Override
+        public com.github.javaparser.resolution.cache.CacheStats stats() {
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.example;
+
+import java.util.*;
+
+// Differences between two snapshots, found by walking both sorted node and relationship tables side by
+// side. Nodes are matched by type and id, relationships by endpoints and label. Only the changed indexes
+// are held on the heap; records are read from the mapped snapshots when the diff is applied.
+public class SnapshotDiff {
+
+    private final GraphSnapshot before;
+    private final GraphSnapshot after;
+    // Indexes into after
+    private final BitSet addedNodes = new BitSet();
+    private final BitSet changedNodes = new BitSet();
+    private final BitSet addedRelationships = new BitSet();
+    private final BitSet changedRelationships = new BitSet();
+    // Indexes into before
+    private final BitSet removedNodes = new BitSet();
+    private final BitSet removedRelationships = new BitSet();
+    // Nodes of after that lost properties or outgoing relationships; the sink can only express that
+    // by deleting the node and writing it again with all its relationships
+    private final BitSet rewrittenNodes = new BitSet();
+
+    private SnapshotDiff(GraphSnapshot before, GraphSnapshot after) {
+        this.before = before;
+        this.after = after;
+    }
+
+    public static SnapshotDiff compute(GraphSnapshot before, GraphSnapshot after) {
+        SnapshotDiff diff = new SnapshotDiff(before, after);
+        diff.compareNodes();
+        diff.compareRelationships();
+        return diff;
+    }
+
+    private void compareNodes() {
+        int b = 0;
+        int a = 0;
+        while (b < before.nodeCount() || a < after.nodeCount()) {
+            int order = b == before.nodeCount() ? 1
+                    : a == after.nodeCount() ? -1
+                    : before.compareNode(b, after.nodeType(a), after.nodeId(a));
+            if (order < 0) {
+                removedNodes.set(b++);
+            } else if (order > 0) {
+                addedNodes.set(a++);
+            } else {
+                Map<String, Object> old = before.nodeProperties(b++);
+                Map<String, Object> current = after.nodeProperties(a);
+                if (!old.equals(current)) {
+                    changedNodes.set(a);
+                    if (!current.keySet().containsAll(old.keySet())) {
+                        rewrittenNodes.set(a);
+                    }
+                }
+                a++;
+            }
+        }
+    }
+
+    private void compareRelationships() {
+        int b = 0;
+        int a = 0;
+        while (b < before.relationshipCount() || a < after.relationshipCount()) {
+            int order = b == before.relationshipCount() ? 1
+                    : a == after.relationshipCount() ? -1
+                    : compareRelationship(b, a);
+            if (order < 0) {
+                removedRelationships.set(b);
+                // The relationship can only be removed together with its start node, if that remains
+                int from = before.relationshipFrom(b);
+                int node = after.findNode(before.nodeType(from), before.nodeId(from));
+                if (node >= 0) {
+                    rewrittenNodes.set(node);
+                }
+                b++;
+            } else if (order > 0) {
+                addedRelationships.set(a++);
+            } else {
+                Map<String, Object> old = before.relationshipProperties(b++);
+                Map<String, Object> current = after.relationshipProperties(a);
+                if (!old.equals(current)) {
+                    changedRelationships.set(a);
+                    if (!current.keySet().containsAll(old.keySet())) {
+                        rewrittenNodes.set(after.relationshipFrom(a));
+                    }
+                }
+                a++;
+            }
+        }
+    }
+
+    // Order of a relationship of before relative to one of after, as in the relationship tables.
+    private int compareRelationship(int b, int a) {
+        int beforeFrom = before.relationshipFrom(b);
+        int afterFrom = after.relationshipFrom(a);
+        int order = before.compareNode(beforeFrom, after.nodeType(afterFrom), after.nodeId(afterFrom));
+        if (order != 0) {
+            return order;
+        }
+        order = before.relationshipLabel(b).compareTo(after.relationshipLabel(a));
+        if (order != 0) {
+            return order;
+        }
+        int afterTo = after.relationshipTo(a);
+        return before.compareNode(before.relationshipTo(b), after.nodeType(afterTo), after.nodeId(afterTo));
+    }
+
+    public boolean isEmpty() {
+        return addedNodes.isEmpty() && changedNodes.isEmpty() && removedNodes.isEmpty()
+                && addedRelationships.isEmpty() && changedRelationships.isEmpty() && removedRelationships.isEmpty();
+    }
+
+    // Brings a sink that holds the before graph to the after graph: deletes removed nodes, upserts added
+    // and changed ones, and deletes and rewrites nodes whose properties or relationships were removed.
+    public void applyTo(IGraphSink sink, int batchSize) {
+        Map<String, List<Long>> deletes = new LinkedHashMap<>();
+        removedNodes.stream().forEach(node -> deletes.computeIfAbsent(before.nodeType(node), k -> new ArrayList<>())
+                .add(before.nodeId(node)));
+        rewrittenNodes.stream().forEach(node -> deletes.computeIfAbsent(after.nodeType(node), k -> new ArrayList<>())
+                .add(after.nodeId(node)));
+        deletes.forEach((nodeType, ids) -> sink.deleteNodes(nodeType, ids.stream().mapToLong(Long::longValue).toArray()));
+
+        BitSet nodes = new BitSet();
+        nodes.or(addedNodes);
+        nodes.or(changedNodes);
+        nodes.or(rewrittenNodes);
+        List<NodeRecord> nodeRecords = new ArrayList<>();
+        nodes.stream().forEach(node -> {
+            nodeRecords.add(after.node(node));
+            flushNodes(sink, nodeRecords, batchSize);
+        });
+        flushNodes(sink, nodeRecords, 1);
+
+        BitSet relationships = new BitSet();
+        relationships.or(addedRelationships);
+        relationships.or(changedRelationships);
+        if (!rewrittenNodes.isEmpty()) {
+            for (int relationship = 0; relationship < after.relationshipCount(); relationship++) {
+                if (rewrittenNodes.get(after.relationshipFrom(relationship)) || rewrittenNodes.get(after.relationshipTo(relationship))) {
+                    relationships.set(relationship);
+                }
+            }
+        }
+        List<RelationshipRecord> relationshipRecords = new ArrayList<>();
+        relationships.stream().forEach(relationship -> {
+            relationshipRecords.add(after.relationship(relationship));
+            flushRelationships(sink, relationshipRecords, batchSize);
+        });
+        flushRelationships(sink, relationshipRecords, 1);
+    }
+
+    private static void flushNodes(IGraphSink sink, List<NodeRecord> records, int threshold) {
+        if (records.size() >= threshold) {
+            sink.writeNodes(new ArrayList<>(records));
+            records.clear();
+        }
+    }
+
+    private static void flushRelationships(IGraphSink sink, List<RelationshipRecord> records, int threshold) {
+        if (records.size() >= threshold) {
+            sink.writeRelationships(new ArrayList<>(records));
+            records.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "nodes: +" + addedNodes.cardinality() + " -" + removedNodes.cardinality() + " ~" + changedNodes.cardinality()
+                + ", relationships: +" + addedRelationships.cardinality() + " -" + removedRelationships.cardinality()
+                + " ~" + changedRelationships.cardinality()
+                + (rewrittenNodes.isEmpty() ? "" : " (" + rewrittenNodes.cardinality() + " nodes rewritten)");
+    }
+}
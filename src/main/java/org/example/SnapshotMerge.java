@@ -0,0 +1,131 @@
+package org.example;
+
+import java.util.*;
+
+// Combines the snapshots of a sharded scan (see ShardPlan) into one graph, by walking all sorted node and
+// relationship tables side by side. Declaration and type nodes reached from several shards have the same
+// node type and content-derived id in each, so they meet in the walk and are written once, with the
+// properties of all shards; on conflicting values the later shard wins, as if the shards had been written
+// to one upserting sink in order. Only one record per shard is held at a time.
+public class SnapshotMerge {
+
+    private final List<GraphSnapshot> shards;
+    private long nodes = 0;
+    private long duplicateNodes = 0;
+    private long relationships = 0;
+    private long duplicateRelationships = 0;
+
+    private SnapshotMerge(List<GraphSnapshot> shards) {
+        this.shards = shards;
+    }
+
+    // Writes the merged graph to the sink in batches, nodes first. Every node and relationship is
+    // written exactly once, so sinks that cannot upsert, like the CSV import files, work too.
+    public static SnapshotMerge mergeInto(List<GraphSnapshot> shards, IGraphSink sink, int batchSize) {
+        SnapshotMerge merge = new SnapshotMerge(shards);
+        merge.mergeNodes(sink, batchSize);
+        merge.mergeRelationships(sink, batchSize);
+        return merge;
+    }
+
+    private void mergeNodes(IGraphSink sink, int batchSize) {
+        int[] positions = new int[shards.size()];
+        List<NodeRecord> batch = new ArrayList<>(batchSize);
+        while (true) {
+            // The smallest node any shard is at, and the shards that have it
+            int first = -1;
+            for (int shard = 0; shard < shards.size(); shard++) {
+                if (positions[shard] < shards.get(shard).nodeCount() && (first < 0
+                        || compareNodes(shard, positions[shard], first, positions[first]) < 0)) {
+                    first = shard;
+                }
+            }
+            if (first < 0) {
+                break;
+            }
+            GraphSnapshot snapshot = shards.get(first);
+            int node = positions[first]++;
+            String nodeType = snapshot.nodeType(node);
+            long id = snapshot.nodeId(node);
+            Map<String, Object> properties = snapshot.nodeProperties(node);
+            for (int shard = first + 1; shard < shards.size(); shard++) {
+                GraphSnapshot other = shards.get(shard);
+                if (positions[shard] < other.nodeCount() && other.compareNode(positions[shard], nodeType, id) == 0) {
+                    properties.putAll(other.nodeProperties(positions[shard]++));
+                    duplicateNodes++;
+                }
+            }
+            batch.add(new NodeRecord(id, nodeType, properties));
+            nodes++;
+            if (batch.size() == batchSize) {
+                sink.writeNodes(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            sink.writeNodes(batch);
+        }
+    }
+
+    private void mergeRelationships(IGraphSink sink, int batchSize) {
+        int[] positions = new int[shards.size()];
+        List<RelationshipRecord> batch = new ArrayList<>(batchSize);
+        while (true) {
+            int first = -1;
+            for (int shard = 0; shard < shards.size(); shard++) {
+                if (positions[shard] < shards.get(shard).relationshipCount() && (first < 0
+                        || compareRelationships(shard, positions[shard], first, positions[first]) < 0)) {
+                    first = shard;
+                }
+            }
+            if (first < 0) {
+                break;
+            }
+            int relationship = positions[first]++;
+            RelationshipRecord record = shards.get(first).relationship(relationship);
+            for (int shard = first + 1; shard < shards.size(); shard++) {
+                if (positions[shard] < shards.get(shard).relationshipCount()
+                        && compareRelationships(shard, positions[shard], first, relationship) == 0) {
+                    record.data().putAll(shards.get(shard).relationshipProperties(positions[shard]++));
+                    duplicateRelationships++;
+                }
+            }
+            batch.add(record);
+            relationships++;
+            if (batch.size() == batchSize) {
+                sink.writeRelationships(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            sink.writeRelationships(batch);
+        }
+    }
+
+    // Order of two nodes of different shards, as in the node tables.
+    private int compareNodes(int shard, int node, int otherShard, int otherNode) {
+        GraphSnapshot other = shards.get(otherShard);
+        return shards.get(shard).compareNode(node, other.nodeType(otherNode), other.nodeId(otherNode));
+    }
+
+    // Order of two relationships of different shards, as in the relationship tables.
+    private int compareRelationships(int shard, int relationship, int otherShard, int otherRelationship) {
+        GraphSnapshot snapshot = shards.get(shard);
+        GraphSnapshot other = shards.get(otherShard);
+        int order = compareNodes(shard, snapshot.relationshipFrom(relationship), otherShard, other.relationshipFrom(otherRelationship));
+        if (order != 0) {
+            return order;
+        }
+        order = snapshot.relationshipLabel(relationship).compareTo(other.relationshipLabel(otherRelationship));
+        if (order != 0) {
+            return order;
+        }
+        return compareNodes(shard, snapshot.relationshipTo(relationship), otherShard, other.relationshipTo(otherRelationship));
+    }
+
+    @Override
+    public String toString() {
+        return nodes + " nodes (" + duplicateNodes + " shared between shards), " + relationships
+                + " relationships (" + duplicateRelationships + " shared)";
+    }
+}
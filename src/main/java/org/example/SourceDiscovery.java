@@ -0,0 +1,336 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Pattern;
+
+// Finds the .java files to scan below a source path. Build output, VCS metadata and generated sources are
+// skipped by directory name, .gitignore files are honored, and include and exclude globs select further.
+// Directories are listed in parallel on the common pool, one task per directory.
+//
+// Build output names like "build" are also valid package names (com.google.devtools.build), so such a
+// directory is only skipped next to a build file (pom.xml, build.gradle, ...) or outside a source tree,
+// i.e. not below a directory named "src". Only directories below the root count, so a checkout in
+// ~/src/project starts outside a source tree.
+//
+// Globs match paths relative to the root with "/" separators: "*" and "?" stay within a name, "**"
+// crosses directories and "**/" also matches no directory at all, so "**/*.java" matches "A.java". A
+// directory is pruned when an exclude matches its path with a trailing "/", e.g. "**/src/test/**".
+//
+// .gitignore support covers what source trees use: per-directory files, comments, negation, "/"-anchored
+// and directory-only patterns. .gitignore files above the root and .git/info/exclude are not read.
+// Symbolic links are not followed.
+public class SourceDiscovery {
+
+    // Skipped by name wherever they are, as are directories whose name starts with a dot (.git, .idea, ...)
+    public static final Set<String> DEFAULT_SKIPPED_DIRECTORIES = Set.of("generated-sources", "generated-test-sources");
+
+    // Skipped next to a build file or outside a source tree
+    public static final Set<String> DEFAULT_BUILD_OUTPUT_DIRECTORIES = Set.of("target", "build", "node_modules");
+
+    private static final Set<String> BUILD_FILES = Set.of(
+            "pom.xml", "build.gradle", "build.gradle.kts", "settings.gradle", "settings.gradle.kts");
+
+    private record IgnoreRule(Pattern pattern, boolean negated, boolean directoryOnly) {}
+
+    private List<Pattern> includes = List.of();
+    private List<Pattern> excludes = List.of();
+    private boolean gitignore = true;
+    private Set<String> skippedDirectories = DEFAULT_SKIPPED_DIRECTORIES;
+    private Set<String> buildOutputDirectories = DEFAULT_BUILD_OUTPUT_DIRECTORIES;
+
+    // Only files matching one of the globs are scanned; all .java files if empty.
+    public void setIncludes(List<String> globs) {
+        this.includes = globs.stream().map(SourceDiscovery::globToRegex).toList();
+    }
+
+    // Files and directories matching one of the globs are skipped.
+    public void setExcludes(List<String> globs) {
+        this.excludes = globs.stream().map(SourceDiscovery::globToRegex).toList();
+    }
+
+    public void setGitignore(boolean gitignore) {
+        this.gitignore = gitignore;
+    }
+
+    public void setSkippedDirectories(Set<String> names) {
+        this.skippedDirectories = Set.copyOf(names);
+    }
+
+    public void setBuildOutputDirectories(Set<String> names) {
+        this.buildOutputDirectories = Set.copyOf(names);
+    }
+
+    // The .java files below the root, largest first (equal sizes by path), so that parallel parsing
+    // starts the slow files early and ends with small ones. The root itself is never skipped.
+    public List<File> discover(Path root) {
+        Queue<Map.Entry<String, BasicFileAttributes>> found = new ConcurrentLinkedQueue<>();
+        Path base = root.toAbsolutePath().normalize();
+        ForkJoinPool.commonPool().invoke(new DirectoryTask(base, "", List.of(), false, found, null));
+        return found.stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, BasicFileAttributes> file) -> file.getValue().size())
+                        .reversed()
+                        .thenComparing(Map.Entry::getKey))
+                .map(file -> base.resolve(file.getKey()).toFile())
+                .toList();
+    }
+
+    // The directories discover(root) lists, from start (the root or a directory below it) down; empty if
+    // it would not list start. E.g. the directories to watch for changes.
+    public List<Path> directories(Path root, Path start) {
+        Queue<Path> directories = new ConcurrentLinkedQueue<>();
+        DirectoryTask task = taskFor(root.toAbsolutePath().normalize(), start.toAbsolutePath().normalize(), directories);
+        if (task != null) {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+        return List.copyOf(directories);
+    }
+
+    // Whether discover(root) would return the file, e.g. one a file system event is about. The file need
+    // not exist anymore.
+    public boolean accepts(Path root, Path file) {
+        Path base = root.toAbsolutePath().normalize();
+        Path path = file.toAbsolutePath().normalize();
+        if (path.equals(base) || !path.startsWith(base)) {
+            return false;
+        }
+        DirectoryTask parent = taskFor(base, path.getParent(), null);
+        if (parent == null) {
+            return false;
+        }
+        List<IgnoreRule> rules = gitignore ? withIgnoreFile(parent.inherited, parent.directory, parent.relative) : parent.inherited;
+        String name = path.getFileName().toString();
+        return accepts(name, parent.relative + name, rules);
+    }
+
+    // The task that lists the directory as part of discover(base), with the .gitignore rules and state
+    // inherited on the way down, or null if discover does not get there. Collects only directories.
+    private DirectoryTask taskFor(Path base, Path directory, Queue<Path> directories) {
+        if (!directory.startsWith(base)) {
+            return null;
+        }
+        List<IgnoreRule> rules = List.of();
+        boolean sourceTree = false;
+        Path current = base;
+        String relative = "";
+        for (Path name : base.relativize(directory)) {
+            if (name.toString().isEmpty()) {
+                break; // directory is the base
+            }
+            if (gitignore) {
+                rules = withIgnoreFile(rules, current, relative);
+            }
+            String path = relative + name;
+            if (skipsDirectory(name.toString(), path, rules, hasBuildFile(current) || !sourceTree)) {
+                return null;
+            }
+            current = current.resolve(name);
+            relative = path + "/";
+            sourceTree |= name.toString().equals("src");
+        }
+        return new DirectoryTask(current, relative, rules, sourceTree, null, directories);
+    }
+
+    private static boolean hasBuildFile(Path directory) {
+        for (String name : BUILD_FILES) {
+            if (Files.isRegularFile(directory.resolve(name))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Lists one directory, collects its matching files (and itself, if directories are collected) and
+    // forks a task per subdirectory. Relative paths end with "/" unless empty.
+    // Tasks are never serialized.
+    @SuppressWarnings("serial")
+    private class DirectoryTask extends RecursiveAction {
+        private final Path directory;
+        private final String relative;
+        private final List<IgnoreRule> inherited;
+        private final boolean sourceTree;
+        private final Queue<Map.Entry<String, BasicFileAttributes>> found;
+        private final Queue<Path> directories;
+
+        DirectoryTask(Path directory, String relative, List<IgnoreRule> inherited, boolean sourceTree,
+                      Queue<Map.Entry<String, BasicFileAttributes>> found, Queue<Path> directories) {
+            this.directory = directory;
+            this.relative = relative;
+            this.inherited = inherited;
+            this.sourceTree = sourceTree;
+            this.found = found;
+            this.directories = directories;
+        }
+
+        @Override
+        protected void compute() {
+            if (directories != null) {
+                directories.add(directory);
+            }
+            List<IgnoreRule> rules = gitignore ? withIgnoreFile(inherited, directory, relative) : inherited;
+            // Subdirectories are decided once the listing has shown whether there is a build file
+            List<Path> candidates = new ArrayList<>();
+            boolean[] buildFile = {false};
+            try {
+                Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+                        String name = path.getFileName().toString();
+                        String file = relative + name;
+                        if (attributes.isDirectory()) {
+                            candidates.add(path);
+                        } else if (attributes.isRegularFile()) {
+                            buildFile[0] |= BUILD_FILES.contains(name);
+                            if (found != null && accepts(name, file, rules)) {
+                                found.add(Map.entry(file, attributes));
+                            }
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path path, IOException e) {
+                        System.err.println("Cannot read " + path + ": " + e.getMessage());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                System.err.println("Cannot list " + directory + ": " + e.getMessage());
+            }
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            for (Path path : candidates) {
+                String name = path.getFileName().toString();
+                String file = relative + name;
+                if (!skipsDirectory(name, file, rules, buildFile[0] || !sourceTree)) {
+                    subdirectories.add(new DirectoryTask(path, file + "/", rules, sourceTree || name.equals("src"), found, directories));
+                }
+            }
+            invokeAll(subdirectories);
+        }
+    }
+
+    private boolean skipsDirectory(String name, String path, List<IgnoreRule> rules, boolean buildOutput) {
+        return name.startsWith(".") || skippedDirectories.contains(name) || (buildOutput && buildOutputDirectories.contains(name))
+                || ignored(path, true, rules) || matchesAny(excludes, path + "/");
+    }
+
+    private boolean accepts(String name, String path, List<IgnoreRule> rules) {
+        return name.endsWith(".java") && !ignored(path, false, rules)
+                && (includes.isEmpty() || matchesAny(includes, path)) && !matchesAny(excludes, path);
+    }
+
+    private static boolean matchesAny(List<Pattern> patterns, String path) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The last rule that matches decides, so later and deeper .gitignore files override earlier ones.
+    private static boolean ignored(String path, boolean directory, List<IgnoreRule> rules) {
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            IgnoreRule rule = rules.get(i);
+            if ((directory || !rule.directoryOnly()) && rule.pattern().matcher(path).matches()) {
+                return !rule.negated();
+            }
+        }
+        return false;
+    }
+
+    // The inherited rules followed by those of the directory's .gitignore, if it has one.
+    private static List<IgnoreRule> withIgnoreFile(List<IgnoreRule> inherited, Path directory, String relative) {
+        Path file = directory.resolve(".gitignore");
+        if (!Files.isRegularFile(file)) {
+            return inherited;
+        }
+        List<IgnoreRule> rules = new ArrayList<>(inherited);
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                IgnoreRule rule = parseIgnoreRule(line.strip(), relative);
+                if (rule != null) {
+                    rules.add(rule);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot read " + file + ": " + e.getMessage());
+            return inherited;
+        }
+        return rules;
+    }
+
+    // A .gitignore line as a rule on root-relative paths, or null for blank lines and comments. A
+    // pattern with a "/" before its end is relative to the .gitignore's directory, others match a name
+    // at any depth below it.
+    private static IgnoreRule parseIgnoreRule(String line, String relative) {
+        if (line.isEmpty() || line.startsWith("#")) {
+            return null;
+        }
+        boolean negated = line.startsWith("!");
+        String pattern = negated ? line.substring(1) : line;
+        if (pattern.startsWith("\\")) {
+            pattern = pattern.substring(1);
+        }
+        boolean directoryOnly = pattern.endsWith("/");
+        if (directoryOnly) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+        if (pattern.isEmpty()) {
+            return null;
+        }
+        boolean anchored = pattern.contains("/");
+        if (pattern.startsWith("/")) {
+            pattern = pattern.substring(1);
+        }
+        String prefix = Pattern.quote(relative) + (anchored ? "" : "(?:.*/)?");
+        return new IgnoreRule(Pattern.compile(prefix + globToRegex(pattern).pattern()), negated, directoryOnly);
+    }
+
+    private static Pattern globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> {
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        i++;
+                        if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                            i++;
+                            regex.append("(?:.*/)?");
+                        } else {
+                            regex.append(".*");
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                }
+                case '?' -> regex.append("[^/]");
+                case '[' -> {
+                    int close = glob.indexOf(']', i + 2);
+                    if (close < 0) {
+                        regex.append("\\[");
+                    } else {
+                        String characters = glob.substring(i + 1, close).replace("\\", "\\\\").replace("[", "\\[");
+                        regex.append('[').append(characters.startsWith("!") ? "^" + characters.substring(1) : characters).append(']');
+                        i = close;
+                    }
+                }
+                case '\\' -> {
+                    if (i + 1 < glob.length()) {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    }
+                }
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
@@ -0,0 +1,167 @@
+package org.example;
+
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.Node;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The scanned source files, by id, and text references into them. Files are memory-mapped when text is
+// first needed from them and kept in a small LRU, so node text is read from the page cache instead of
+// being copied into every node. Offsets are byte offsets into the UTF-8 file content.
+//
+// Text is read when it is materialized, so a file must not change between the scan and the export,
+// unless text is copied (see setCopyText).
+public class SourceFiles {
+
+    // Set on every CompilationUnit the scanner parses: the id of its file.
+    public static final DataKey<Integer> FILE_ID = new DataKey<>() {};
+
+    // Node text modes: all of it, none, or at most the given number of characters.
+    public static final int FULL_TEXT = -1;
+    public static final int NO_TEXT = 0;
+
+    private static final int MAX_MAPPED_FILES = 64;
+
+    private final List<Path> paths = new ArrayList<>();
+    private final Map<Integer, MappedSource> mapped = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, MappedSource> eldest) {
+            return size() > MAX_MAPPED_FILES;
+        }
+    };
+    private final int maxTextLength;
+    private boolean copyText = false;
+
+    public SourceFiles(int maxTextLength) {
+        this.maxTextLength = maxTextLength;
+    }
+
+    public boolean keepsText() {
+        return maxTextLength != NO_TEXT;
+    }
+
+    // Reads node text during the scan and keeps it as a string instead of a TextRef, for scans whose
+    // files may change before the export, like watch mode.
+    public void setCopyText(boolean copyText) {
+        this.copyText = copyText;
+    }
+
+    public boolean copiesText() {
+        return copyText;
+    }
+
+    // Forgets every file, so ids are handed out from 0 again. TextRefs into the files must be unused.
+    public synchronized void clear() {
+        paths.clear();
+        mapped.clear();
+    }
+
+    public synchronized int register(Path path) {
+        paths.add(path.toAbsolutePath().normalize());
+        return paths.size() - 1;
+    }
+
+    // Reference to the source text of the node, or null if the node has no range or its file is unknown.
+    public TextRef ref(Node node) {
+        Range range = node.getRange().orElse(null);
+        Integer fileId = node.findCompilationUnit()
+                .filter(cu -> cu.containsData(FILE_ID))
+                .map(cu -> cu.getData(FILE_ID))
+                .orElse(null);
+        if (range == null || fileId == null) {
+            return null;
+        }
+        MappedSource source = source(fileId);
+        int begin = source.offset(range.begin.line, range.begin.column);
+        // Range ends are inclusive; the end offset is just past the last character
+        int end = source.offset(range.end.line, range.end.column + 1);
+        return new TextRef(this, fileId, begin, end);
+    }
+
+    // The node's text as stored: a TextRef, or its text if text is copied. Null as for ref().
+    public Object nodeText(Node node) {
+        TextRef ref = ref(node);
+        return ref != null && copyText ? text(ref) : ref;
+    }
+
+    // The referenced text, cut to the configured maximum length.
+    public String text(TextRef ref) {
+        MappedSource source = source(ref.fileId());
+        byte[] bytes = new byte[ref.end() - ref.begin()];
+        source.buffer.get(ref.begin(), bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        return maxTextLength > 0 && text.length() > maxTextLength ? text.substring(0, maxTextLength) : text;
+    }
+
+    private synchronized MappedSource source(int fileId) {
+        return mapped.computeIfAbsent(fileId, id -> new MappedSource(paths.get(id)));
+    }
+
+    // A mapped file and the byte offset of every line start. Reads only use absolute positions, so one
+    // instance can be used from several threads.
+    private static final class MappedSource {
+        private final MappedByteBuffer buffer;
+        private final int[] lineStarts;
+
+        MappedSource(Path path) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map " + path, e);
+            }
+            lineStarts = lineStarts(buffer);
+        }
+
+        // Line breaks are \n, \r\n or a lone \r, as in JavaParser. A UTF-8 byte order mark is not part of line 1.
+        private static int[] lineStarts(MappedByteBuffer buffer) {
+            int[] starts = new int[64];
+            int count = 1;
+            int limit = buffer.limit();
+            if (limit >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF) {
+                starts[0] = 3;
+            }
+            for (int pos = starts[0]; pos < limit; pos++) {
+                byte b = buffer.get(pos);
+                if (b == '\r' && pos + 1 < limit && buffer.get(pos + 1) == '\n') {
+                    continue;
+                }
+                if (b == '\n' || b == '\r') {
+                    if (count == starts.length) {
+                        starts = Arrays.copyOf(starts, count * 2);
+                    }
+                    starts[count++] = pos + 1;
+                }
+            }
+            return Arrays.copyOf(starts, count);
+        }
+
+        // Byte offset of a 1-based line and column. Columns count UTF-16 characters, as JavaParser does,
+        // so characters outside the BMP (4 UTF-8 bytes) take two columns.
+        int offset(int line, int column) {
+            int pos = lineStarts[Math.min(line, lineStarts.length) - 1];
+            int limit = buffer.limit();
+            for (int col = 1; col < column && pos < limit; ) {
+                byte b = buffer.get(pos);
+                if (b == '\n' || b == '\r') {
+                    break;
+                }
+                int length = (b & 0x80) == 0 ? 1 : (b & 0xE0) == 0xC0 ? 2 : (b & 0xF0) == 0xE0 ? 3 : 4;
+                pos = Math.min(limit, pos + length);
+                col += length == 4 ? 2 : 1;
+            }
+            return pos;
+        }
+    }
+}
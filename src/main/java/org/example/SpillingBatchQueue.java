@@ -0,0 +1,207 @@
+package org.example;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// FIFO of batches that keeps up to memoryCapacity batches on the heap and appends the rest to a file in
+// the spill directory, so a scan never waits for a slow sink and waiting batches do not fill the heap.
+// Once a batch has been spilled every later one goes to the file too until it has been read back, which
+// keeps the order. The file is deleted whenever it has been read to the end.
+//
+// Spilled property values keep their kind as in GraphSnapshot; other values, like text references,
+// are written as their string.
+public class SpillingBatchQueue implements AutoCloseable {
+
+    private final int memoryCapacity;
+    private final Path directory;
+    private final ArrayDeque<GraphBatch> memory = new ArrayDeque<>();
+    private Path spillFile;
+    private DataOutputStream spillOut;
+    private DataInputStream spillIn;
+    private int spilled = 0;
+    private long spilledTotal = 0;
+    private boolean closed = false;
+
+    public SpillingBatchQueue(int memoryCapacity, Path directory) {
+        this.memoryCapacity = memoryCapacity;
+        this.directory = directory;
+    }
+
+    public synchronized void put(GraphBatch batch) {
+        if (closed) {
+            throw new IllegalStateException("Queue is closed");
+        }
+        if (spilled == 0 && memory.size() < memoryCapacity) {
+            memory.add(batch);
+        } else {
+            try {
+                spill(batch);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot spill batch to " + directory, e);
+            }
+        }
+        notifyAll();
+    }
+
+    // The oldest batch, waiting for one if the queue is empty; null once the queue is closed and empty.
+    public synchronized GraphBatch take() throws InterruptedException {
+        while (memory.isEmpty() && spilled == 0) {
+            if (closed) {
+                return null;
+            }
+            wait();
+        }
+        if (!memory.isEmpty()) {
+            return memory.poll();
+        }
+        try {
+            GraphBatch batch = readBatch(spillIn);
+            if (--spilled == 0) {
+                deleteSpillFile();
+            }
+            return batch;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read spilled batch from " + spillFile, e);
+        }
+    }
+
+    // Drops every waiting batch, e.g. after the consumer failed.
+    public synchronized void clear() {
+        memory.clear();
+        spilled = 0;
+        try {
+            deleteSpillFile();
+        } catch (IOException e) {
+            System.err.println("Cannot delete spill file " + spillFile + ": " + e.getMessage());
+        }
+        notifyAll();
+    }
+
+    // Number of batches that went through the spill file so far.
+    public synchronized long getSpilledTotal() {
+        return spilledTotal;
+    }
+
+    // No more batches will be put; take() returns null once the remaining ones have been taken.
+    @Override
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    private void spill(GraphBatch batch) throws IOException {
+        if (spillOut == null) {
+            Files.createDirectories(directory);
+            spillFile = Files.createTempFile(directory, "batches", ".spill");
+            spillOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile), 64 * 1024));
+            spillIn = new DataInputStream(new BufferedInputStream(Files.newInputStream(spillFile), 64 * 1024));
+        }
+        writeBatch(spillOut, batch);
+        // The reader only sees what has been flushed
+        spillOut.flush();
+        spilled++;
+        spilledTotal++;
+    }
+
+    private void deleteSpillFile() throws IOException {
+        if (spillOut == null) {
+            return;
+        }
+        spillOut.close();
+        spillIn.close();
+        Files.deleteIfExists(spillFile);
+        spillOut = null;
+        spillIn = null;
+        spillFile = null;
+    }
+
+    private static void writeBatch(DataOutputStream out, GraphBatch batch) throws IOException {
+        out.writeInt(batch.nodes().size());
+        for (NodeRecord node : batch.nodes()) {
+            out.writeLong(node.id());
+            writeString(out, node.nodeType());
+            writeProperties(out, node.data());
+        }
+        out.writeInt(batch.relationships().size());
+        for (RelationshipRecord relationship : batch.relationships()) {
+            out.writeLong(relationship.fromId());
+            writeString(out, relationship.fromType());
+            out.writeLong(relationship.toId());
+            writeString(out, relationship.toType());
+            writeString(out, relationship.label());
+            writeProperties(out, relationship.data());
+        }
+    }
+
+    private static GraphBatch readBatch(DataInputStream in) throws IOException {
+        int nodeCount = in.readInt();
+        List<NodeRecord> nodes = new ArrayList<>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            nodes.add(new NodeRecord(in.readLong(), readString(in), readProperties(in)));
+        }
+        int relationshipCount = in.readInt();
+        List<RelationshipRecord> relationships = new ArrayList<>(relationshipCount);
+        for (int i = 0; i < relationshipCount; i++) {
+            relationships.add(new RelationshipRecord(in.readLong(), readString(in), in.readLong(), readString(in),
+                    readString(in), readProperties(in)));
+        }
+        return new GraphBatch(nodes, relationships);
+    }
+
+    private static void writeProperties(DataOutputStream out, Map<String, Object> properties) throws IOException {
+        out.writeInt(properties.size());
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            writeString(out, property.getKey());
+            Object value = property.getValue();
+            byte kind = GraphSnapshot.kindOf(value);
+            out.writeByte(kind);
+            switch (kind) {
+                case GraphSnapshot.KIND_NULL -> {
+                }
+                case GraphSnapshot.KIND_BOOLEAN -> out.writeBoolean((Boolean) value);
+                case GraphSnapshot.KIND_INT -> out.writeInt(((Number) value).intValue());
+                case GraphSnapshot.KIND_LONG -> out.writeLong((Long) value);
+                case GraphSnapshot.KIND_DOUBLE -> out.writeDouble(((Number) value).doubleValue());
+                default -> writeString(out, String.valueOf(value));
+            }
+        }
+    }
+
+    private static Map<String, Object> readProperties(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Map<String, Object> properties = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String key = readString(in);
+            byte kind = in.readByte();
+            properties.put(key, switch (kind) {
+                case GraphSnapshot.KIND_NULL -> null;
+                case GraphSnapshot.KIND_BOOLEAN -> in.readBoolean();
+                case GraphSnapshot.KIND_INT -> in.readInt();
+                case GraphSnapshot.KIND_LONG -> in.readLong();
+                case GraphSnapshot.KIND_DOUBLE -> in.readDouble();
+                default -> readString(in);
+            });
+        }
+        return properties;
+    }
+
+    // Length-prefixed UTF-8; unlike writeUTF not limited to 64 KB, which node text can exceed.
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
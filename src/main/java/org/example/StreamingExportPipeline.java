@@ -0,0 +1,121 @@
+package org.example;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Moves batches from the scan to a sink on a separate thread through a bounded queue. submit()
+// blocks while the queue is full, so a slow sink throttles the scan instead of letting batches pile up.
+// With a spill directory the queue overflows to disk instead, and the scan never waits for the sink.
+public class StreamingExportPipeline implements AutoCloseable {
+
+    private static final GraphBatch END_OF_STREAM = new GraphBatch(List.of(), List.of());
+
+    private final IGraphSink sink;
+    private final BlockingQueue<GraphBatch> queue;
+    private final SpillingBatchQueue spillQueue;
+    private final Thread writer;
+    private volatile Throwable failure;
+    private long batchesSubmitted = 0;
+    // Guarded by this; flush() waits on it
+    private long batchesWritten = 0;
+
+    public StreamingExportPipeline(IGraphSink sink, int queueCapacity) {
+        this(sink, queueCapacity, null);
+    }
+
+    // Keeps queueCapacity batches in memory and spills the rest to files in spillDirectory, if it is not null.
+    public StreamingExportPipeline(IGraphSink sink, int queueCapacity, Path spillDirectory) {
+        this.sink = sink;
+        this.queue = spillDirectory == null ? new ArrayBlockingQueue<>(queueCapacity) : null;
+        this.spillQueue = spillDirectory == null ? null : new SpillingBatchQueue(queueCapacity, spillDirectory);
+        this.writer = new Thread(this::drain, "graph-export-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public void submit(GraphBatch batch) {
+        checkWriter();
+        batchesSubmitted++;
+        if (spillQueue != null) {
+            spillQueue.put(batch);
+            return;
+        }
+        try {
+            queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the export queue", e);
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                GraphBatch batch = spillQueue != null ? spillQueue.take() : queue.take();
+                if (batch == null || batch == END_OF_STREAM) {
+                    return;
+                }
+                sink.writeNodes(batch.nodes());
+                sink.writeRelationships(batch.relationships());
+                synchronized (this) {
+                    batchesWritten++;
+                    notifyAll();
+                }
+            }
+        } catch (Throwable e) {
+            failure = e;
+            synchronized (this) {
+                notifyAll();
+            }
+            // Unblock producers waiting on a full queue; they will see the failure on their next submit.
+            if (spillQueue != null) {
+                spillQueue.clear();
+            } else {
+                queue.clear();
+            }
+        }
+    }
+
+    // Waits until every batch submitted so far has been written, e.g. before the sink is used directly.
+    // Call from the thread that submits.
+    public void flush() {
+        synchronized (this) {
+            while (batchesWritten < batchesSubmitted && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the export writer", e);
+                }
+            }
+        }
+        checkWriter();
+    }
+
+    private void checkWriter() {
+        if (failure != null) {
+            throw new IllegalStateException("Export writer failed", failure);
+        }
+    }
+
+    // Waits until every submitted batch has been written. Does not close the sink.
+    @Override
+    public void close() {
+        if (spillQueue != null) {
+            spillQueue.close();
+        } else if (failure == null) {
+            submit(END_OF_STREAM);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the export writer", e);
+        }
+        checkWriter();
+        System.out.println("Streamed " + batchesWritten + " batches to " + sink.getClass().getSimpleName()
+                + (spillQueue != null ? ", " + spillQueue.getSpilledTotal() + " of them spilled to disk" : ""));
+    }
+}
@@ -0,0 +1,175 @@
+package org.example;
+
+import com.github.javaparser.TokenRange;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.PatternExpr;
+import com.github.javaparser.ast.stmt.*;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.printer.DefaultPrettyPrinter;
+import com.github.javaparser.resolution.declarations.*;
+import com.github.javaparser.resolution.types.ResolvedType;
+
+// Canonical, run-independent descriptions of resolved symbols, used to derive their node ids.
+public final class SymbolDescriptors {
+
+    private SymbolDescriptors() {
+    }
+
+    // JavaParser names anonymous classes "Anonymous-<random UUID>", so names containing it differ per run.
+    private static final String ANONYMOUS_CLASS_MARKER = "Anonymous-";
+
+    private static final DefaultPrettyPrinter PRINTER = new DefaultPrettyPrinter();
+
+    // Qualified signature of a declaration. Declarations without a stable global name (parameters, local
+    // variables, patterns, members of anonymous classes) are identified by their location in the source.
+    public static String declaration(ResolvedDeclaration declaration) {
+        String signature = qualifiedSignature(declaration);
+        if (signature != null && !signature.contains(ANONYMOUS_CLASS_MARKER)) {
+            return signature;
+        }
+        String kind = declaration.getClass().getSimpleName() + ":" + (declaration.hasName() ? declaration.getName() : "");
+        try {
+            var ast = declaration.toAst();
+            if (ast.isPresent()) {
+                return kind + "@" + location(ast.get());
+            }
+        } catch (RuntimeException e) {
+            // No AST available; the kind and name are all we have
+        }
+        if (declaration instanceof ResolvedValueDeclaration value) {
+            // Keeps e.g. catch parameters of different exception types apart
+            try {
+                return kind + ":" + value.getType().describe();
+            } catch (RuntimeException e) {
+                // Type not resolvable either
+            }
+        }
+        return kind;
+    }
+
+    private static String qualifiedSignature(ResolvedDeclaration declaration) {
+        try {
+            if (declaration instanceof ResolvedMethodLikeDeclaration method) {
+                return "method:" + erasedSignature(method);
+            } else if (declaration instanceof ResolvedTypeParameterDeclaration typeParameter) {
+                return "typeParameter:" + typeParameter.getQualifiedName();
+            } else if (declaration instanceof ResolvedReferenceTypeDeclaration type) {
+                return "type:" + type.getQualifiedName();
+            } else if (declaration instanceof ResolvedFieldDeclaration field) {
+                return "field:" + field.declaringType().getQualifiedName() + "." + field.getName();
+            } else if (declaration instanceof ResolvedEnumConstantDeclaration constant) {
+                return "enumConstant:" + constant.getType().describe() + "." + constant.getName();
+            }
+        } catch (RuntimeException e) {
+            // Signatures with unresolvable parts fall back to the declaration's location
+        }
+        return null;
+    }
+
+    // Qualified signature with erased parameter types, e.g. "java.util.Map.put(java.lang.Object, java.lang.Object)".
+    // Reflection, javassist and source declarations of a generic method print its type parameters
+    // differently, but agree on the erasure, which is also what tells overloads apart.
+    static String erasedSignature(ResolvedMethodLikeDeclaration method) {
+        StringBuilder signature = new StringBuilder(method.declaringType().getQualifiedName())
+                .append('.').append(method.getName()).append('(');
+        for (int i = 0; i < method.getNumberOfParams(); i++) {
+            if (i > 0) {
+                signature.append(", ");
+            }
+            // The erasure of a type variable is its first bound, which may be generic itself
+            signature.append(method.getParam(i).getType().erasure().erasure().describe());
+        }
+        return signature.append(')').toString();
+    }
+
+    // Canonical descriptor of a type: its kind and full description, independent of which JavaParser
+    // class represents it (a LazyType and a ReferenceTypeImpl of java.lang.String are the same type).
+    // Type variables are qualified with their declaring element, because a bare "T" means something
+    // different in every generic declaration.
+    public static String type(ResolvedType type) {
+        try {
+            if (type.isTypeVariable()) {
+                return "typeVariable:" + type.asTypeVariable().qualifiedName();
+            }
+            return kind(type) + ":" + type.describe();
+        } catch (RuntimeException e) {
+            return type.getClass().getSimpleName() + ":" + type;
+        }
+    }
+
+    private static String kind(ResolvedType type) {
+        if (type.isPrimitive()) {
+            return "primitive";
+        } else if (type.isArray()) {
+            return "array";
+        } else if (type.isReferenceType()) {
+            return "reference";
+        } else if (type.isVoid()) {
+            return "void";
+        } else if (type.isNull()) {
+            return "null";
+        } else if (type.isWildcard()) {
+            return "wildcard";
+        }
+        return type.getClass().getSimpleName();
+    }
+
+    // Lexical scope and source text of a reference, e.g. "org/example/Main.java:10:5-12:5|MethodCallExpr:log.info(m)".
+    // References with the same key resolve the same way, so the key's scope is the innermost node that
+    // can declare a name the reference may see. For types: the enclosing type declaration, a generic
+    // method (its type parameters) or a block declaring a local class or record. For names and
+    // expressions: also every block, switch entry, for, try and catch (local variables), lambda
+    // (parameters) and statement containing a pattern (its bindings).
+    public static String reference(Node node) {
+        boolean isType = node instanceof Type;
+        Node scope = node.getParentNode().orElse(null);
+        while (scope != null && !isScope(scope, isType)) {
+            scope = scope.getParentNode().orElse(null);
+        }
+        String text = node instanceof NameExpr name
+                ? name.getNameAsString()
+                : node.getTokenRange().map(TokenRange::toString).orElseGet(() -> PRINTER.print(node));
+        return (scope != null ? location(scope) : fileKey(node)) + "|" + node.getClass().getSimpleName() + ":" + text;
+    }
+
+    private static boolean isScope(Node node, boolean forType) {
+        if (node instanceof TypeDeclaration || node instanceof CompilationUnit) {
+            return true;
+        }
+        if (node instanceof CallableDeclaration<?> callable) {
+            return !forType || callable.isGeneric();
+        }
+        if (forType) {
+            return node instanceof BlockStmt block && block.getStatements().stream().anyMatch(statement ->
+                    statement instanceof LocalClassDeclarationStmt || statement instanceof LocalRecordDeclarationStmt);
+        }
+        return node instanceof LambdaExpr || node instanceof InitializerDeclaration || node instanceof BlockStmt
+                || node instanceof SwitchEntry || node instanceof ForStmt || node instanceof ForEachStmt
+                || node instanceof TryStmt || node instanceof CatchClause
+                || (node instanceof Statement && node.findFirst(PatternExpr.class).isPresent());
+    }
+
+    // File and range of a syntax node, e.g. "org/example/Main.java:12:5-12:30".
+    public static String location(Node node) {
+        String range = node.getRange()
+                .map(r -> r.begin.line + ":" + r.begin.column + "-" + r.end.line + ":" + r.end.column)
+                .orElse("?");
+        return fileKey(node) + ":" + range;
+    }
+
+    // Path of the node's file relative to the scanned source path, as recorded by the parser.
+    // Falls back to the absolute path for files the scanner did not parse itself.
+    public static String fileKey(Node node) {
+        return node.findCompilationUnit()
+                .map(cu -> cu.containsData(SyntaxNodeInfo.FILE_KEY)
+                        ? cu.getData(SyntaxNodeInfo.FILE_KEY)
+                        : cu.getStorage().map(storage -> storage.getPath().toString()).orElse("unknown"))
+                .orElse("unknown");
+    }
+}
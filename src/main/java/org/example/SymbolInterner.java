@@ -0,0 +1,50 @@
+package org.example;
+
+import com.github.javaparser.resolution.declarations.ResolvedDeclaration;
+import com.github.javaparser.resolution.types.ResolvedType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One node per distinct resolved type and declaration. JavaParser returns new objects for most
+// resolutions, e.g. every lookup of java.lang.String, so symbols are interned by their canonical
+// descriptor (see SymbolDescriptors): every object with the same descriptor maps to the same node.
+// Safe to use from several threads.
+public class SymbolInterner {
+
+    private final Map<Long, INodeInfo> byId = new ConcurrentHashMap<>();
+    private final CacheStats descriptorStats = new CacheStats("interned symbol descriptors");
+
+    public ResolvedTypeNodeInfo type(ResolvedType type) {
+        return intern(new ResolvedTypeNodeInfo(type), ResolvedTypeNodeInfo.class);
+    }
+
+    public ResolvedDeclarationNodeInfo declaration(ResolvedDeclaration declaration) {
+        return intern(new ResolvedDeclarationNodeInfo(declaration), ResolvedDeclarationNodeInfo.class);
+    }
+
+    // Forgets every symbol, so the JavaParser objects can be collected. Nodes created afterwards get
+    // the same ids as before.
+    public void clear() {
+        byId.clear();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public List<CacheStats> stats() {
+        return List.of(descriptorStats);
+    }
+
+    private <T extends INodeInfo> T intern(T node, Class<T> kind) {
+        INodeInfo existing = byId.putIfAbsent(node.getId(), node);
+        if (existing != null && kind.isInstance(existing)) {
+            descriptorStats.hit();
+            return kind.cast(existing);
+        }
+        descriptorStats.miss();
+        return node;
+    }
+}
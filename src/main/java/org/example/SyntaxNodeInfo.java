@@ -1,22 +1,27 @@
 package org.example;
 
+import com.github.javaparser.ast.DataKey;
 import com.github.javaparser.ast.Node;
 
 public class SyntaxNodeInfo implements INodeInfo {
-    private String id = null;
+    // Set on every CompilationUnit the scanner parses: the file path relative to the scanned source path.
+    public static final DataKey<String> FILE_KEY = new DataKey<>() {};
+
+    private long id;
     private String nodeType = null;
 
+    // The id is derived from file, range and node kind, so it is the same on every run over the same source.
     public SyntaxNodeInfo(Node node) {
         this.node = node;
-        this.id = Integer.toHexString(node.hashCode());
         this.nodeType = node.getClass().getSimpleName();
+        this.id = Fingerprint.of("syntax", SymbolDescriptors.location(node), nodeType);
     }
 
     public Node node;
 
 
     @Override
-    public String getId() {
+    public long getId() {
         return id;
     }
 
@@ -26,15 +31,13 @@ public class SyntaxNodeInfo implements INodeInfo {
     }
     @Override
     public int hashCode() {
-        return node.hashCode();
+        return Long.hashCode(id);
     }
     @Override
     public  boolean equals(Object obj) {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         SyntaxNodeInfo that = (SyntaxNodeInfo) obj;
-        return this.getId().equals(that.getId()) &&
-               this.getNodeType().equals(that.getNodeType());
+        return this.id == that.id;
     }
 }
-
@@ -0,0 +1,24 @@
+package org.example;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Source text of a node as a byte range of a file in SourceFiles. Stored as a property value instead of
+// the text itself; toString() reads the text, which sinks do when they write it.
+public record TextRef(SourceFiles files, int fileId, int begin, int end) {
+
+    @Override
+    public String toString() {
+        return files.text(this);
+    }
+
+    // The properties with every text reference replaced by its text. Returns the map itself if it has none.
+    public static Map<String, Object> materialize(Map<String, Object> properties) {
+        if (properties == null || properties.values().stream().noneMatch(TextRef.class::isInstance)) {
+            return properties;
+        }
+        Map<String, Object> materialized = new LinkedHashMap<>(properties);
+        materialized.replaceAll((key, value) -> value instanceof TextRef ref ? ref.toString() : value);
+        return materialized;
+    }
+}
@@ -0,0 +1,148 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+// Long-running incremental scanning. After an initial incremental scan, the source tree is watched
+// recursively and every burst of changes (no new event for the debounce period) triggers another
+// incremental scan of the changed files and the files that depend on them, writing only their nodes and
+// relationships to the sink. The parser, its Maven reactor, its jar indexes and the sources its solvers
+// parsed are kept between scans; only changed sources are parsed again.
+//
+// Only the directories the parser's SourceDiscovery lists are watched, and only events about files it
+// would scan count, so churn in .git, build output or ignored files does not trigger rescans. Node text
+// is copied during the scan, since files may change again before the export. A failed scan is logged
+// and the files are scanned again after the next change.
+//
+// The manifest decides what changed, so lost events (OVERFLOW) only delay a rescan until the next event.
+public class WatchDaemon implements AutoCloseable {
+
+    private final JavaSolutionParser parser;
+    private final IncrementalScanner scanner;
+    private final DependentsIndex dependents = new DependentsIndex();
+    private final Path root;
+    private final long debounceMillis;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Set<Path> watched = new HashSet<>();
+    private Consumer<List<String>> onScan = staleFiles -> {};
+
+    public WatchDaemon(JavaSolutionParser parser, IGraphSink sink, Path root, Path manifestPath, int parallelism,
+                       long debounceMillis) throws IOException {
+        this.parser = parser;
+        this.root = root.toAbsolutePath().normalize();
+        this.debounceMillis = debounceMillis;
+        parser.setCopyNodeText(true);
+        this.scanner = new IncrementalScanner(parser, sink, manifestPath, parallelism);
+        this.scanner.setDependents(dependents::update);
+        this.watchService = root.getFileSystem().newWatchService();
+    }
+
+    // Called after every scan with the manifest keys of the files it rescanned or found deleted.
+    public void onScan(Consumer<List<String>> listener) {
+        this.onScan = listener;
+    }
+
+    // Scans, then rescans on changes until the daemon is closed or the thread is interrupted.
+    public void run() throws IOException, InterruptedException {
+        register(root);
+        long start = System.nanoTime();
+        dependents.addAll(parser.collectJavaFiles());
+        System.out.println("Watching " + root + ": " + directories.size() + " directories, " + dependents.size()
+                + " files indexed in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        scanLoggingFailures();
+        while (awaitChanges()) {
+            scanLoggingFailures();
+        }
+    }
+
+    // Stops run() after the scan in progress.
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    // A failed scan does not update the manifest, so its files count as changed at the next scan.
+    private void scanLoggingFailures() {
+        try {
+            scan();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Scan failed, waiting for the next change: " + e);
+        }
+    }
+
+    private void scan() throws IOException {
+        long start = System.nanoTime();
+        parser.resetGraph();
+        scanner.run();
+        onScan.accept(scanner.getStaleFiles());
+        System.out.println("Rescanned " + scanner.getStaleFiles().size() + " files in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    // Blocks until something under the root changes, then until no event has arrived for the debounce
+    // period. False once the watch service is closed.
+    private boolean awaitChanges() throws InterruptedException, IOException {
+        try {
+            while (!process(watchService.take())) {
+                // Only changes of other files
+            }
+            WatchKey key;
+            while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                process(key);
+            }
+            return true;
+        } catch (ClosedWatchServiceException e) {
+            return false;
+        }
+    }
+
+    // Handles the events of a key and registers new directories. Returns whether one of them can change
+    // the scan: a file the scan includes, or a watched or new directory.
+    private boolean process(WatchKey key) throws IOException {
+        Path directory = directories.get(key);
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || directory == null) {
+                relevant = true;
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                // The directory may have been filled before it was registered
+                relevant |= register(path);
+            } else if (event.kind() == ENTRY_DELETE && watched.contains(path)) {
+                relevant = true;
+            } else if (parser.getSourceDiscovery().accepts(root, path)) {
+                relevant = true;
+            }
+        }
+        if (!key.reset()) {
+            Path gone = directories.remove(key);
+            if (!directories.containsValue(gone)) {
+                watched.remove(gone);
+            }
+        }
+        return relevant;
+    }
+
+    // Watches the directories the scan lists from start down; returns whether there were any. Registering
+    // a directory again returns its key, unless the directory was replaced.
+    private boolean register(Path start) throws IOException {
+        List<Path> found = parser.getSourceDiscovery().directories(root, start);
+        for (Path directory : found) {
+            directories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), directory);
+            watched.add(directory);
+        }
+        return !found.isEmpty();
+    }
+}
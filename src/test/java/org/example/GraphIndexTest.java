@@ -0,0 +1,123 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphIndexTest {
+
+    // 1 -> 2 -> 3 -> 4 over "calls", 1 -> 3 over "uses"; node ids are their names' numbers
+    private static GraphIndex chain() {
+        GraphIndex.Builder builder = new GraphIndex.Builder();
+        List<NodeRecord> nodes = new ArrayList<>();
+        for (long id = 1; id <= 4; id++) {
+            nodes.add(new NodeRecord(id, "Method", Map.of("qualifiedSignature", "m" + id + "()")));
+        }
+        builder.writeNodes(nodes);
+        builder.writeRelationships(List.of(
+                relationship(1, 2, "calls"), relationship(2, 3, "calls"), relationship(3, 4, "calls"),
+                relationship(1, 3, "uses")));
+        return builder.build();
+    }
+
+    private static RelationshipRecord relationship(long from, long to, String label) {
+        return new RelationshipRecord(from, "Method", to, "Method", label, Map.of());
+    }
+
+    private static long[] ids(GraphIndex index, int[] nodes) {
+        long[] ids = new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            ids[i] = index.nodeId(nodes[i]);
+        }
+        return ids;
+    }
+
+    @Test
+    void compressesDuplicateEdgesAndSortsNeighbors() {
+        GraphIndex.Builder builder = new GraphIndex.Builder();
+        builder.writeNodes(List.of(new NodeRecord(10, "Method", Map.of()), new NodeRecord(20, "Method", Map.of()),
+                new NodeRecord(30, "Method", Map.of())));
+        builder.writeRelationships(List.of(relationship(10, 30, "calls"), relationship(10, 20, "calls"),
+                relationship(10, 30, "calls")));
+        GraphIndex index = builder.build();
+
+        int caller = index.node(10);
+        assertArrayEquals(new long[]{20, 30}, ids(index, index.neighbors(caller, "calls", GraphIndex.Direction.OUTGOING)));
+        assertArrayEquals(new long[]{10}, ids(index, index.neighbors(index.node(30), "calls", GraphIndex.Direction.INCOMING)));
+        assertEquals(2, index.relationshipCount());
+    }
+
+    @Test
+    void dropsRelationshipsWithoutBothEndpoints() {
+        GraphIndex.Builder builder = new GraphIndex.Builder();
+        builder.writeNodes(List.of(new NodeRecord(1, "Method", Map.of())));
+        builder.writeRelationships(List.of(relationship(1, 2, "calls")));
+        GraphIndex index = builder.build();
+
+        assertEquals(1, index.nodeCount());
+        assertEquals(0, index.relationshipCount());
+    }
+
+    @Test
+    void deletedNodesLoseTheirRelationships() {
+        GraphIndex.Builder builder = new GraphIndex.Builder();
+        builder.writeNodes(List.of(new NodeRecord(1, "Method", Map.of()), new NodeRecord(2, "Method", Map.of())));
+        builder.writeRelationships(List.of(relationship(1, 2, "calls")));
+        builder.deleteNodes("Method", new long[]{2});
+        builder.writeNodes(List.of(new NodeRecord(2, "Method", Map.of())));
+        GraphIndex index = builder.build();
+
+        assertEquals(2, index.nodeCount());
+        assertEquals(0, index.degree(index.node(1), "calls", GraphIndex.Direction.OUTGOING));
+    }
+
+    @Test
+    void deletedRelationshipsKeepTheirEndpoints() {
+        GraphIndex.Builder builder = new GraphIndex.Builder();
+        builder.writeNodes(List.of(new NodeRecord(1, "Method", Map.of()), new NodeRecord(2, "Method", Map.of()),
+                new NodeRecord(3, "Method", Map.of())));
+        builder.writeRelationships(List.of(relationship(1, 2, "calls"), relationship(1, 3, "calls"),
+                relationship(1, 2, "uses")));
+        builder.deleteRelationships(List.of(relationship(1, 2, "calls")));
+        GraphIndex index = builder.build();
+
+        assertEquals(3, index.nodeCount());
+        assertArrayEquals(new long[]{3}, ids(index, index.neighbors(index.node(1), "calls", GraphIndex.Direction.OUTGOING)));
+        assertArrayEquals(new long[]{2}, ids(index, index.neighbors(index.node(1), "uses", GraphIndex.Direction.OUTGOING)));
+    }
+
+    @Test
+    void traversesBreadthFirstWithinDepthAndLimit() {
+        GraphIndex index = chain();
+        int start = index.node(1);
+
+        assertArrayEquals(new long[]{2, 3, 4}, ids(index, index.traverse(start, "calls", GraphIndex.Direction.OUTGOING, -1, -1)));
+        assertArrayEquals(new long[]{2, 3}, ids(index, index.traverse(start, "calls", GraphIndex.Direction.OUTGOING, 2, -1)));
+        assertArrayEquals(new long[]{2}, ids(index, index.traverse(start, "calls", GraphIndex.Direction.OUTGOING, -1, 1)));
+        // Over all labels 3 is one step away
+        assertArrayEquals(new long[]{2, 3}, ids(index, index.traverse(start, null, GraphIndex.Direction.OUTGOING, 1, -1)));
+        assertArrayEquals(new long[]{3, 2, 1}, ids(index, index.traverse(index.node(4), "calls", GraphIndex.Direction.INCOMING, -1, -1)));
+    }
+
+    @Test
+    void reachabilityFollowsDirection() {
+        GraphIndex index = chain();
+
+        assertTrue(index.isReachable(index.node(1), index.node(4), "calls", GraphIndex.Direction.OUTGOING));
+        assertFalse(index.isReachable(index.node(4), index.node(1), "calls", GraphIndex.Direction.OUTGOING));
+        assertTrue(index.isReachable(index.node(4), index.node(1), "calls", GraphIndex.Direction.BOTH));
+        assertFalse(index.isReachable(index.node(3), index.node(4), "uses", GraphIndex.Direction.BOTH));
+    }
+
+    @Test
+    void findsNodesByName() {
+        GraphIndex index = chain();
+
+        assertArrayEquals(new long[]{3}, ids(index, index.findByName("m3()")));
+        assertEquals(0, index.findByName("m5()").length);
+    }
+}
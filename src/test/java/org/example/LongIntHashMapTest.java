@@ -0,0 +1,75 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongIntHashMapTest {
+
+    @Test
+    void putOverwritesAndGetReturnsMissingForAbsentKeys() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(7, 1);
+        map.put(7, 2);
+
+        assertEquals(2, map.get(7, -1));
+        assertEquals(-1, map.get(8, -1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void putIfAbsentKeepsTheFirstValue() {
+        LongIntHashMap map = new LongIntHashMap();
+
+        assertTrue(map.putIfAbsent(0, 1));
+        assertFalse(map.putIfAbsent(0, 2));
+        assertEquals(1, map.get(0, -1));
+    }
+
+    @Test
+    void handlesExtremeKeys() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(Long.MIN_VALUE, 1);
+        map.put(Long.MAX_VALUE, 2);
+        map.put(0, 3);
+        map.put(-1, 4);
+
+        assertEquals(1, map.get(Long.MIN_VALUE, -1));
+        assertEquals(2, map.get(Long.MAX_VALUE, -1));
+        assertEquals(3, map.get(0, -1));
+        assertEquals(4, map.get(-1, -1));
+    }
+
+    @Test
+    void growsPastItsExpectedSize() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextLong();
+            map.put(key, i);
+            expected.put(key, i);
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key, -1)));
+    }
+
+    @Test
+    void clearForgetsEveryKey() {
+        LongIntHashMap map = new LongIntHashMap();
+        for (long key = 0; key < 100; key++) {
+            map.put(key, 1);
+        }
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(5));
+        map.put(5, 2);
+        assertEquals(2, map.get(5, -1));
+    }
+}
@@ -0,0 +1,34 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MavenReactorTest {
+
+    private static void assertNewer(String newer, String older) {
+        assertTrue(MavenReactor.compareVersions(newer, older) > 0, newer + " should be newer than " + older);
+        assertTrue(MavenReactor.compareVersions(older, newer) < 0, older + " should be older than " + newer);
+    }
+
+    @Test
+    void comparesNumericPartsAsNumbers() {
+        assertNewer("1.10", "1.9");
+        assertNewer("2.0.1", "2.0");
+        assertNewer("10.0", "9.99.99");
+        assertNewer("1.0.12345678901234567890", "1.0.12345678901234567889");
+    }
+
+    @Test
+    void releasesAreNewerThanTheirQualifiedVersions() {
+        assertNewer("2.0", "2.0-beta");
+        assertNewer("2.0", "2.0-SNAPSHOT");
+        assertNewer("2.0-beta-2", "2.0-beta-1");
+    }
+
+    @Test
+    void equalVersionsCompareEqual() {
+        assertEquals(0, MavenReactor.compareVersions("3.9.10", "3.9.10"));
+        assertEquals(0, MavenReactor.compareVersions("1-alpha", "1.alpha"));
+    }
+}
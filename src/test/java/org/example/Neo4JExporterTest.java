@@ -0,0 +1,55 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Neo4JExporterTest {
+
+    // The exporter uses 2 * maxInFlight partitions, so partition counts are even
+    @Test
+    void roundsCoverEveryPartitionPairOnce() {
+        for (int partitions = 2; partitions <= 32; partitions += 2) {
+            Set<Integer> buckets = new HashSet<>();
+            for (List<Integer> round : Neo4JExporter.rounds(partitions)) {
+                for (int bucket : round) {
+                    int a = bucket / partitions;
+                    int b = bucket % partitions;
+                    assertTrue(a <= b, "bucket " + bucket + " is not an ordered pair");
+                    assertTrue(buckets.add(bucket), "bucket " + bucket + " is in two rounds");
+                }
+            }
+            assertEquals(partitions * (partitions + 1) / 2, buckets.size(), partitions + " partitions");
+        }
+    }
+
+    @Test
+    void bucketsOfARoundShareNoPartition() {
+        for (int partitions = 2; partitions <= 32; partitions += 2) {
+            for (List<Integer> round : Neo4JExporter.rounds(partitions)) {
+                Set<Integer> used = new HashSet<>();
+                for (int bucket : round) {
+                    int a = bucket / partitions;
+                    int b = bucket % partitions;
+                    assertTrue(used.add(a), "partition " + a + " twice in " + round);
+                    assertTrue(a == b || used.add(b), "partition " + b + " twice in " + round);
+                }
+            }
+        }
+    }
+
+    @Test
+    void scheduleHasOneDiagonalRoundAndPartitionsMinusOneOthers() {
+        List<List<Integer>> rounds = Neo4JExporter.rounds(8);
+
+        assertEquals(8, rounds.size());
+        assertEquals(List.of(0, 9, 18, 27, 36, 45, 54, 63), rounds.get(0));
+        for (List<Integer> round : rounds.subList(1, rounds.size())) {
+            assertEquals(4, round.size());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardPlanTest {
+
+    @TempDir
+    Path root;
+
+    private File file(String path, int bytes) throws IOException {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[bytes]);
+        return file.toFile();
+    }
+
+    @Test
+    void assignsLargestFilesFirstToTheLightestShard() throws IOException {
+        List<File> files = List.of(file("a/A.java", 50), file("b/B.java", 40), file("c/C.java", 30),
+                file("d/D.java", 20), file("e/E.java", 10));
+        ShardPlan plan = ShardPlan.of(files, root, 2);
+
+        // 50 -> 0, 40 -> 1, 30 -> 1 (40 < 50), 20 -> 0 (50 < 70), 10 -> 1 (70 = 70, lower shard wins)
+        assertEquals(List.of(files.get(0), files.get(3), files.get(4)), plan.files(0));
+        assertEquals(List.of(files.get(1), files.get(2)), plan.files(1));
+        assertEquals(80, plan.bytes(0));
+        assertEquals(70, plan.bytes(1));
+        assertEquals(150, plan.totalBytes());
+    }
+
+    @Test
+    void planDoesNotDependOnTheOrderOfTheFiles() throws IOException {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            files.add(file("p" + (i % 3) + "/F" + i + ".java", 10 * (i % 4)));
+        }
+        ShardPlan plan = ShardPlan.of(files, root, 3);
+        List<File> reversed = new ArrayList<>(files);
+        Collections.reverse(reversed);
+        ShardPlan other = ShardPlan.of(reversed, root, 3);
+
+        for (int shard = 0; shard < 3; shard++) {
+            assertEquals(plan.files(shard), other.files(shard));
+        }
+    }
+
+    @Test
+    void everyFileIsInExactlyOneShard() throws IOException {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            files.add(file("F" + i + ".java", i));
+        }
+        ShardPlan plan = ShardPlan.of(files, root, 4);
+
+        Set<File> seen = new HashSet<>();
+        for (int shard = 0; shard < plan.shardCount(); shard++) {
+            for (File file : plan.files(shard)) {
+                assertTrue(seen.add(file), file + " is in two shards");
+            }
+        }
+        assertEquals(new HashSet<>(files), seen);
+    }
+
+    @Test
+    void moreShardsThanFilesLeavesShardsEmpty() throws IOException {
+        ShardPlan plan = ShardPlan.of(List.of(file("A.java", 5)), root, 3);
+
+        assertEquals(1, plan.files(0).size());
+        assertTrue(plan.files(1).isEmpty());
+        assertTrue(plan.files(2).isEmpty());
+    }
+}
@@ -0,0 +1,218 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceDiscoveryTest {
+
+    @TempDir
+    Path root;
+
+    private void create(String path, String content) throws IOException {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private void create(String... paths) throws IOException {
+        for (String path : paths) {
+            create(path, "");
+        }
+    }
+
+    // Discovered files relative to the root; all test files are empty, so they come sorted by path
+    private List<String> discover(SourceDiscovery discovery) {
+        return discovery.discover(root).stream()
+                .map(File::toPath)
+                .map(path -> root.relativize(path).toString().replace(File.separatorChar, '/'))
+                .toList();
+    }
+
+    @Test
+    void findsJavaFilesAndSkipsDotDirectories() throws IOException {
+        create("A.java", "p/B.java", "p/notes.txt", ".git/C.java", ".idea/D.java");
+
+        assertEquals(List.of("A.java", "p/B.java"), discover(new SourceDiscovery()));
+    }
+
+    @Test
+    void ordersLargestFilesFirst() throws IOException {
+        create("a/Small.java", "class Small {}");
+        create("b/Large.java", "class Large { int field; }");
+        create("c/Empty.java", "");
+
+        assertEquals(List.of("b/Large.java", "a/Small.java", "c/Empty.java"), discover(new SourceDiscovery()));
+    }
+
+    @Test
+    void skipsBuildOutputNextToBuildFiles() throws IOException {
+        create("pom.xml", "lib/build.gradle.kts", "target/A.java", "lib/build/B.java", "lib/src/main/java/C.java");
+
+        assertEquals(List.of("lib/src/main/java/C.java"), discover(new SourceDiscovery()));
+    }
+
+    @Test
+    void skipsBuildOutputOutsideSourceTrees() throws IOException {
+        create("build/A.java", "module/target/B.java", "module/src/main/java/C.java");
+
+        assertEquals(List.of("module/src/main/java/C.java"), discover(new SourceDiscovery()));
+    }
+
+    @Test
+    void srcAboveTheRootDoesNotMakeASourceTree() throws IOException {
+        Path checkout = root.resolve("src/repo");
+        Files.createDirectories(checkout.resolve("web/node_modules/pkg"));
+        Files.writeString(checkout.resolve("web/node_modules/pkg/X.java"), "");
+        Files.writeString(checkout.resolve("A.java"), "");
+
+        List<File> files = new SourceDiscovery().discover(checkout);
+        assertEquals(List.of(checkout.resolve("A.java").toFile()), files);
+    }
+
+    @Test
+    void keepsPackagesNamedLikeBuildOutput() throws IOException {
+        create("pom.xml", "src/main/java/com/google/devtools/build/lib/A.java", "src/main/java/org/target/B.java");
+
+        assertEquals(List.of("src/main/java/com/google/devtools/build/lib/A.java", "src/main/java/org/target/B.java"),
+                discover(new SourceDiscovery()));
+    }
+
+    @Test
+    void skipsGeneratedSourcesAnywhere() throws IOException {
+        create("src/main/java/A.java", "src/generated-sources/B.java");
+
+        assertEquals(List.of("src/main/java/A.java"), discover(new SourceDiscovery()));
+    }
+
+    @Test
+    void honorsGitignorePatterns() throws IOException {
+        create(".gitignore", """
+                # comment
+                Gen*.java
+                /out
+                tmp/
+                \\#Hash.java
+                """);
+        create("A.java", "GenA.java", "p/GenB.java", "out/B.java", "p/out/C.java", "tmp/D.java", "p/tmp/E.java",
+                "#Hash.java");
+
+        assertEquals(List.of("A.java", "p/out/C.java"), discover(new SourceDiscovery()));
+    }
+
+    @Test
+    void laterAndDeeperGitignoreRulesWin() throws IOException {
+        create(".gitignore", "*.java\n!Keep*.java\n");
+        create("p/.gitignore", "!Local.java\nKeepNot.java\n");
+        create("A.java", "KeepA.java", "p/Local.java", "p/KeepNot.java", "p/KeepB.java");
+
+        assertEquals(List.of("KeepA.java", "p/KeepB.java", "p/Local.java"), discover(new SourceDiscovery()));
+    }
+
+    @Test
+    void anchoredGitignorePatternsAreRelativeToTheirDirectory() throws IOException {
+        create("p/.gitignore", "/A.java\nq/B.java\n");
+        create("A.java", "p/A.java", "p/r/A.java", "p/q/B.java", "q/B.java");
+
+        assertEquals(List.of("A.java", "p/r/A.java", "q/B.java"), discover(new SourceDiscovery()));
+    }
+
+    @Test
+    void gitignoreCanBeDisabled() throws IOException {
+        create(".gitignore", "*.java\n");
+        create("A.java");
+        SourceDiscovery discovery = new SourceDiscovery();
+        discovery.setGitignore(false);
+
+        assertEquals(List.of("A.java"), discover(discovery));
+    }
+
+    @Test
+    void doubleStarGlobsMatchAnyDepthIncludingNone() throws IOException {
+        create("A.java", "p/B.java", "p/q/C.java");
+        SourceDiscovery discovery = new SourceDiscovery();
+        discovery.setIncludes(List.of("**/*.java"));
+
+        assertEquals(List.of("A.java", "p/B.java", "p/q/C.java"), discover(discovery));
+
+        discovery.setIncludes(List.of("p/**"));
+        assertEquals(List.of("p/B.java", "p/q/C.java"), discover(discovery));
+    }
+
+    @Test
+    void singleStarAndQuestionMarkStayWithinAName() throws IOException {
+        create("p/A1.java", "p/A22.java", "p/q/A3.java");
+        SourceDiscovery discovery = new SourceDiscovery();
+        discovery.setIncludes(List.of("p/*.java"));
+
+        assertEquals(List.of("p/A1.java", "p/A22.java"), discover(discovery));
+
+        discovery.setIncludes(List.of("p/A?.java"));
+        assertEquals(List.of("p/A1.java"), discover(discovery));
+    }
+
+    @Test
+    void characterClassesMatchOneCharacter() throws IOException {
+        create("A.java", "B.java", "C.java");
+        SourceDiscovery discovery = new SourceDiscovery();
+        discovery.setIncludes(List.of("[AB].java"));
+
+        assertEquals(List.of("A.java", "B.java"), discover(discovery));
+
+        discovery.setIncludes(List.of("[!AB].java"));
+        assertEquals(List.of("C.java"), discover(discovery));
+    }
+
+    @Test
+    void excludesPruneDirectoriesAndFiles() throws IOException {
+        create("src/main/java/A.java", "src/main/java/ATest.java", "src/test/java/BTest.java", "module/src/test/java/C.java");
+        SourceDiscovery discovery = new SourceDiscovery();
+        discovery.setExcludes(List.of("**/src/test/**", "**/*Test.java"));
+
+        assertEquals(List.of("src/main/java/A.java"), discover(discovery));
+    }
+
+    @Test
+    void globCharactersOtherThanWildcardsAreLiteral() throws IOException {
+        create("a+b/A.java", "aab/B.java");
+        SourceDiscovery discovery = new SourceDiscovery();
+        discovery.setIncludes(List.of("a+b/*.java"));
+
+        assertEquals(List.of("a+b/A.java"), discover(discovery));
+    }
+    @Test
+    void directoriesListOnlyTheDirectoriesDiscoveryEnters() throws IOException {
+        create("pom.xml", "src/main/java/p/A.java", "target/B.java", ".git/C.java", "ignored/D.java");
+        create(".gitignore", "ignored/\n");
+        SourceDiscovery discovery = new SourceDiscovery();
+
+        List<String> directories = discovery.directories(root, root).stream()
+                .map(path -> root.relativize(path).toString().replace(File.separatorChar, '/'))
+                .sorted()
+                .toList();
+        assertEquals(List.of("", "src", "src/main", "src/main/java", "src/main/java/p"), directories);
+        assertEquals(List.of(root.resolve("src/main/java/p")), discovery.directories(root, root.resolve("src/main/java/p")));
+        assertTrue(discovery.directories(root, root.resolve("target")).isEmpty());
+    }
+
+    @Test
+    void acceptsMatchesDiscoverIncludingFilesThatAreGone() throws IOException {
+        create("pom.xml", "src/main/java/A.java", "target/B.java", "Gen.java");
+        create(".gitignore", "Gen*.java\n");
+        SourceDiscovery discovery = new SourceDiscovery();
+
+        assertTrue(discovery.accepts(root, root.resolve("src/main/java/A.java")));
+        assertTrue(discovery.accepts(root, root.resolve("src/main/java/Deleted.java")));
+        assertFalse(discovery.accepts(root, root.resolve("target/B.java")));
+        assertFalse(discovery.accepts(root, root.resolve("Gen.java")));
+        assertFalse(discovery.accepts(root, root.resolve(".git/index")));
+        assertFalse(discovery.accepts(root, root.resolve("src/main/java/notes.txt")));
+    }
+}